@@ -3,6 +3,7 @@ package entity;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.ForeignCollectionField;
 import com.j256.ormlite.table.DatabaseTable;
+import util.KeyUtil;
 
 import java.util.Collection;
 import java.util.Date;
@@ -18,13 +19,17 @@ public class Candidate {
     @DatabaseField(canBeNull = false)
     private String fio;
 
-    @DatabaseField(canBeNull = false)
+    // нормализованное ФИО, вместе с датой рождения образует ключ поиска кандидата
+    @DatabaseField(columnName = "fioKey", indexName = "candidate_key_idx")
+    private String fioKey;
+
+    @DatabaseField(canBeNull = false, indexName = "candidate_key_idx")
     private String bornDate;
 
     @DatabaseField(canBeNull = false)
     private String banned;
 
-    @ForeignCollectionField(foreignFieldName = "idCandidate", eager = true)
+    @ForeignCollectionField(foreignFieldName = "idCandidate", eager = false)
     private Collection<Interview> interviews;
 
     public Candidate() {
@@ -44,6 +49,11 @@ public class Candidate {
 
     public void setFio(String fio) {
         this.fio = fio;
+        this.fioKey = KeyUtil.normalize(fio);
+    }
+
+    public String getFioKey() {
+        return fioKey;
     }
 
     public String getBornDate() {
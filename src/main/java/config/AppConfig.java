@@ -10,14 +10,51 @@ public interface AppConfig {
     String FXML_ADD_CANDIDATE_DLG_URL = "views/add_candidate_dlg.fxml";
     String FXML_EDIT_CATEGORY_DLG_URL = "views/edit_categories_dlg.fxml";
     String FXML_ABOUT_DLG_URL = "views/about_dlg.fxml";
+    // Окна, заготовки которых загружаются в фоне после показа главного окна (см. ViewTemplateCache)
+    String[] PREWARMED_VIEWS = {FXML_ADD_INTERVIEW_DLG_URL, FXML_ALARM_URL, FXML_EDIT_CATEGORY_DLG_URL};
     // База данных
     String DATABASE_PREFIX = "jdbc:sqlite:" ;
     String DATABASE_FILENAME = "InterviewBD.db";
+    // Системные свойства с адресом БД (по умолчанию - файл DATABASE_FILENAME) и диалектом (см. DatabaseDialect),
+    // например -Dinterview.db.url=jdbc:h2:tcp://server/~/interview для общей БД нескольких рабочих мест
+    String DATABASE_URL_PROPERTY = "interview.db.url";
+    String DATABASE_DIALECT_PROPERTY = "interview.db.dialect";
+    // Каталог резервных копий БД и количество хранимых поколений копий
+    String BACKUP_DIRECTORY = "backup";
+    int BACKUP_GENERATIONS = 5;
+    // Пул подключений к БД: одно пишущее подключение и до DATABASE_POOL_MAX_CONNECTIONS читающих (режим WAL)
+    int DATABASE_POOL_MAX_CONNECTIONS = 4;
+    long DATABASE_POOL_WAIT_TIMEOUT_MILLIS = 10000;
+    // Пул подключений к серверной БД: одно пишущее подключение рабочего места и до SERVER_POOL_MAX_CONNECTIONS
+    // читающих (чтение на сервере не ограничено одним файлом, ожидание в основном сетевое)
+    int SERVER_POOL_MAX_CONNECTIONS = 8;
+    // Количество подготовленных запросов, кэшируемых каждым подключением: в SQLite подготовка - только разбор
+    // запроса, на сервере - еще и обмен по сети, поэтому кэш больше
+    int SQLITE_STATEMENT_CACHE_SIZE = 32;
+    int SERVER_STATEMENT_CACHE_SIZE = 128;
+    // Читающие потоки асинхронной работы с БД (не больше размера пула) и очереди ожидающих запросов;
+    // изменения выполняются одним пишущим потоком
+    int DATABASE_ASYNC_THREADS = 2;
+    int DATABASE_ASYNC_QUEUE_CAPACITY = 100;
+    // Количество кэшируемых результатов фильтров главной таблицы (0 - кэш отключен)
+    int FILTER_CACHE_MAX_SIZE = 32;
+    // Через сколько выгруженных интервью сообщать о ходе выгрузки
+    int EXPORT_PROGRESS_INTERVAL = 1000;
+    // Количество строк, загружаемых одной транзакцией при пакетной загрузке интервью
+    int IMPORT_BATCH_SIZE = 5000;
+    // Количество записей журнала изменений, передаваемых одной транзакцией при синхронизации БД
+    int SYNC_BATCH_SIZE = 500;
+    // Отложенная запись состояний напоминаний: количество изменений в одной транзакции
+    // и задержка записи после первого незаписанного изменения
+    int REMINDER_BATCH_SIZE = 20;
+    long REMINDER_FLUSH_DELAY_MILLIS = 2000;
     // Jar
     String INTERVIEW_HELPER_JAR = "InterviewHelper";
     // Icons
     String MAIN_VIEW_ICON = "icon/mainIcon.png";
     String TRAY_ICON = "icon/mainIcon.png";
+    // Звук уведомления о собеседовании
+    String NOTIFICATION_SOUND = "sounds/msg.mp3";
     // Порт для проверки копий запущенного приложения
     int PORT = 9999;
 }
@@ -0,0 +1,251 @@
+package config;
+
+import entity.Category;
+import entity.InterviewComment;
+import model.CategoryRow;
+import model.InterviewDetail;
+import model.InterviewListRow;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Асинхронный фасад DatabaseHelper: чтение выполняется на ограниченном пуле потоков,
+ * изменения - по очереди в одном пишущем потоке (в порядке отправки, не мешая чтению),
+ * а результат (или ошибка) передается через callbackExecutor - в приложении это поток JavaFX,
+ * поэтому продолжения CompletableFuture могут сразу работать с элементами интерфейса.
+ * Запрос с ключом отменяет незавершенный предыдущий запрос с тем же ключом (например, устаревший фильтр)
+ */
+public class AsyncDatabaseHelper {
+    // ключ запросов фильтрации главной таблицы
+    public static final String FILTER_KEY = "filter";
+
+    /**
+     * Задача, выполняемая с DatabaseHelper в потоке работы с БД
+     * @param <T> тип результата
+     */
+    public interface DatabaseTask<T> {
+        T call(DatabaseHelper helper) throws SQLException;
+    }
+
+    private final DatabaseHelper helper;
+    private final Executor callbackExecutor;
+    private final ThreadPoolExecutor readExecutor;
+    private final ThreadPoolExecutor writeExecutor;
+    // последние запросы по ключам
+    private final Map<String, CompletableFuture<?>> latest = new ConcurrentHashMap<>();
+
+    /**
+     * @param helper синхронный DatabaseHelper
+     * @param callbackExecutor исполнитель, в котором завершаются возвращаемые CompletableFuture
+     * @param threads количество читающих потоков
+     * @param queueCapacity максимальное количество ожидающих запросов в каждой очереди
+     */
+    public AsyncDatabaseHelper(DatabaseHelper helper, Executor callbackExecutor, int threads, int queueCapacity) {
+        this.helper = helper;
+        this.callbackExecutor = callbackExecutor;
+        this.readExecutor = createExecutor("database-reader-", threads, queueCapacity);
+        this.writeExecutor = createExecutor("database-writer-", 1, queueCapacity);
+    }
+
+    private static ThreadPoolExecutor createExecutor(String name, int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, name + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Выполняет читающую задачу в пуле читающих потоков
+     * @param task задача
+     * @return CompletableFuture<T> результат, завершаемый в callbackExecutor; отмена прерывает ожидающую задачу
+     */
+    public <T> CompletableFuture<T> submit(DatabaseTask<T> task) {
+        return submit(readExecutor, task);
+    }
+
+    /**
+     * Ставит изменяющую задачу в очередь пишущего потока
+     * @param task задача
+     * @return CompletableFuture<T> результат, завершаемый в callbackExecutor
+     */
+    public <T> CompletableFuture<T> submitWrite(DatabaseTask<T> task) {
+        return submit(writeExecutor, task);
+    }
+
+    private <T> CompletableFuture<T> submit(ExecutorService executor, DatabaseTask<T> task) {
+        Future<?>[] running = new Future<?>[1];
+        CompletableFuture<T> result = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                synchronized (running) {
+                    if (running[0] != null) {
+                        running[0].cancel(true);
+                    }
+                }
+                return cancelled;
+            }
+        };
+        try {
+            Future<?> future = executor.submit(() -> {
+                if (result.isDone())
+                    return;
+                try {
+                    T value = task.call(helper);
+                    callbackExecutor.execute(() -> result.complete(value));
+                } catch (Throwable e) {
+                    callbackExecutor.execute(() -> result.completeExceptionally(e));
+                }
+            });
+            synchronized (running) {
+                running[0] = future;
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Выполняет задачу, отменяя незавершенную предыдущую задачу с тем же ключом
+     * @param key ключ вида запроса
+     * @param task задача
+     * @return CompletableFuture<T> результат
+     */
+    public <T> CompletableFuture<T> submitLatest(String key, DatabaseTask<T> task) {
+        CompletableFuture<T> result = submit(task);
+        CompletableFuture<?> previous = latest.put(key, result);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        result.whenComplete((value, e) -> latest.remove(key, result));
+        return result;
+    }
+
+    /**
+     * Фильтрация главной таблицы (отменяет предыдущий незавершенный фильтр)
+     */
+    public CompletableFuture<List<InterviewListRow>> getInterviewRows(String fio, String post, String date, String text) {
+        return submitLatest(FILTER_KEY, h -> h.getInterviewRows(fio, post, date, text));
+    }
+
+    /**
+     * Страница главной таблицы (отменяет предыдущий незавершенный фильтр)
+     */
+    public CompletableFuture<List<InterviewListRow>> getInterviewRowPage(Long afterDateTime, int afterId, int pageSize) {
+        return submitLatest(FILTER_KEY, h -> h.getInterviewRowPage(afterDateTime, afterId, pageSize));
+    }
+
+    public CompletableFuture<InterviewListRow> getInterviewRowById(int idInterview) {
+        return submit(h -> h.getInterviewRowById(idInterview));
+    }
+
+    public CompletableFuture<InterviewDetail> getInterviewDetail(int idInterview) {
+        return submit(h -> h.getInterviewDetail(idInterview));
+    }
+
+    public CompletableFuture<List<CategoryRow>> getInterviewMarksAll(int idInterview) {
+        return submit(h -> h.getInterviewMarksAll(idInterview));
+    }
+
+    public CompletableFuture<Void> delInterviewById(int idInterview) {
+        return submitWrite(h -> {
+            h.delInterviewById(idInterview);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Integer> delInterviewsByFilter(String fio, String post, String date, String text) {
+        return submitWrite(h -> h.delInterviewsByFilter(fio, post, date, text));
+    }
+
+    public CompletableFuture<List<Category>> getCategories() {
+        return submit(DatabaseHelper::getCategories);
+    }
+
+    /**
+     * Добавляет критерий, если критерия с таким названием еще нет
+     * @return CompletableFuture<Category> новый критерий или null, если он уже был
+     */
+    public CompletableFuture<Category> addCategoryIfAbsent(String name) {
+        return submitWrite(h -> h.getCategoryByName(name) == null ? h.addCategory(name) : null);
+    }
+
+    public CompletableFuture<Void> delCategoryById(int id) {
+        return submitWrite(h -> {
+            h.delCategoryById(id);
+            return null;
+        });
+    }
+
+    /**
+     * Сохраняет интервью, оценки и комментарий одной транзакцией (см. DatabaseHelper.editOrAddInterview)
+     */
+    public CompletableFuture<Void> editOrAddInterview(int idInterview, String interviewDate, int idCandidate,
+                                                      String candidateFio, String bornDate, int idInterviewer,
+                                                      String interviewerFio, String result, String post, String time,
+                                                      List<CategoryRow> marks, InterviewComment comment) {
+        return submitWrite(h -> {
+            h.editOrAddInterview(idInterview, interviewDate, idCandidate, candidateFio, bornDate,
+                    idInterviewer, interviewerFio, result, post, time, marks, comment);
+            return null;
+        });
+    }
+
+    /**
+     * Возвращает исходную ошибку задачи (продолжения CompletableFuture получают ее обернутой в CompletionException)
+     * @param throwable ошибка из CompletableFuture
+     * @return Throwable исходная ошибка
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    /**
+     * Проверяет, что задача не выполнена из-за отмены (ее заменил более новый запрос)
+     * @param throwable ошибка из CompletableFuture
+     * @return boolean true, если задача отменена
+     */
+    public static boolean isCancelled(Throwable throwable) {
+        return unwrap(throwable) instanceof CancellationException;
+    }
+
+    /**
+     * Останавливает потоки работы с БД, дожидаясь начатых задач и записи уже поставленных изменений
+     */
+    public void shutdown() {
+        readExecutor.shutdown();
+        writeExecutor.shutdown();
+        try {
+            writeExecutor.awaitTermination(AppConfig.DATABASE_POOL_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            readExecutor.awaitTermination(AppConfig.DATABASE_POOL_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
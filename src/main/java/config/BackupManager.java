@@ -0,0 +1,167 @@
+package config;
+
+import com.j256.ormlite.support.DatabaseConnection;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Резервные копии БД через online backup API SQLite (команды "backup to" и "restore from" драйвера sqlite-jdbc).
+ * Копия снимается с читающего подключения пула: страницы копируются шагами по 100 с освобождением блокировки
+ * между шагами, поэтому в режиме WAL изменения продолжают записываться, а копия получается согласованной.
+ * Каждая копия и восстановленная БД проверяются PRAGMA integrity_check, в каталоге хранятся последние поколения копий.
+ * Копии серверной БД (см. DatabaseDialect.isOnlineBackupSupported) снимаются средствами сервера
+ */
+public class BackupManager {
+    private static final String BACKUP_PREFIX = "InterviewBD-";
+    private static final String BACKUP_SUFFIX = ".db";
+    private static final DateTimeFormatter BACKUP_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private BoundedConnectionSource connectionSource;
+
+    public BackupManager(BoundedConnectionSource connectionSource) {
+        this.connectionSource = connectionSource;
+    }
+
+    /**
+     * Создает в каталоге новое поколение резервной копии и удаляет самые старые поколения сверх generations
+     * @param directory каталог резервных копий (создается, если его нет)
+     * @param generations количество хранимых поколений
+     * @return Path файл новой копии
+     * @throws SQLException
+     * @throws IOException
+     */
+    public Path backup(Path directory, int generations) throws SQLException, IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(BACKUP_PREFIX + LocalDateTime.now().format(BACKUP_TIME_FORMAT) + BACKUP_SUFFIX);
+        backupTo(file);
+        List<Path> backups = listBackups(directory);
+        for (int i = 0; i < backups.size() - generations; i++) {
+            Files.deleteIfExists(backups.get(i));
+        }
+        return file;
+    }
+
+    /**
+     * Снимает резервную копию в файл и проверяет ее целостность (поврежденная копия удаляется)
+     * @param file файл копии (перезаписывается)
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void backupTo(Path file) throws SQLException, IOException {
+        checkSupported();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        DatabaseConnection connection = connectionSource.getReadOnlyConnection();
+        try (Statement statement = BoundedConnectionSource.getJdbcConnection(connection).createStatement()) {
+            statement.executeUpdate("backup to " + quote(temporary));
+        } finally {
+            connectionSource.releaseConnection(connection);
+        }
+        String result = checkIntegrity(temporary);
+        if (!"ok".equals(result)) {
+            Files.deleteIfExists(temporary);
+            throw new SQLException("Резервная копия повреждена: " + result);
+        }
+        // недописанная копия не подменяет прежний файл
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Восстанавливает БД из резервной копии. Копия проверяется до восстановления, БД - после;
+     * на время восстановления другие изменения ждут пишущее подключение
+     * @param file файл копии
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void restore(Path file) throws SQLException, IOException {
+        checkSupported();
+        if (!Files.isRegularFile(file))
+            throw new IOException("Файл резервной копии не найден: " + file);
+        String result = checkIntegrity(file);
+        if (!"ok".equals(result))
+            throw new SQLException("Резервная копия повреждена: " + result);
+        DatabaseConnection connection = connectionSource.getReadWriteConnection();
+        try (Statement statement = BoundedConnectionSource.getJdbcConnection(connection).createStatement()) {
+            statement.executeUpdate("restore from " + quote(file));
+            result = integrityCheck(statement);
+        } finally {
+            connectionSource.releaseConnection(connection);
+        }
+        if (!"ok".equals(result))
+            throw new SQLException("БД после восстановления повреждена: " + result);
+    }
+
+    private void checkSupported() throws SQLException {
+        if (!connectionSource.getDialect().isOnlineBackupSupported())
+            throw new SQLException("Резервные копии БД " + connectionSource.getDialect() + " снимаются на сервере БД");
+    }
+
+    /**
+     * Метод, возвращающий резервные копии каталога от старых к новым
+     * @param directory каталог резервных копий
+     * @return List<Path> файлы копий
+     * @throws IOException
+     */
+    public static List<Path> listBackups(Path directory) throws IOException {
+        List<Path> backups = new ArrayList<>();
+        if (!Files.isDirectory(directory))
+            return backups;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, BACKUP_PREFIX + "*" + BACKUP_SUFFIX)) {
+            for (Path file : files) {
+                backups.add(file);
+            }
+        }
+        // время в имени файла упорядочено так же, как строки
+        Collections.sort(backups);
+        return backups;
+    }
+
+    /**
+     * Проверяет целостность файла БД
+     * @param file файл БД
+     * @return String "ok" или описание ошибок
+     * @throws SQLException
+     */
+    public static String checkIntegrity(Path file) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(AppConfig.DATABASE_PREFIX + file.toAbsolutePath());
+             Statement statement = connection.createStatement()) {
+            return integrityCheck(statement);
+        }
+    }
+
+    private static String integrityCheck(Statement statement) throws SQLException {
+        StringBuilder result = new StringBuilder();
+        try (ResultSet rows = statement.executeQuery("PRAGMA integrity_check")) {
+            while (rows.next()) {
+                if (result.length() > 0)
+                    result.append("; ");
+                result.append(rows.getString(1));
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Путь в кавычках для команд драйвера (кавычки в пути не поддерживаются)
+     */
+    private static String quote(Path file) throws IOException {
+        String path = file.toAbsolutePath().toString();
+        if (path.indexOf('\'') >= 0)
+            throw new IOException("Путь не должен содержать апострофы: " + path);
+        return "'" + path + "'";
+    }
+}
@@ -0,0 +1,234 @@
+package config;
+
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.support.DatabaseConnection;
+import model.PoolStatistics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пул JDBC-подключений с одним пишущим подключением и несколькими читающими.
+ * Подключения настраиваются по диалекту БД (см. DatabaseDialect): SQLite переводится в режим WAL, поэтому
+ * чтение идет параллельно с записью и не блокирует ее; серверная БД сама разделяет чтение и запись рабочих мест.
+ * Запись (getReadWriteConnection) выполняется через единственное подключение: потоки ждут его
+ * в очереди (не дольше заданного таймаута), транзакция держит его до завершения.
+ * Чтение (getReadOnlyConnection) выполняется через подключения, открытые только на чтение;
+ * внутри транзакции потока чтение идет через ее подключение, чтобы видеть незафиксированные изменения.
+ * Вложенные запросы потока (например, загрузка внешних коллекций) не занимают новое место,
+ * иначе поток мог бы ждать сам себя.
+ * Все подключения пула считают выполненные запросы на чтение (см. CountingDatabaseConnection)
+ * и повторно используют подготовленные запросы (см. StatementCache).
+ */
+public class BoundedConnectionSource extends JdbcPooledConnectionSource {
+    private final DatabaseDialect dialect;
+    private final int maxReaders;
+    private final long waitTimeoutMillis;
+    // подключения только на чтение
+    private final ReaderPool readers;
+    // место пишущего подключения и места читающих
+    private final Semaphore writePermit = new Semaphore(1, true);
+    private final Semaphore readPermits;
+    // количество пишущих и читающих подключений, выданных текущему потоку
+    private final ThreadLocal<int[]> heldWriteConnections = ThreadLocal.withInitial(() -> new int[1]);
+    private final ThreadLocal<int[]> heldReadConnections = ThreadLocal.withInitial(() -> new int[1]);
+    // Статистика ожидания подключений
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    // количество запросов на чтение, выполненных через подключения пула
+    private final AtomicLong queryCount = new AtomicLong();
+    // количество подготовленных запросов, взятых из кэша подключений
+    private final AtomicLong statementCacheHits = new AtomicLong();
+
+    /**
+     * @param url адрес БД
+     * @param dialect диалект БД
+     * @param maxReaders максимальное количество потоков, одновременно читающих из БД
+     * @param waitTimeoutMillis максимальное время ожидания свободного подключения
+     * @throws SQLException
+     */
+    public BoundedConnectionSource(String url, DatabaseDialect dialect, int maxReaders, long waitTimeoutMillis) throws SQLException {
+        super(url);
+        this.dialect = dialect;
+        this.maxReaders = maxReaders;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.readPermits = new Semaphore(maxReaders, true);
+        this.readers = new ReaderPool(url);
+        this.readers.setMaxConnectionsFree(maxReaders);
+        setMaxConnectionsFree(1);
+    }
+
+    @Override
+    public DatabaseConnection getReadOnlyConnection() throws SQLException {
+        if (getSavedConnection() != null) {
+            return super.getReadWriteConnection();
+        }
+        acquire(readPermits, heldReadConnections);
+        try {
+            return readers.getReadWriteConnection();
+        } catch (SQLException e) {
+            release(readPermits, heldReadConnections);
+            throw e;
+        }
+    }
+
+    @Override
+    public DatabaseConnection getReadWriteConnection() throws SQLException {
+        if (getSavedConnection() != null) {
+            return super.getReadWriteConnection();
+        }
+        acquire(writePermit, heldWriteConnections);
+        try {
+            return super.getReadWriteConnection();
+        } catch (SQLException e) {
+            release(writePermit, heldWriteConnections);
+            throw e;
+        }
+    }
+
+    @Override
+    public void releaseConnection(DatabaseConnection connection) throws SQLException {
+        if (connection instanceof CountingDatabaseConnection && ((CountingDatabaseConnection) connection).isReadOnly()) {
+            try {
+                readers.releaseConnection(connection);
+            } finally {
+                release(readPermits, heldReadConnections);
+            }
+            return;
+        }
+        boolean saved = isSavedConnection(connection);
+        try {
+            super.releaseConnection(connection);
+        } finally {
+            if (!saved) {
+                release(writePermit, heldWriteConnections);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            readers.close();
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Метод, возвращающий диалект БД пула
+     * @return DatabaseDialect диалект
+     */
+    public DatabaseDialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * Создает пишущее подключение и настраивает его по диалекту БД
+     */
+    @Override
+    protected DatabaseConnection makeConnection(Logger logger) throws SQLException {
+        JdbcDatabaseConnection connection = (JdbcDatabaseConnection) super.makeConnection(logger);
+        dialect.configureWriter(connection.getInternalConnection());
+        connection.setInternalConnection(StatementCache.wrap(connection.getInternalConnection(),
+                dialect.getStatementCacheSize(), statementCacheHits));
+        return new CountingDatabaseConnection(connection, queryCount, false);
+    }
+
+    /**
+     * Метод, возвращающий JDBC-подключение, лежащее в основе подключения пула
+     * @param connection подключение пула
+     * @return Connection JDBC-подключение
+     */
+    public static Connection getJdbcConnection(DatabaseConnection connection) {
+        if (connection instanceof CountingDatabaseConnection) {
+            connection = ((CountingDatabaseConnection) connection).getConnection();
+        }
+        return ((JdbcDatabaseConnection) connection).getInternalConnection();
+    }
+
+    /**
+     * Метод, возвращающий текущую статистику пула
+     * @return PoolStatistics статистика пула (пишущее и читающие подключения вместе)
+     */
+    public PoolStatistics getStatistics() {
+        return new PoolStatistics(maxReaders + 1,
+                getCurrentConnectionsManaged() - getCurrentConnectionsFree()
+                        + readers.getCurrentConnectionsManaged() - readers.getCurrentConnectionsFree(),
+                getOpenCount() + readers.getOpenCount(),
+                acquireCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+                queryCount.get(),
+                statementCacheHits.get());
+    }
+
+    /**
+     * Метод, освобождающий место потока, когда он вернул последнее подключение этого вида
+     */
+    private void release(Semaphore permits, ThreadLocal<int[]> heldConnections) {
+        int[] held = heldConnections.get();
+        if (--held[0] == 0) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Метод, занимающий место для первого подключения этого вида в потоке
+     * @throws SQLException если подключение не освободилось за отведенное время
+     */
+    private void acquire(Semaphore permits, ThreadLocal<int[]> heldConnections) throws SQLException {
+        int[] held = heldConnections.get();
+        if (held[0] == 0) {
+            acquirePermit(permits);
+        }
+        held[0]++;
+    }
+
+    /**
+     * Метод, ожидающий свободное подключение и учитывающий время ожидания
+     * @throws SQLException если подключение не освободилось за отведенное время
+     */
+    private void acquirePermit(Semaphore permits) throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание подключения к БД прервано", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        long max = maxWaitNanos.get();
+        while (waited > max && !maxWaitNanos.compareAndSet(max, waited)) {
+            max = maxWaitNanos.get();
+        }
+        if (!acquired) {
+            throw new SQLException("Нет свободных подключений к БД в течение " + waitTimeoutMillis + " мс");
+        }
+        acquireCount.incrementAndGet();
+    }
+
+    /**
+     * Пул подключений, открытых только на чтение
+     */
+    private class ReaderPool extends JdbcPooledConnectionSource {
+        ReaderPool(String url) throws SQLException {
+            super(url);
+        }
+
+        @Override
+        protected DatabaseConnection makeConnection(Logger logger) throws SQLException {
+            Connection connection = StatementCache.wrap(dialect.openReader(getUrl()),
+                    dialect.getStatementCacheSize(), statementCacheHits);
+            return new CountingDatabaseConnection(new JdbcDatabaseConnection(connection), queryCount, true);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package config;
+
+import com.j256.ormlite.dao.Dao;
+import entity.Category;
+import model.CacheStatistics;
+import util.KeyUtil;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш критериев: все критерии загружаются одним запросом при первом обращении и хранятся
+ * в памяти по id и по нормализованному названию до следующего изменения критериев.
+ * Изменение увеличивает поколение кэша, поэтому список, прочитанный до изменения, в кэш не попадет
+ */
+public class CategoryCache {
+    private final Dao<Category, Integer> categoryDao;
+    // текущее поколение кэша (увеличивается при каждом сбросе)
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public CategoryCache(Dao<Category, Integer> categoryDao) {
+        this.categoryDao = categoryDao;
+    }
+
+    /**
+     * Метод, возвращающий все критерии
+     * @return List<Category> копия списка критериев
+     * @throws SQLException
+     */
+    public List<Category> getAll() throws SQLException {
+        return new ArrayList<>(load().categories);
+    }
+
+    /**
+     * Метод, возвращающий критерий по id
+     * @param id id критерия
+     * @return Category критерий или null
+     * @throws SQLException
+     */
+    public Category getById(int id) throws SQLException {
+        return load().byId.get(id);
+    }
+
+    /**
+     * Метод, возвращающий критерий по названию (без учета регистра и лишних пробелов)
+     * @param name название критерия
+     * @return Category критерий или null
+     * @throws SQLException
+     */
+    public Category getByName(String name) throws SQLException {
+        return load().byKey.get(KeyUtil.normalize(name));
+    }
+
+    /**
+     * Сбрасывает кэш (вызывается при каждом изменении критериев)
+     */
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    public CacheStatistics getStatistics() {
+        Snapshot current = snapshot;
+        int size = current == null ? 0 : current.categories.size();
+        return new CacheStatistics(size, size, hitCount.get(), missCount.get(), 0);
+    }
+
+    private Snapshot load() throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null) {
+            hitCount.incrementAndGet();
+            return current;
+        }
+        missCount.incrementAndGet();
+        long loadedGeneration = generation.get();
+        Snapshot loaded = new Snapshot(categoryDao.queryForAll());
+        synchronized (this) {
+            if (generation.get() == loadedGeneration) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Неизменяемый набор критериев с индексами по id и названию
+     */
+    private static class Snapshot {
+        private final List<Category> categories;
+        private final Map<Integer, Category> byId = new HashMap<>();
+        private final Map<String, Category> byKey = new HashMap<>();
+
+        Snapshot(List<Category> categories) {
+            this.categories = Collections.unmodifiableList(categories);
+            for (Category category : categories) {
+                byId.put(category.getIdCategory(), category);
+                byKey.put(category.getNameKey() != null ? category.getNameKey() : KeyUtil.normalize(category.getName()), category);
+            }
+        }
+    }
+}
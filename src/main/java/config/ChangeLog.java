@@ -0,0 +1,454 @@
+package config;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.support.ConnectionSource;
+import entity.Interview;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Журнал изменений для синхронизации БД (см. SyncEngine).
+ * Каждая строка синхронизируемых таблиц имеет в таблице syncrow глобальный uid ("реплика:id" в БД, где она создана)
+ * и версию - логические часы Лэмпорта и реплику последнего изменения. Каждое изменение через DatabaseHelper
+ * увеличивает часы БД, записывает новую версию строки и добавляет запись в журнал changelog (только добавление,
+ * seq - порядок записи в этой БД). Удаленные строки остаются в syncrow с признаком deleted, поэтому удаление
+ * не отменяется более старым изменением другой БД.
+ * Строки, существовавшие до создания журнала, получают uid "0:id": считается, что до первой синхронизации
+ * БД были копиями одного файла
+ */
+public class ChangeLog {
+    static final String CHANGE_TABLE = "changelog";
+    static final String ROW_TABLE = "syncrow";
+    static final String STATE_TABLE = "syncstate";
+    static final String PEER_TABLE = "syncpeer";
+    // реплика строк, существовавших до создания журнала
+    private static final String BASELINE_REPLICA = "0";
+    // Максимальное количество значений в одном условии IN (лимит параметров запроса SQLite - 999)
+    private static final int MAX_IN_ARGS = 500;
+    // текущее значение часов БД в запросах записи изменений
+    private static final String CLOCK = "(SELECT `clock` FROM `" + STATE_TABLE + "`)";
+
+    /**
+     * Синхронизируемая таблица: колонки данных и ссылки на строки других таблиц
+     */
+    static class Table {
+        final String name;
+        final String idColumn;
+        final String[] columns;
+        final String[] references;
+        final String[] referencedTables;
+
+        Table(String name, String idColumn, String[] columns, String[] references, String[] referencedTables) {
+            this.name = name;
+            this.idColumn = idColumn;
+            this.columns = columns;
+            this.references = references;
+            this.referencedTables = referencedTables;
+        }
+    }
+
+    // в порядке зависимостей: ссылки ведут только на предыдущие таблицы
+    static final List<Table> TABLES = Collections.unmodifiableList(Arrays.asList(
+            new Table("candidate", "idCandidate", new String[]{"fio", "fioKey", "bornDate", "banned"},
+                    new String[0], new String[0]),
+            new Table("interviewer", "idInterviewer", new String[]{"fio", "fioKey"},
+                    new String[0], new String[0]),
+            new Table("category", "idCategory", new String[]{"name", "nameKey"},
+                    new String[0], new String[0]),
+            new Table("interview", "idInterview", new String[]{"date", "result", "time", "dateTime", "post"},
+                    new String[]{"idCandidate", "idInterviewer"}, new String[]{"candidate", "interviewer"}),
+            new Table("interviewcomment", "idIC", new String[]{"experience", "recommendations", "lastWork", "comment"},
+                    new String[]{"idInterview"}, new String[]{"interview"}),
+            new Table("mark", "idMark", new String[]{"value"},
+                    new String[]{"idCategory", "idInterview"}, new String[]{"category", "interview"})));
+
+    /**
+     * Версия строки синхронизируемой таблицы и ее состояние (для удаленной строки - только версия)
+     */
+    static class RowChange {
+        final String uid;
+        final long clock;
+        final String replica;
+        final boolean deleted;
+        // id строки в БД, из которой прочитана версия (null - строки нет)
+        Integer localId;
+        // значения колонок данных и uid строк, на которые ссылается строка
+        String[] values;
+        String[] references;
+
+        RowChange(String uid, long clock, String replica, boolean deleted) {
+            this.uid = uid;
+            this.clock = clock;
+            this.replica = replica;
+            this.deleted = deleted;
+        }
+
+        /**
+         * Проверяет, новее ли версия другой: сравниваются часы, при равенстве - реплики
+         * (одинаково в любой БД, поэтому конфликт разрешается одинаково с обеих сторон)
+         */
+        boolean isNewerThan(RowChange other) {
+            if (clock != other.clock)
+                return clock > other.clock;
+            return replica.compareTo(other.replica) > 0;
+        }
+    }
+
+    // dao используется только для raw-запросов
+    private Dao<Interview, Integer> interviewDao;
+    private DatabaseDialect dialect;
+    private volatile String replica;
+
+    public ChangeLog(ConnectionSource connectionSource, DatabaseDialect dialect) throws SQLException {
+        interviewDao = DaoManager.createDao(connectionSource, Interview.class);
+        this.dialect = dialect;
+    }
+
+    /**
+     * Создает таблицы журнала, если их нет. При создании журнала БД получает новую реплику,
+     * а все существующие строки - uid "0:id"
+     * @throws SQLException
+     */
+    public void initialize() throws SQLException {
+        interviewDao.executeRawNoArgs("CREATE TABLE IF NOT EXISTS `" + CHANGE_TABLE + "` ("
+                + "`seq` INTEGER PRIMARY KEY " + dialect.autoIncrement() + ", `entity` VARCHAR NOT NULL, `uid` VARCHAR NOT NULL, "
+                + "`clock` BIGINT NOT NULL, `replica` VARCHAR NOT NULL, `deleted` INTEGER NOT NULL)");
+        interviewDao.executeRawNoArgs("CREATE TABLE IF NOT EXISTS `" + ROW_TABLE + "` ("
+                + "`entity` VARCHAR NOT NULL, `uid` VARCHAR NOT NULL, `localId` INTEGER, "
+                + "`clock` BIGINT NOT NULL, `replica` VARCHAR NOT NULL, `deleted` INTEGER NOT NULL, "
+                + "PRIMARY KEY (`entity`, `uid`))");
+        interviewDao.executeRawNoArgs("CREATE INDEX IF NOT EXISTS `" + ROW_TABLE + "_local_idx` ON `"
+                + ROW_TABLE + "` (`entity`, `localId`)");
+        interviewDao.executeRawNoArgs("CREATE TABLE IF NOT EXISTS `" + PEER_TABLE + "` ("
+                + "`replica` VARCHAR PRIMARY KEY, `seq` BIGINT NOT NULL)");
+        interviewDao.executeRawNoArgs("CREATE TABLE IF NOT EXISTS `" + STATE_TABLE + "` ("
+                + "`replica` VARCHAR NOT NULL, `clock` BIGINT NOT NULL)");
+        String[] state = interviewDao.queryRaw("SELECT `replica` FROM `" + STATE_TABLE + "`").getFirstResult();
+        if (state != null) {
+            replica = state[0];
+            return;
+        }
+        String created = UUID.randomUUID().toString();
+        callBatch(() -> {
+            for (Table table : TABLES) {
+                interviewDao.updateRaw("INSERT INTO `" + ROW_TABLE + "` (`entity`, `uid`, `localId`, `clock`, `replica`, `deleted`) "
+                        + "SELECT ?, ? || ':' || `" + table.idColumn + "`, `" + table.idColumn + "`, 0, ?, 0 FROM `" + table.name + "`",
+                        table.name, BASELINE_REPLICA, BASELINE_REPLICA);
+            }
+            interviewDao.updateRaw("INSERT INTO `" + STATE_TABLE + "` (`replica`, `clock`) VALUES (?, 0)", created);
+            return null;
+        });
+        replica = created;
+    }
+
+    /**
+     * Метод, возвращающий реплику - уникальный идентификатор этой БД в синхронизации
+     * @return String реплика
+     */
+    public String getReplica() {
+        return replica;
+    }
+
+    /**
+     * Назначает БД новую реплику (после восстановления из копии: журнал копии короче того, что уже получили
+     * другие БД, поэтому они читают журнал новой реплики с начала)
+     * @throws SQLException
+     */
+    public void resetReplica() throws SQLException {
+        String created = UUID.randomUUID().toString();
+        interviewDao.updateRaw("UPDATE `" + STATE_TABLE + "` SET `replica` = ?", created);
+        replica = created;
+    }
+
+    /**
+     * Записывает изменение одной строки (методы записи вызываются внутри транзакции изменения)
+     * @param table таблица
+     * @param id id строки
+     * @throws SQLException
+     */
+    public void recordUpsert(String table, int id) throws SQLException {
+        recordUpserts(table, "SELECT CAST(? AS INTEGER) AS id", String.valueOf(id));
+    }
+
+    /**
+     * Записывает изменение строк, выбранных запросом (новые строки получают uid этой реплики)
+     * @param table таблица
+     * @param idQuery запрос, возвращающий колонку id строк
+     * @param args параметры запроса
+     * @throws SQLException
+     */
+    public void recordUpserts(String table, String idQuery, String... args) throws SQLException {
+        tick();
+        String[] rowArgs = concat(args, new String[]{table});
+        interviewDao.updateRaw("INSERT INTO `" + ROW_TABLE + "` (`entity`, `uid`, `localId`, `clock`, `replica`, `deleted`) "
+                + "SELECT ?, ? || ':' || q.id, q.id, " + CLOCK + ", ?, 0 FROM (" + idQuery + ") q WHERE NOT EXISTS (SELECT 1 FROM `"
+                + ROW_TABLE + "` s WHERE s.`entity` = ? AND s.`deleted` = 0 AND s.`localId` = q.id)",
+                concat(concat(new String[]{table, replica, replica}, args), new String[]{table}));
+        interviewDao.updateRaw("UPDATE `" + ROW_TABLE + "` SET `clock` = " + CLOCK + ", `replica` = ? WHERE " + dialect.rowId() + " IN ("
+                + rowsOf(idQuery) + ")", concat(new String[]{replica}, rowArgs));
+        interviewDao.updateRaw("INSERT INTO `" + CHANGE_TABLE + "` (`entity`, `uid`, `clock`, `replica`, `deleted`) "
+                + "SELECT `entity`, `uid`, `clock`, `replica`, 0 FROM `" + ROW_TABLE + "` WHERE " + dialect.rowId() + " IN (" + rowsOf(idQuery) + ")",
+                rowArgs);
+    }
+
+    /**
+     * Записывает удаление строк, выбранных запросом (вызывается до удаления)
+     * @param table таблица
+     * @param idQuery запрос, возвращающий колонку id строк
+     * @param args параметры запроса
+     * @throws SQLException
+     */
+    public void recordDeletes(String table, String idQuery, String... args) throws SQLException {
+        tick();
+        String[] rowArgs = concat(new String[]{replica}, concat(args, new String[]{table}));
+        interviewDao.updateRaw("INSERT INTO `" + CHANGE_TABLE + "` (`entity`, `uid`, `clock`, `replica`, `deleted`) "
+                + "SELECT `entity`, `uid`, " + CLOCK + ", ?, 1 FROM `" + ROW_TABLE + "` WHERE " + dialect.rowId() + " IN (" + rowsOf(idQuery) + ")",
+                rowArgs);
+        interviewDao.updateRaw("UPDATE `" + ROW_TABLE + "` SET `clock` = " + CLOCK + ", `replica` = ?, `deleted` = 1 WHERE " + dialect.rowId() + " IN ("
+                + rowsOf(idQuery) + ")", rowArgs);
+    }
+
+    /**
+     * Запрос строк syncrow по id, выбранным запросом: id перебираются первыми (CROSS JOIN задает порядок),
+     * строки ищутся по индексу (entity, localId), а не перебором всех строк таблицы.
+     * Параметры: параметры idQuery, затем таблица
+     */
+    private String rowsOf(String idQuery) {
+        return "SELECT s." + dialect.rowId() + " FROM (" + idQuery + ") q CROSS JOIN `" + ROW_TABLE + "` s "
+                + "WHERE s.`entity` = ? AND s.`localId` = q.id AND s.`deleted` = 0";
+    }
+
+    /**
+     * Увеличивает логические часы БД (новое значение используется запросами записи через CLOCK)
+     */
+    private void tick() throws SQLException {
+        interviewDao.updateRaw("UPDATE `" + STATE_TABLE + "` SET `clock` = `clock` + 1");
+    }
+
+    /**
+     * Переводит часы БД не ниже часов полученного изменения, чтобы следующие изменения этой БД были новее.
+     * Часы увеличиваются и тогда, когда полученное изменение старее: каждая изменяющая транзакция сдвигает часы
+     * (см. getClock)
+     * @param clock часы полученного изменения
+     * @throws SQLException
+     */
+    public void receive(long clock) throws SQLException {
+        interviewDao.updateRaw("UPDATE `" + STATE_TABLE + "` SET `clock` = " + dialect.greatest() + "(`clock` + 1, ?)", String.valueOf(clock));
+    }
+
+    /**
+     * Метод, возвращающий логические часы БД. Каждая транзакция, изменившая данные, увеличивает их,
+     * а строка часов блокируется до ее фиксации, поэтому зафиксированное значение растет в порядке фиксации
+     * и показывает, менялись ли данные (в том числе другими рабочими местами общей БД)
+     * @return long часы БД
+     * @throws SQLException
+     */
+    public long getClock() throws SQLException {
+        return interviewDao.queryRawValue("SELECT `clock` FROM `" + STATE_TABLE + "`");
+    }
+
+    /**
+     * Метод, возвращающий seq последней записи журнала
+     * @return long seq или 0, если журнал пуст
+     * @throws SQLException
+     */
+    public long getLastSeq() throws SQLException {
+        return interviewDao.queryRawValue("SELECT COALESCE(MAX(`seq`), 0) FROM `" + CHANGE_TABLE + "`");
+    }
+
+    /**
+     * Метод, возвращающий записи журнала из диапазона seq, кроме изменений указанной реплики
+     * (их версия у этой реплики не старее записанной)
+     * @param afterSeq seq последней прочитанной записи
+     * @param toSeq seq последней записи диапазона
+     * @param excludedReplica реплика, изменения которой не читаются
+     * @param limit максимальное количество записей
+     * @return List<String[]> seq, таблица и uid строки в порядке записи
+     * @throws SQLException
+     */
+    public List<String[]> readChanges(long afterSeq, long toSeq, String excludedReplica, int limit) throws SQLException {
+        return interviewDao.queryRaw("SELECT `seq`, `entity`, `uid` FROM `" + CHANGE_TABLE
+                + "` WHERE `seq` > ? AND `seq` <= ? AND `replica` <> ? ORDER BY `seq` LIMIT ?", String.valueOf(afterSeq),
+                String.valueOf(toSeq), excludedReplica, String.valueOf(limit)).getResults();
+    }
+
+    /**
+     * Метод, возвращающий текущие версии и состояние строк таблицы с uid ссылок.
+     * Версия и значения читаются одним запросом, поэтому всегда соответствуют друг другу
+     * @param table таблица
+     * @param uids uid строк
+     * @return List<RowChange> версии найденных строк
+     * @throws SQLException
+     */
+    List<RowChange> readRows(Table table, Collection<String> uids) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT s.`uid`, s.`clock`, s.`replica`, s.`deleted`, t.`")
+                .append(table.idColumn).append('`');
+        for (String column : table.columns) {
+            query.append(", t.`").append(column).append('`');
+        }
+        for (int i = 0; i < table.references.length; i++) {
+            query.append(", r").append(i).append(".`uid`");
+        }
+        query.append(" FROM `").append(ROW_TABLE).append("` s LEFT JOIN `").append(table.name).append("` t ON s.`deleted` = 0 AND t.`")
+                .append(table.idColumn).append("` = s.`localId`");
+        for (int i = 0; i < table.references.length; i++) {
+            query.append(" LEFT JOIN `").append(ROW_TABLE).append("` r").append(i).append(" ON r").append(i)
+                    .append(".`entity` = '").append(table.referencedTables[i]).append("' AND r").append(i)
+                    .append(".`deleted` = 0 AND r").append(i).append(".`localId` = t.`").append(table.references[i]).append('`');
+        }
+        query.append(" WHERE s.`entity` = ? AND s.`uid` IN (");
+        List<RowChange> rows = new ArrayList<>();
+        for (List<String> chunk : chunks(uids)) {
+            String sql = query + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            for (String[] row : interviewDao.queryRaw(sql, concat(new String[]{table.name}, chunk.toArray(new String[chunk.size()]))).getResults()) {
+                RowChange change = new RowChange(row[0], Long.parseLong(row[1]), row[2], !"0".equals(row[3]));
+                if (row[4] != null) {
+                    change.localId = Integer.parseInt(row[4]);
+                    change.values = Arrays.copyOfRange(row, 5, 5 + table.columns.length);
+                    change.references = Arrays.copyOfRange(row, 5 + table.columns.length, row.length);
+                }
+                rows.add(change);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Метод, возвращающий версии и id строк таблицы по uid (без значений)
+     * @param table таблица
+     * @param uids uid строк
+     * @return Map<String, RowChange> версии найденных строк по uid
+     * @throws SQLException
+     */
+    Map<String, RowChange> findVersions(String table, Collection<String> uids) throws SQLException {
+        Map<String, RowChange> versions = new HashMap<>();
+        for (List<String> chunk : chunks(uids)) {
+            String sql = "SELECT `uid`, `clock`, `replica`, `deleted`, `localId` FROM `" + ROW_TABLE
+                    + "` WHERE `entity` = ? AND `uid` IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            for (String[] row : interviewDao.queryRaw(sql, concat(new String[]{table}, chunk.toArray(new String[chunk.size()]))).getResults()) {
+                RowChange version = new RowChange(row[0], Long.parseLong(row[1]), row[2], !"0".equals(row[3]));
+                version.localId = row[4] == null ? null : Integer.parseInt(row[4]);
+                versions.put(version.uid, version);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Записывает в таблицу значения полученной строки (вызывается внутри транзакции)
+     * @param table таблица
+     * @param change полученная строка
+     * @param localId id существующей строки или null для добавления
+     * @param referenceIds id строк этой БД, на которые ссылается строка
+     * @return int id записанной строки
+     * @throws SQLException
+     */
+    int writeRow(Table table, RowChange change, Integer localId, int[] referenceIds) throws SQLException {
+        List<String> columns = new ArrayList<>(Arrays.asList(table.columns));
+        columns.addAll(Arrays.asList(table.references));
+        String[] args = new String[columns.size() + (localId == null ? 0 : 1)];
+        System.arraycopy(change.values, 0, args, 0, change.values.length);
+        for (int i = 0; i < referenceIds.length; i++) {
+            args[change.values.length + i] = String.valueOf(referenceIds[i]);
+        }
+        if (localId != null) {
+            args[args.length - 1] = String.valueOf(localId);
+            interviewDao.updateRaw("UPDATE `" + table.name + "` SET `" + String.join("` = ?, `", columns)
+                    + "` = ? WHERE `" + table.idColumn + "` = ?", args);
+            return localId;
+        }
+        interviewDao.updateRaw("INSERT INTO `" + table.name + "` (`" + String.join("`, `", columns) + "`) VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")", args);
+        return (int) interviewDao.queryRawValue(dialect.lastInsertIdQuery());
+    }
+
+    /**
+     * Сохраняет полученную версию строки и добавляет ее в журнал (для передачи дальше другим БД)
+     * @param table таблица
+     * @param change полученная версия
+     * @param localId id строки в этой БД или null
+     * @throws SQLException
+     */
+    void apply(String table, RowChange change, Integer localId) throws SQLException {
+        String id = localId == null ? null : String.valueOf(localId);
+        String clock = String.valueOf(change.clock);
+        String deleted = change.deleted ? "1" : "0";
+        if (interviewDao.updateRaw("UPDATE `" + ROW_TABLE + "` SET `localId` = ?, `clock` = ?, `replica` = ?, `deleted` = ? "
+                + "WHERE `entity` = ? AND `uid` = ?", id, clock, change.replica, deleted, table, change.uid) == 0) {
+            interviewDao.updateRaw("INSERT INTO `" + ROW_TABLE + "` (`entity`, `uid`, `localId`, `clock`, `replica`, `deleted`) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", table, change.uid, id, clock, change.replica, deleted);
+        }
+        interviewDao.updateRaw("INSERT INTO `" + CHANGE_TABLE + "` (`entity`, `uid`, `clock`, `replica`, `deleted`) "
+                + "VALUES (?, ?, ?, ?, ?)", table, change.uid, clock, change.replica, deleted);
+    }
+
+    /**
+     * Метод, возвращающий seq последней записи журнала другой реплики, полученной этой БД
+     * @param peer реплика другой БД
+     * @return long seq или 0, если синхронизации еще не было
+     * @throws SQLException
+     */
+    public long getWatermark(String peer) throws SQLException {
+        String[] row = interviewDao.queryRaw("SELECT `seq` FROM `" + PEER_TABLE + "` WHERE `replica` = ?", peer).getFirstResult();
+        return row == null ? 0 : Long.parseLong(row[0]);
+    }
+
+    /**
+     * Сохраняет seq последней полученной записи журнала другой реплики
+     * @param peer реплика другой БД
+     * @param seq seq записи
+     * @throws SQLException
+     */
+    public void setWatermark(String peer, long seq) throws SQLException {
+        if (interviewDao.updateRaw("UPDATE `" + PEER_TABLE + "` SET `seq` = ? WHERE `replica` = ?", String.valueOf(seq), peer) == 0)
+            interviewDao.updateRaw("INSERT INTO `" + PEER_TABLE + "` (`replica`, `seq`) VALUES (?, ?)", peer, String.valueOf(seq));
+    }
+
+    /**
+     * Метод, возвращающий синхронизируемую таблицу по имени
+     * @param name имя таблицы
+     * @return Table таблица или null, если таблица не синхронизируется
+     */
+    static Table table(String name) {
+        for (Table table : TABLES) {
+            if (table.name.equals(name))
+                return table;
+        }
+        return null;
+    }
+
+    private static List<List<String>> chunks(Collection<String> values) {
+        List<String> list = new ArrayList<>(values);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += MAX_IN_ARGS) {
+            chunks.add(list.subList(from, Math.min(from + MAX_IN_ARGS, list.size())));
+        }
+        return chunks;
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private void callBatch(Callable<Void> callable) throws SQLException {
+        try {
+            interviewDao.callBatchTasks(callable);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package config;
+
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.stmt.GenericRowMapper;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseConnectionProxy;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Подключение к БД, считающее выполненные запросы на чтение.
+ * Используется для контроля количества запросов, которые выполняет план загрузки (см. FetchPlan)
+ */
+public class CountingDatabaseConnection extends DatabaseConnectionProxy {
+    private final DatabaseConnection connection;
+    private final AtomicLong queryCount;
+    private final boolean readOnly;
+
+    /**
+     * @param connection подключение, которому передаются все вызовы
+     * @param queryCount общий счетчик запросов источника подключений
+     * @param readOnly true для подключения, открытого только на чтение
+     */
+    public CountingDatabaseConnection(DatabaseConnection connection, AtomicLong queryCount, boolean readOnly) {
+        super(connection);
+        this.connection = connection;
+        this.queryCount = queryCount;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Метод, возвращающий исходное подключение
+     * @return DatabaseConnection подключение без счетчика
+     */
+    public DatabaseConnection getConnection() {
+        return connection;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @Override
+    public CompiledStatement compileStatement(String statement, StatementType type, FieldType[] argFieldTypes,
+                                              int resultFlags) throws SQLException {
+        if (type.isOkForQuery()) {
+            queryCount.incrementAndGet();
+        }
+        return super.compileStatement(statement, type, argFieldTypes, resultFlags);
+    }
+
+    @Override
+    public <T> Object queryForOne(String statement, Object[] args, FieldType[] argfieldTypes,
+                                  GenericRowMapper<T> rowMapper, ObjectCache objectCache) throws SQLException {
+        queryCount.incrementAndGet();
+        return super.queryForOne(statement, args, argfieldTypes, rowMapper, objectCache);
+    }
+
+    @Override
+    public long queryForLong(String statement) throws SQLException {
+        queryCount.incrementAndGet();
+        return super.queryForLong(statement);
+    }
+
+    @Override
+    public long queryForLong(String statement, Object[] args, FieldType[] argFieldTypes) throws SQLException {
+        queryCount.incrementAndGet();
+        return super.queryForLong(statement, args, argFieldTypes);
+    }
+}
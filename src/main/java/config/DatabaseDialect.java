@@ -0,0 +1,262 @@
+package config;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Диалект БД: различия SQL и настройки пула подключений для поддерживаемых СУБД.
+ * SQLITE - локальный файл (по умолчанию), H2 - общая БД на сервере для нескольких рабочих мест.
+ * Адрес БД и диалект задаются системными свойствами AppConfig.DATABASE_URL_PROPERTY и
+ * AppConfig.DATABASE_DIALECT_PROPERTY, если диалект не задан - он определяется по адресу
+ */
+public enum DatabaseDialect {
+    SQLITE("jdbc:sqlite:", AppConfig.DATABASE_POOL_MAX_CONNECTIONS, AppConfig.SQLITE_STATEMENT_CACHE_SIZE) {
+        /**
+         * Переводит БД в режим WAL (режим сохраняется в файле БД), чтение идет параллельно с записью
+         */
+        @Override
+        public void configureWriter(Connection connection) throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+            }
+        }
+
+        @Override
+        public Connection openReader(String url) throws SQLException {
+            SQLiteConfig config = new SQLiteConfig();
+            config.setReadOnly(true);
+            return DriverManager.getConnection(url, config.toProperties());
+        }
+
+        @Override
+        public String tableExistsQuery(String table) {
+            return "SELECT COUNT(*) FROM `sqlite_master` WHERE `type` = 'table' AND `name` = '" + table + "'";
+        }
+
+        @Override
+        public String autoIncrement() {
+            return "AUTOINCREMENT";
+        }
+
+        @Override
+        public String rowId() {
+            return "rowid";
+        }
+
+        @Override
+        public String greatest() {
+            return "max";
+        }
+
+        @Override
+        public String lastInsertIdQuery() {
+            return "SELECT last_insert_rowid()";
+        }
+
+        @Override
+        public boolean isFullTextSearchSupported() {
+            return true;
+        }
+
+        @Override
+        public boolean isOnlineBackupSupported() {
+            return true;
+        }
+
+        @Override
+        public boolean isShared() {
+            return false;
+        }
+    },
+    H2("jdbc:h2:", AppConfig.SERVER_POOL_MAX_CONNECTIONS, AppConfig.SERVER_STATEMENT_CACHE_SIZE) {
+        @Override
+        public void configureWriter(Connection connection) {
+        }
+
+        @Override
+        public Connection openReader(String url) throws SQLException {
+            Connection connection = DriverManager.getConnection(url);
+            connection.setReadOnly(true);
+            return connection;
+        }
+
+        /**
+         * Имена в обратных кавычках H2 приводит к верхнему регистру
+         */
+        @Override
+        public String tableExistsQuery(String table) {
+            return "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = '" + table.toUpperCase() + "'";
+        }
+
+        @Override
+        public String autoIncrement() {
+            return "AUTO_INCREMENT";
+        }
+
+        @Override
+        public String rowId() {
+            return "_ROWID_";
+        }
+
+        @Override
+        public String greatest() {
+            return "GREATEST";
+        }
+
+        @Override
+        public String lastInsertIdQuery() {
+            return "SELECT IDENTITY()";
+        }
+
+        @Override
+        public boolean isFullTextSearchSupported() {
+            return false;
+        }
+
+        /**
+         * Копии серверной БД снимаются на сервере (файлы БД недоступны рабочим местам)
+         */
+        @Override
+        public boolean isOnlineBackupSupported() {
+            return false;
+        }
+
+        @Override
+        public boolean isShared() {
+            return true;
+        }
+    };
+
+    private final String urlPrefix;
+    private final int maxReaders;
+    private final int statementCacheSize;
+
+    DatabaseDialect(String urlPrefix, int maxReaders, int statementCacheSize) {
+        this.urlPrefix = urlPrefix;
+        this.maxReaders = maxReaders;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Метод, возвращающий адрес БД приложения: из системного свойства или файл SQLite по умолчанию
+     * @return String jdbc-адрес БД
+     */
+    public static String getConfiguredUrl() {
+        return System.getProperty(AppConfig.DATABASE_URL_PROPERTY, AppConfig.DATABASE_PREFIX + AppConfig.DATABASE_FILENAME);
+    }
+
+    /**
+     * Метод, возвращающий диалект БД приложения: из системного свойства или по адресу
+     * @return DatabaseDialect диалект
+     * @throws SQLException если диалект не поддерживается
+     */
+    public static DatabaseDialect getConfigured() throws SQLException {
+        String name = System.getProperty(AppConfig.DATABASE_DIALECT_PROPERTY);
+        if (name == null)
+            return forUrl(getConfiguredUrl());
+        for (DatabaseDialect dialect : values()) {
+            if (dialect.name().equalsIgnoreCase(name.trim()))
+                return dialect;
+        }
+        throw new SQLException("Неподдерживаемый диалект БД: " + name);
+    }
+
+    /**
+     * Метод, определяющий диалект БД по адресу
+     * @param url jdbc-адрес БД
+     * @return DatabaseDialect диалект
+     * @throws SQLException если БД не поддерживается
+     */
+    public static DatabaseDialect forUrl(String url) throws SQLException {
+        for (DatabaseDialect dialect : values()) {
+            if (url.startsWith(dialect.urlPrefix))
+                return dialect;
+        }
+        throw new SQLException("Неподдерживаемый адрес БД: " + url);
+    }
+
+    /**
+     * Метод, возвращающий максимальное количество читающих подключений пула
+     * @return int количество подключений
+     */
+    public int getMaxReaders() {
+        return maxReaders;
+    }
+
+    /**
+     * Метод, возвращающий количество подготовленных запросов, кэшируемых подключением (0 - без кэша)
+     * @return int размер кэша
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Настраивает новое пишущее подключение
+     * @param connection подключение
+     * @throws SQLException
+     */
+    public abstract void configureWriter(Connection connection) throws SQLException;
+
+    /**
+     * Открывает подключение для чтения
+     * @param url jdbc-адрес БД
+     * @return Connection подключение
+     * @throws SQLException
+     */
+    public abstract Connection openReader(String url) throws SQLException;
+
+    /**
+     * Метод, возвращающий запрос количества таблиц с указанным именем (0 или 1)
+     * @param table имя таблицы
+     * @return String запрос
+     */
+    public abstract String tableExistsQuery(String table);
+
+    /**
+     * Метод, возвращающий признак автоинкремента первичного ключа для CREATE TABLE
+     * @return String признак автоинкремента
+     */
+    public abstract String autoIncrement();
+
+    /**
+     * Метод, возвращающий имя служебной колонки с внутренним идентификатором строки
+     * @return String имя колонки
+     */
+    public abstract String rowId();
+
+    /**
+     * Метод, возвращающий функцию наибольшего из двух значений
+     * @return String имя функции
+     */
+    public abstract String greatest();
+
+    /**
+     * Метод, возвращающий запрос id строки, последней добавленной через это подключение
+     * @return String запрос
+     */
+    public abstract String lastInsertIdQuery();
+
+    /**
+     * Метод, проверяющий, есть ли в БД полнотекстовый индекс (иначе SearchIndex ищет по обычной таблице)
+     * @return boolean true, если полнотекстовый индекс поддерживается
+     */
+    public abstract boolean isFullTextSearchSupported();
+
+    /**
+     * Метод, проверяющий, можно ли снимать резервные копии БД через подключение (см. BackupManager)
+     * @return boolean true, если копии поддерживаются
+     */
+    public abstract boolean isOnlineBackupSupported();
+
+    /**
+     * Метод, проверяющий, работают ли с БД несколько рабочих мест (тогда данные меняются в обход кэшей
+     * DatabaseHelper этого рабочего места)
+     * @return boolean true, если БД общая
+     */
+    public abstract boolean isShared();
+}
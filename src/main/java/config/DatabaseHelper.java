@@ -2,25 +2,50 @@ package config;
 
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.DaoManager;
-import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.field.SqlType;
 import com.j256.ormlite.spring.DaoFactory;
+import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.stmt.PreparedQuery;
 import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.Where;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.table.TableUtils;
 import dao.impl.CandidateDao;
 import entity.*;
 import model.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.Locale;
 import util.DBUtil;
+import util.DateTimeUtil;
+import util.DateUtil;
+import util.KeyUtil;
 
 public class DatabaseHelper {
-    // Подключение к БД
-    private ConnectionSource connectionSource;
+    // Максимальное количество значений в одном условии IN (лимит параметров запроса SQLite - 999)
+    private static final int MAX_IN_ARGS = 500;
+    // Пул подключений к БД
+    private BoundedConnectionSource connectionSource;
     //----------------------------------------------------------------------------
     // DAO для работы с сущностями
     private Dao<Candidate, Integer> candidateDao = null;
@@ -29,28 +54,258 @@ public class DatabaseHelper {
     private Dao<InterviewComment, Integer> interviewCommentDao = null;
     private Dao<Interviewer, Integer> interviewerDao = null;
     private Dao<Mark, Integer> markDao = null;
+    private Dao<Reminder, Integer> reminderDao = null;
+    // Полнотекстовый индекс интервью
+    private SearchIndex searchIndex;
+    // Журнал изменений для синхронизации с другими БД
+    private ChangeLog changeLog;
+    // Кэш критериев, кэш результатов фильтров главной таблицы и признак изменения данных в текущей транзакции потока
+    private CategoryCache categoryCache;
+    private QueryResultCache<List<InterviewListRow>> filterCache = new QueryResultCache<>(AppConfig.FILTER_CACHE_MAX_SIZE);
+    private final ThreadLocal<Boolean> changedInTransaction = ThreadLocal.withInitial(() -> false);
+    // Индексы подсказок по ФИО кандидатов и рекрутеров (заполняются при первом обращении)
+    // и признак их изменения в текущей транзакции потока
+    private final ThreadLocal<Boolean> suggestionsChangedInTransaction = ThreadLocal.withInitial(() -> false);
+    private final PrefixIndex<Candidate> candidateIndex = new PrefixIndex<>(Candidate::getIdCandidate, Candidate::getFio);
+    private final PrefixIndex<Interviewer> interviewerIndex = new PrefixIndex<>(Interviewer::getIdInterviewer, Interviewer::getFio);
+    // Общая БД: кэши и индексы подсказок сбрасываются, когда часы журнала изменений отличаются от последних
+    // проверенных (данные изменило это или другое рабочее место)
+    private final boolean shared;
+    private final AtomicLong checkedClock = new AtomicLong(-1);
+    // Получатели событий изменения интервью и изменения текущей транзакции потока (id интервью -> удалено)
+    private final List<InterviewListener> interviewListeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Map<Integer, Boolean>> interviewsChangedInTransaction = ThreadLocal.withInitial(LinkedHashMap::new);
 
+    /**
+     * Создает helper для БД приложения (адрес и диалект задаются системными свойствами, см. DatabaseDialect)
+     * @throws SQLException
+     */
     public DatabaseHelper() throws SQLException {
-        connectionSource = new JdbcConnectionSource(AppConfig.DATABASE_PREFIX + AppConfig.DATABASE_FILENAME);
+        this(DatabaseDialect.getConfiguredUrl(), DatabaseDialect.getConfigured());
+    }
+
+    /**
+     * Создает helper поверх пула подключений к указанной БД (диалект определяется по адресу)
+     * @param databaseUrl jdbc-адрес БД
+     * @throws SQLException
+     */
+    public DatabaseHelper(String databaseUrl) throws SQLException {
+        this(databaseUrl, DatabaseDialect.forUrl(databaseUrl));
+    }
+
+    /**
+     * Создает helper поверх пула подключений к указанной БД
+     * @param databaseUrl jdbc-адрес БД
+     * @param dialect диалект БД
+     * @throws SQLException
+     */
+    public DatabaseHelper(String databaseUrl, DatabaseDialect dialect) throws SQLException {
+        shared = dialect.isShared();
+        connectionSource = new BoundedConnectionSource(databaseUrl, dialect,
+                dialect.getMaxReaders(), AppConfig.DATABASE_POOL_WAIT_TIMEOUT_MILLIS);
         candidateDao = DaoManager.createDao(connectionSource,Candidate.class);
         categoryDao = DaoManager.createDao(connectionSource,Category.class);
         interviewDao = DaoManager.createDao(connectionSource,Interview.class);
         interviewCommentDao = DaoManager.createDao(connectionSource,InterviewComment.class);
         interviewerDao = DaoManager.createDao(connectionSource,Interviewer.class);
         markDao = DaoManager.createDao(connectionSource,Mark.class);
+        reminderDao = DaoManager.createDao(connectionSource,Reminder.class);
+        categoryCache = new CategoryCache(categoryDao);
         DBUtil.createDbIfNotExist(connectionSource);
+        searchIndex = new SearchIndex(connectionSource, dialect);
+        searchIndex.initialize();
+        changeLog = new ChangeLog(connectionSource, dialect);
+        changeLog.initialize();
+    }
 
+    /**
+     * Метод, возвращающий статистику пула подключений
+     * @return PoolStatistics активные подключения, время ожидания, количество созданных подключений
+     */
+    public PoolStatistics getPoolStatistics() {
+        return connectionSource.getStatistics();
+    }
+
+    /**
+     * Закрывает все подключения пула
+     */
+    public void close() {
+        connectionSource.closeQuietly();
     }
 
     public List<Interview> getInterviewsByCandidateFioAndDateAndPost(String fio, String post, String date) throws SQLException {
+        return getInterviewsByCandidateFioAndDateAndPost(fio, post, date, "");
+    }
+
+    /**
+     * Метод для фильтрации интервью главной таблицы.
+     * ФИО, должность и текст ищутся по полнотекстовому индексу (слова по префиксу), дата - по индексу dateTime
+     * @param fio слова из ФИО кандидата
+     * @param post слова из должности
+     * @param date полная или частичная дата
+     * @param text слова из ФИО, должности или комментариев (опыт, рекомендации, место работы, комментарий)
+     * @return List<Interview> все подходящие интервью
+     * @throws SQLException
+     */
+    public List<Interview> getInterviewsByCandidateFioAndDateAndPost(String fio, String post, String date, String text) throws SQLException {
+        List<String> args = new ArrayList<>();
+        String condition = filterCondition(fio, post, date, text, args);
+        if (condition.isEmpty())
+            return getInterview();
+        SelectArg[] selectArgs = new SelectArg[args.size()];
+        for (int i = 0; i < selectArgs.length; i++) {
+            selectArgs[i] = new SelectArg(SqlType.STRING, args.get(i));
+        }
         QueryBuilder<Interview, Integer> interviewQueryBuilder = interviewDao.queryBuilder();
-        QueryBuilder<Candidate, Integer> candidateQueryBuilder = candidateDao.queryBuilder();
-        candidateQueryBuilder.where().like("fio","%" + fio + "%");
-        interviewQueryBuilder.leftJoin(candidateQueryBuilder);
-        interviewQueryBuilder.where().like("Date", "%" + date + "%").and().like("Post","%" + post + "%");
+        interviewQueryBuilder.where().raw(condition, selectArgs);
         PreparedQuery<Interview> preparedQuery = interviewQueryBuilder.prepare();
         List<Interview> interviews = interviewDao.query(preparedQuery);
-        return interviews;
+        return fetch(interviews, FetchPlan.LIST);
+    }
+
+    /**
+     * Метод, получающий строки главной таблицы с учетом фильтров (от новых интервью к старым).
+     * Результаты кэшируются по нормализованным значениям фильтров до следующего изменения интервью,
+     * кандидатов, комментариев или оценок
+     * @param fio слова из ФИО кандидата
+     * @param post слова из должности
+     * @param date полная или частичная дата
+     * @param text слова из ФИО, должности или комментариев
+     * @return List<InterviewListRow> строки подходящих интервью
+     * @throws SQLException
+     */
+    public List<InterviewListRow> getInterviewRows(String fio, String post, String date, String text) throws SQLException {
+        List<String> args = new ArrayList<>();
+        String condition = filterCondition(fio, post, date, text, args);
+        QueryResultCache.Loader<List<InterviewListRow>> loader = () -> Collections.unmodifiableList(
+                queryInterviewRows(condition.isEmpty() ? "" : " WHERE " + condition,
+                        " ORDER BY `interview`.`dateTime` DESC, `interview`.`idInterview` DESC", args));
+        // внутри транзакции видны ее незафиксированные изменения, поэтому кэш не используется
+        if (isInTransaction())
+            return new ArrayList<>(loader.load());
+        // условие и параметры уже нормализованы, поэтому одинаковые по смыслу фильтры дают один ключ
+        String key = condition + '\n' + String.join("\n", args);
+        checkSharedChanges();
+        return new ArrayList<>(filterCache.get(key, loader));
+    }
+
+    /**
+     * Изменяет максимальное количество кэшируемых результатов фильтров
+     * @param maxSize количество результатов (0 - кэш отключен)
+     */
+    public void setFilterCacheMaxSize(int maxSize) {
+        filterCache.setMaxSize(maxSize);
+    }
+
+    public CacheStatistics getFilterCacheStatistics() {
+        return filterCache.getStatistics();
+    }
+
+    /**
+     * Метод, получающий страницу строк главной таблицы по курсору (dateTime, id), как getInterviewPage
+     * @param afterDateTime dateTime последней строки предыдущей страницы (null - первая страница)
+     * @param afterId id последней строки предыдущей страницы
+     * @param pageSize размер страницы
+     * @return List<InterviewListRow> строки страницы
+     * @throws SQLException
+     */
+    public List<InterviewListRow> getInterviewRowPage(Long afterDateTime, int afterId, int pageSize) throws SQLException {
+        List<String> args = new ArrayList<>();
+        String where = "";
+        if (afterDateTime != null) {
+            where = " WHERE `interview`.`dateTime` < ? OR (`interview`.`dateTime` = ? AND `interview`.`idInterview` < ?)";
+            args.add(String.valueOf(afterDateTime));
+            args.add(String.valueOf(afterDateTime));
+            args.add(String.valueOf(afterId));
+        }
+        return queryInterviewRows(where,
+                " ORDER BY `interview`.`dateTime` DESC, `interview`.`idInterview` DESC LIMIT " + pageSize, args);
+    }
+
+    /**
+     * Метод, получающий строку главной таблицы по id интервью
+     * @param idInterview id интервью
+     * @return InterviewListRow строка или null, если интервью нет
+     * @throws SQLException
+     */
+    public InterviewListRow getInterviewRowById(int idInterview) throws SQLException {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(idInterview));
+        List<InterviewListRow> rows = queryInterviewRows(" WHERE `interview`.`idInterview` = ?", "", args);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Выполняет запрос строк главной таблицы: интервью с ФИО кандидата одним соединением,
+     * строки результата разбираются напрямую в InterviewListRow
+     * @param where условие выборки (вместе с WHERE) или пустая строка
+     * @param order сортировка и ограничение количества или пустая строка
+     * @param args значения параметров условия
+     * @return List<InterviewListRow> строки
+     * @throws SQLException
+     */
+    private List<InterviewListRow> queryInterviewRows(String where, String order, List<String> args) throws SQLException {
+        return interviewDao.queryRaw("SELECT `interview`.`idInterview`, `candidate`.`fio`, `interview`.`post`, "
+                        + "`interview`.`date`, `interview`.`time`, `interview`.`dateTime` "
+                        + "FROM `interview` LEFT JOIN `candidate` ON `candidate`.`idCandidate` = `interview`.`idCandidate`"
+                        + where + order,
+                (columnNames, row) -> new InterviewListRow(Integer.parseInt(row[0]),
+                        row[1] == null ? "" : row[1], row[2], row[3], row[4],
+                        row[5] == null ? 0L : Long.parseLong(row[5])),
+                args.toArray(new String[args.size()])).getResults();
+    }
+
+    /**
+     * Строит условие фильтра главной таблицы по колонкам таблицы interview.
+     * ФИО, должность и текст ищутся по полнотекстовому индексу (слова по префиксу), дата - по индексу dateTime
+     * @param fio слова из ФИО кандидата
+     * @param post слова из должности
+     * @param date полная или частичная дата
+     * @param text слова из ФИО, должности или комментариев
+     * @param args список, в который добавляются значения параметров условия
+     * @return String условие или пустая строка, если фильтры не заданы
+     */
+    private String filterCondition(String fio, String post, String date, String text, List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        String match = searchIndex.matchCondition(fio, post, text, args);
+        if (!match.isEmpty()) {
+            conditions.add(match);
+        }
+        String trimmedDate = date == null ? "" : date.trim();
+        LocalDate day = DateUtil.parse(trimmedDate);
+        if (day != null) {
+            // полная дата - выборка по индексу dateTime
+            conditions.add("`interview`.`dateTime` >= ? AND `interview`.`dateTime` < ?");
+            args.add(String.valueOf(startOf(day)));
+            args.add(String.valueOf(startOf(day.plusDays(1))));
+        } else if (!trimmedDate.isEmpty()) {
+            conditions.add("`interview`.`date` LIKE ?");
+            args.add("%" + trimmedDate + "%");
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    /**
+     * Ранжированный полнотекстовый поиск интервью по ФИО, должности и комментариям
+     * @param query поисковая строка (слова ищутся по префиксу)
+     * @param limit максимальное количество результатов
+     * @return List<Interview> интервью, лучшие совпадения первыми
+     * @throws SQLException
+     */
+    public List<Interview> searchInterviews(String query, int limit) throws SQLException {
+        List<Integer> ids = searchIndex.search(query, limit);
+        if (ids.isEmpty())
+            return new ArrayList<>();
+        Map<Integer, Interview> found = new HashMap<>();
+        for (Interview interview : interviewDao.query(interviewDao.queryBuilder().where().in("idInterview", ids).prepare())) {
+            found.put(interview.getIdInterview(), interview);
+        }
+        List<Interview> interviews = new ArrayList<>();
+        for (Integer id : ids) {
+            if (found.containsKey(id))
+                interviews.add(found.get(id));
+        }
+        return fetch(interviews, FetchPlan.LIST);
     }
 
     /**
@@ -75,7 +330,7 @@ public class DatabaseHelper {
         // WHERE `candidate`.`fio` = 'polyakov'
         PreparedQuery<Interview> preparedQuery = interviewQueryBuilder.prepare();
         List<Interview> interviews = interviewDao.query(preparedQuery);
-        return interviews;
+        return fetch(interviews, FetchPlan.LIST);
     }
 
     /**
@@ -85,11 +340,206 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public List<Interview> getInterviewsByDate(String date) throws SQLException {
+        LocalDate day = DateUtil.parse(date.trim());
+        if (day != null)
+            return getInterviewsByDay(day);
         QueryBuilder<Interview, Integer> interviewQueryBuilder = interviewDao.queryBuilder();
         interviewQueryBuilder.where().like("Date", "%" + date + "%");
         PreparedQuery<Interview> preparedQuery = interviewQueryBuilder.prepare();
         List<Interview> interviews = interviewDao.query(preparedQuery);
-        return interviews;
+        return fetch(interviews, FetchPlan.LIST);
+    }
+
+    /**
+     * Метод, получающий интервью за период по индексу dateTime (с кандидатами и рекрутерами)
+     * @param from начало периода (включительно)
+     * @param to конец периода (не включительно)
+     * @return List<Interview> интервью, упорядоченные по времени проведения
+     * @throws SQLException
+     */
+    public List<Interview> getInterviewsBetween(LocalDateTime from, LocalDateTime to) throws SQLException {
+        return getInterviewsBetween(from, to, FetchPlan.LIST);
+    }
+
+    /**
+     * Метод, получающий интервью за период по индексу dateTime
+     * @param from начало периода (включительно)
+     * @param to конец периода (не включительно)
+     * @param plan загружаемые связи интервью
+     * @return List<Interview> интервью, упорядоченные по времени проведения
+     * @throws SQLException
+     */
+    public List<Interview> getInterviewsBetween(LocalDateTime from, LocalDateTime to, FetchPlan plan) throws SQLException {
+        QueryBuilder<Interview, Integer> interviewQueryBuilder = interviewDao.queryBuilder();
+        interviewQueryBuilder.where().ge("dateTime", DateTimeUtil.toEpochMillis(from))
+                .and().lt("dateTime", DateTimeUtil.toEpochMillis(to));
+        interviewQueryBuilder.orderBy("dateTime", true);
+        return fetch(interviewDao.query(interviewQueryBuilder.prepare()), plan);
+    }
+
+    /**
+     * Метод, получающий интервью за день
+     * @param day день
+     * @return List<Interview> интервью, упорядоченные по времени проведения
+     * @throws SQLException
+     */
+    public List<Interview> getInterviewsByDay(LocalDate day) throws SQLException {
+        return getInterviewsBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Метод, получающий интервью за неделю (с понедельника по воскресенье)
+     * @param day любой день недели
+     * @return List<Interview> интервью, упорядоченные по времени проведения
+     * @throws SQLException
+     */
+    public List<Interview> getInterviewsByWeek(LocalDate day) throws SQLException {
+        LocalDate monday = day.with(DayOfWeek.MONDAY);
+        return getInterviewsBetween(monday.atStartOfDay(), monday.plusWeeks(1).atStartOfDay());
+    }
+
+    /**
+     * Метод, получающий интервью рекрутера за день
+     * @param idInterviewer id рекрутера
+     * @param day день
+     * @return List<Interview> интервью, упорядоченные по времени проведения
+     * @throws SQLException
+     */
+    public List<Interview> getInterviewsByInterviewerAndDay(int idInterviewer, LocalDate day) throws SQLException {
+        QueryBuilder<Interview, Integer> interviewQueryBuilder = interviewDao.queryBuilder();
+        interviewQueryBuilder.where().eq("idInterviewer", idInterviewer)
+                .and().ge("dateTime", startOf(day))
+                .and().lt("dateTime", startOf(day.plusDays(1)));
+        interviewQueryBuilder.orderBy("dateTime", true);
+        return fetch(interviewDao.query(interviewQueryBuilder.prepare()), FetchPlan.LIST);
+    }
+
+    /**
+     * Метод, получающий интервью, которые пройдут в ближайшие часы
+     * @param hours количество часов от текущего момента
+     * @return List<Interview> интервью, упорядоченные по времени проведения
+     * @throws SQLException
+     */
+    public List<Interview> getUpcomingInterviews(int hours) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        return getInterviewsBetween(now, now.plusHours(hours));
+    }
+
+    /**
+     * Метод, получающий несработавшие напоминания о собеседованиях периода одним запросом по индексу dateTime:
+     * собеседования с ФИО кандидата и сохраненным состоянием напоминания (см. Reminder), а также отложенные
+     * напоминания, срабатывающие в период, о собеседованиях, начавшихся до него.
+     * Сработавшие напоминания не возвращаются; без сохраненного состояния напоминание срабатывает
+     * за leadMillis до собеседования
+     * @param from начало периода, мс от начала эпохи (не включительно, обычно - текущий момент)
+     * @param to конец периода, мс от начала эпохи (не включительно)
+     * @param leadMillis за сколько мс до собеседования срабатывает напоминание
+     * @return List<Alarm> напоминания, упорядоченные по времени собеседования
+     * @throws SQLException
+     */
+    public List<Alarm> getAlarms(long from, long to, long leadMillis) throws SQLException {
+        return queryAlarms("", new ArrayList<>(), from, to, leadMillis);
+    }
+
+    /**
+     * Метод, получающий несработавшие напоминания о указанных собеседованиях периода (как getAlarms),
+     * запросами по MAX_IN_ARGS id
+     * @param ids id собеседований
+     * @param from начало периода, мс от начала эпохи (не включительно)
+     * @param to конец периода, мс от начала эпохи (не включительно)
+     * @param leadMillis за сколько мс до собеседования срабатывает напоминание
+     * @return List<Alarm> напоминания о собеседованиях из ids, которые проходят в период
+     * @throws SQLException
+     */
+    public List<Alarm> getAlarms(Collection<Integer> ids, long from, long to, long leadMillis) throws SQLException {
+        List<Integer> values = new ArrayList<>(ids);
+        List<Alarm> alarms = new ArrayList<>();
+        for (int start = 0; start < values.size(); start += MAX_IN_ARGS) {
+            List<String> args = new ArrayList<>();
+            for (Integer id : values.subList(start, Math.min(start + MAX_IN_ARGS, values.size()))) {
+                args.add(String.valueOf(id));
+            }
+            alarms.addAll(queryAlarms(" AND `interview`.`idInterview` IN ("
+                    + String.join(", ", Collections.nCopies(args.size(), "?")) + ")", args, from, to, leadMillis));
+        }
+        return alarms;
+    }
+
+    /**
+     * Выполняет запрос напоминаний: собеседования периода с ФИО кандидата и сохраненным состоянием напоминания,
+     * а также отложенные напоминания со временем срабатывания в периоде о собеседованиях, которые уже начались
+     * (отложенное напоминание обычно срабатывает после начала собеседования). Обе части запроса идут по индексам:
+     * первая - по dateTime интервью, вторая - по (state, fireTime) напоминаний
+     * @param condition дополнительное условие (начиная с AND) или пустая строка
+     * @param args значения параметров дополнительного условия
+     */
+    private List<Alarm> queryAlarms(String condition, List<String> args, long from, long to, long leadMillis) throws SQLException {
+        List<String> values = new ArrayList<>();
+        values.add(String.valueOf(from));
+        values.add(String.valueOf(to));
+        values.add(Reminder.State.FIRED.name());
+        values.addAll(args);
+        values.add(Reminder.State.PENDING.name());
+        values.add(String.valueOf(from));
+        values.add(String.valueOf(to));
+        values.add(String.valueOf(from));
+        values.addAll(args);
+        String columns = "SELECT `interview`.`idInterview`, `candidate`.`fio`, `interview`.`post`, "
+                + "`interview`.`dateTime`, `reminder`.`fireTime`, `reminder`.`snoozeCount` ";
+        String candidate = "LEFT JOIN `candidate` ON `candidate`.`idCandidate` = `interview`.`idCandidate` ";
+        return interviewDao.queryRaw(columns
+                        + "FROM `interview` " + candidate
+                        // состояние, сохраненное для прежнего времени перенесенного собеседования, не действует
+                        + "LEFT JOIN `reminder` ON `reminder`.`idInterview` = `interview`.`idInterview` "
+                        + "AND `reminder`.`interviewTime` = `interview`.`dateTime` "
+                        + "WHERE `interview`.`dateTime` > ? AND `interview`.`dateTime` < ? "
+                        + "AND (`reminder`.`state` IS NULL OR `reminder`.`state` <> ?)" + condition
+                        + " UNION ALL " + columns
+                        + "FROM `reminder` JOIN `interview` ON `interview`.`idInterview` = `reminder`.`idInterview` "
+                        + "AND `interview`.`dateTime` = `reminder`.`interviewTime` " + candidate
+                        + "WHERE `reminder`.`state` = ? AND `reminder`.`fireTime` > ? AND `reminder`.`fireTime` < ? "
+                        + "AND `interview`.`dateTime` <= ?" + condition
+                        + " ORDER BY 4",
+                (columnNames, row) -> {
+                    long interviewTime = Long.parseLong(row[3]);
+                    long fireTime = row[4] == null ? interviewTime - leadMillis : Long.parseLong(row[4]);
+                    return new Alarm(Integer.parseInt(row[0]), row[1] == null ? "" : row[1], row[2], interviewTime,
+                            new Date(fireTime), row[5] == null ? 0 : Integer.parseInt(row[5]), false);
+                },
+                values.toArray(new String[values.size()])).getResults();
+    }
+
+    /**
+     * Метод, сохраняющий состояния напоминаний одной транзакцией (см. ReminderStore)
+     * @param reminders состояния напоминаний
+     * @throws SQLException
+     */
+    public void saveReminders(Collection<Reminder> reminders) throws SQLException {
+        callInTransaction(() -> {
+            for (Reminder reminder : reminders) {
+                reminderDao.createOrUpdate(reminder);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Метод, получающий сохраненное состояние напоминания
+     * @param idInterview id собеседования
+     * @return Reminder состояние или null, если его нет
+     * @throws SQLException
+     */
+    public Reminder getReminder(int idInterview) throws SQLException {
+        return reminderDao.queryForId(idInterview);
+    }
+
+    /**
+     * Начало дня в миллисекундах от начала эпохи
+     * @param day день
+     * @return long миллисекунды
+     */
+    private static long startOf(LocalDate day) {
+        return DateTimeUtil.toEpochMillis(day.atStartOfDay());
     }
 
     /**
@@ -103,7 +553,7 @@ public class DatabaseHelper {
         interviewQueryBuilder.where().like("Post","%" + post + "%");
         PreparedQuery<Interview> preparedQuery = interviewQueryBuilder.prepare();
         List<Interview> interviews = interviewDao.query(preparedQuery);
-        return interviews;
+        return fetch(interviews, FetchPlan.LIST);
     }
 
     /**
@@ -114,11 +564,15 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Mark getMarkByInterviewAndCategory(int idInterview,String categoryName)throws SQLException{
-        List<Mark> marks = getInterviewMarks(idInterview);
-        for(Mark mark: marks)
+        Category category = getCategoryByName(categoryName);
+        if(category != null)
         {
-            if(mark.getIdCategory().getName().equals(categoryName))
+            QueryBuilder<Mark, Integer> markQueryBuilder = markDao.queryBuilder();
+            markQueryBuilder.where().eq("idInterview", idInterview).and().eq("idCategory", category.getIdCategory());
+            Mark mark = markDao.queryForFirst(markQueryBuilder.prepare());
+            if(mark != null)
             {
+                mark.setIdCategory(category);
                 return mark;
             }
         }
@@ -133,18 +587,43 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Candidate getCandidateByFio(String fio)throws SQLException{
-        List<Candidate> candidates = candidateDao.queryForAll();
-        for(Candidate candidate: candidates)
-        {
-            if(candidate.getFio().equals(fio))
-            {
-                return candidate;
-            }
-        }
+        QueryBuilder<Candidate, Integer> candidateQueryBuilder = candidateDao.queryBuilder();
+        candidateQueryBuilder.where().eq("fioKey", new SelectArg(KeyUtil.normalize(fio)));
+        Candidate candidate = candidateDao.queryForFirst(candidateQueryBuilder.prepare());
+        if(candidate != null)
+            return candidate;
         // TODO: 07.07.2016 Костыль создания новых пользователей
         return addCandidate(fio, "01.02.1975", "-");
     }
 
+    /**
+     * Метод, получающий из БД кандидата по ФИО и дате рождения (поиск по индексу)
+     * @param fio ФИО кандидата
+     * @param bornDate дата рождения
+     * @return Candidate найденный кандидат или null
+     * @throws SQLException
+     */
+    public Candidate getCandidateByFioAndBornDate(String fio, String bornDate) throws SQLException {
+        QueryBuilder<Candidate, Integer> candidateQueryBuilder = candidateDao.queryBuilder();
+        candidateQueryBuilder.where().eq("fioKey", new SelectArg(KeyUtil.normalize(fio)))
+                .and().eq("bornDate", new SelectArg(bornDate));
+        return candidateDao.queryForFirst(candidateQueryBuilder.prepare());
+    }
+
+    /**
+     * Метод, получающий из БД кандидата по ФИО и дате рождения или создающий нового (если не найден)
+     * @param fio ФИО кандидата
+     * @param bornDate дата рождения
+     * @return Candidate найденный или новый кандидат
+     * @throws SQLException
+     */
+    public Candidate getOrAddCandidate(String fio, String bornDate) throws SQLException {
+        Candidate candidate = getCandidateByFioAndBornDate(fio, bornDate);
+        if(candidate == null)
+            candidate = addCandidate(fio, bornDate, "-");
+        return candidate;
+    }
+
     /**
      *  Метод, получающий из БД рекрутера по ФИО или создающий нового (если не найден)
      * @param fio ФИО для поиска
@@ -153,14 +632,11 @@ public class DatabaseHelper {
      */
     public Interviewer getInterviewerByFio(String fio) throws SQLException{
         //если не нашел, то создаст нового
-        List<Interviewer> interviewers = interviewerDao.queryForAll();
-        for(Interviewer interviewer: interviewers)
-        {
-            if(interviewer.getFio().equals(fio))
-            {
-                return interviewer;
-            }
-        }
+        QueryBuilder<Interviewer, Integer> interviewerQueryBuilder = interviewerDao.queryBuilder();
+        interviewerQueryBuilder.where().eq("fioKey", new SelectArg(KeyUtil.normalize(fio)));
+        Interviewer interviewer = interviewerDao.queryForFirst(interviewerQueryBuilder.prepare());
+        if(interviewer != null)
+            return interviewer;
         return addInterviewer(fio);
     }
 
@@ -171,16 +647,13 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Category getCategoryByName(String name) throws SQLException{
-        //если не нашел, то создаст нового
-        List<Category> categoryes = categoryDao.queryForAll();
-        for(Category category: categoryes)
-        {
-            if(category.getName().equals(name))
-            {
-                return category;
-            }
+        if (!isInTransaction()) {
+            checkSharedChanges();
+            return categoryCache.getByName(name);
         }
-        return null;
+        QueryBuilder<Category, Integer> categoryQueryBuilder = categoryDao.queryBuilder();
+        categoryQueryBuilder.where().eq("nameKey", new SelectArg(KeyUtil.normalize(name)));
+        return categoryDao.queryForFirst(categoryQueryBuilder.prepare());
     }
     //Получить по Id
 
@@ -191,15 +664,9 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public InterviewComment getInterviewCommentByIdInterview(int id)throws SQLException{
-        List<InterviewComment> interviewComments = interviewCommentDao.queryForAll();
-        for(InterviewComment ic: interviewComments)
-        {
-            if(ic.getIdInterview().getIdInterview() == id)
-            {
-                return ic;
-            }
-        }
-        return null;
+        QueryBuilder<InterviewComment, Integer> query = interviewCommentDao.queryBuilder();
+        query.where().eq("idInterview", id);
+        return interviewCommentDao.queryForFirst(query.prepare());
     }
 
     /**
@@ -209,40 +676,187 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public List<CategoryRow> getInterviewMarksAll(int idInterview)throws SQLException  {
-        List<Category> categories = getCategories();
-        List<Mark> marks = getInterviewMarks(idInterview);
+        return mergeMarks(getCategories(), getInterviewMarks(idInterview));
+        // TODO: 06.07.2016 отсортировать лексикографически
+    }
+
+    /**
+     * Метод, получающий из БД интервью со всеми данными для диалога редактирования:
+     * кандидатом, рекрутером, оценками по всем критериям и комментарием.
+     * Выполняет фиксированное число запросов по индексам, не зависящее от размера БД
+     * @param idInterview айди интервью
+     * @return InterviewDetail интервью с данными или null, если интервью нет
+     * @throws SQLException
+     */
+    public InterviewDetail getInterviewDetail(int idInterview) throws SQLException {
+        // интервью, кандидат и рекрутер одним запросом по первичному ключу
+        Interview interview = interviewDao.queryRaw(
+                "SELECT i.`idInterview`, i.`date`, i.`time`, i.`result`, i.`post`, "
+                        + "c.`idCandidate`, c.`fio`, c.`bornDate`, c.`banned`, r.`idInterviewer`, r.`fio` "
+                        + "FROM `interview` i "
+                        + "JOIN `candidate` c ON c.`idCandidate` = i.`idCandidate` "
+                        + "JOIN `interviewer` r ON r.`idInterviewer` = i.`idInterviewer` "
+                        + "WHERE i.`idInterview` = ?",
+                (columnNames, row) -> {
+                    Interview result = new Interview();
+                    result.setIdInterview(Integer.parseInt(row[0]));
+                    result.setDate(row[1]);
+                    result.setTime(row[2]);
+                    result.setResult(row[3]);
+                    result.setPost(row[4]);
+                    Candidate candidate = new Candidate();
+                    candidate.setIdCandidate(Integer.parseInt(row[5]));
+                    candidate.setFio(row[6]);
+                    candidate.setBornDate(row[7]);
+                    candidate.setBanned(row[8]);
+                    result.setIdCandidate(candidate);
+                    Interviewer interviewer = new Interviewer();
+                    interviewer.setIdInterviewer(Integer.parseInt(row[9]));
+                    interviewer.setFio(row[10]);
+                    result.setIdInterviewer(interviewer);
+                    return result;
+                },
+                String.valueOf(idInterview)).getFirstResult();
+        if (interview == null)
+            return null;
+        List<CategoryRow> marks = mergeMarks(getCategories(), getInterviewMarks(idInterview));
+        InterviewComment comment = getInterviewCommentByIdInterview(idInterview);
+        if (comment == null) {
+            // пустой комментарий не сохраняем, он запишется вместе с интервью
+            comment = new InterviewComment();
+            comment.setIdInterview(interview);
+        }
+        return new InterviewDetail(interview, marks, comment);
+    }
+
+    /**
+     * Метод, сопоставляющий оценки интервью со всеми критериями
+     * @param categories все критерии
+     * @param marks оценки интервью
+     * @return List<CategoryRow> критерий и оценка (0, если оценки нет)
+     */
+    private List<CategoryRow> mergeMarks(List<Category> categories, List<Mark> marks) {
+        Map<Integer, Double> values = new HashMap<>();
+        for(Mark mark:marks)
+        {
+            values.put(mark.getIdCategory().getIdCategory(), mark.getValue());
+        }
         List<CategoryRow> categoryRows = new ArrayList<CategoryRow>();
         for(Category cat:categories) {
-            CategoryRow categoryRow = new CategoryRow(cat, 0.0);
-            for(Mark mark:marks)
-            {
-                if(mark.getIdCategory().getIdCategory() == cat.getIdCategory())
-                {
-                    categoryRow.setValue(mark.getValue());
-                }
-            }
-            categoryRows.add(categoryRow);
+            Double value = values.get(cat.getIdCategory());
+            categoryRows.add(new CategoryRow(cat, value == null ? 0.0 : value));
         }
         return categoryRows;
-        // TODO: 06.07.2016 отсортировать лексикографически
     }
 
     /**
-     * Метод получающий из БД интервью по id
+     * Метод получающий из БД интервью по id (с кандидатом и рекрутером)
      * @param id то самое id
      * @return Interview нужное интервью или null
      * @throws SQLException
      */
     public Interview getInterviewById(int id) throws SQLException {
+        return getInterviewById(id, FetchPlan.LIST);
+    }
+
+    /**
+     * Метод получающий из БД интервью по id
+     * @param id то самое id
+     * @param plan загружаемые связи интервью
+     * @return Interview нужное интервью или null
+     * @throws SQLException
+     */
+    public Interview getInterviewById(int id, FetchPlan plan) throws SQLException {
         QueryBuilder<Interview, Integer> interviewQueryBuilder = interviewDao.queryBuilder();
         interviewQueryBuilder.where().eq("idInterview", id);
         PreparedQuery<Interview> preparedQuery = interviewQueryBuilder.prepare();
-        List<Interview> interviews = interviewDao.query(preparedQuery);
+        List<Interview> interviews = fetch(interviewDao.query(preparedQuery), plan);
         if(interviews.size() == 0)
             return null;
         return interviews.get(0);
     }
 
+    /**
+     * Метод, загружающий связи списка интервью по плану. Каждая связь загружается одним запросом
+     * на весь список (IN по id, частями не больше MAX_IN_ARGS), критерии оценок - одним запросом всех критериев
+     * @param interviews интервью, загруженные без связей
+     * @param plan загружаемые связи
+     * @return List<Interview> тот же список интервью
+     * @throws SQLException
+     */
+    public List<Interview> fetch(List<Interview> interviews, FetchPlan plan) throws SQLException {
+        if (interviews.isEmpty())
+            return interviews;
+        if (plan.includes(FetchPlan.Association.CANDIDATE)) {
+            Set<Integer> ids = new HashSet<>();
+            for (Interview interview : interviews)
+                ids.add(interview.getIdCandidate().getIdCandidate());
+            Map<Integer, Candidate> candidates = new HashMap<>();
+            for (Candidate candidate : queryIn(candidateDao, "idCandidate", ids))
+                candidates.put(candidate.getIdCandidate(), candidate);
+            for (Interview interview : interviews) {
+                Candidate candidate = candidates.get(interview.getIdCandidate().getIdCandidate());
+                if (candidate != null)
+                    interview.setIdCandidate(candidate);
+            }
+        }
+        if (plan.includes(FetchPlan.Association.INTERVIEWER)) {
+            Set<Integer> ids = new HashSet<>();
+            for (Interview interview : interviews)
+                ids.add(interview.getIdInterviewer().getIdInterviewer());
+            Map<Integer, Interviewer> interviewers = new HashMap<>();
+            for (Interviewer interviewer : queryIn(interviewerDao, "idInterviewer", ids))
+                interviewers.put(interviewer.getIdInterviewer(), interviewer);
+            for (Interview interview : interviews) {
+                Interviewer interviewer = interviewers.get(interview.getIdInterviewer().getIdInterviewer());
+                if (interviewer != null)
+                    interview.setIdInterviewer(interviewer);
+            }
+        }
+        if (plan.includes(FetchPlan.Association.MARKS)) {
+            Map<Integer, Interview> byId = new HashMap<>();
+            for (Interview interview : interviews) {
+                interview.setMarks(new ArrayList<>());
+                byId.put(interview.getIdInterview(), interview);
+            }
+            Map<Integer, Category> categories = new HashMap<>();
+            for (Category category : getCategories())
+                categories.put(category.getIdCategory(), category);
+            for (Mark mark : queryIn(markDao, "idInterview", byId.keySet())) {
+                Interview interview = byId.get(mark.getIdInterview().getIdInterview());
+                Category category = categories.get(mark.getIdCategory().getIdCategory());
+                if (category != null)
+                    mark.setIdCategory(category);
+                mark.setIdInterview(interview);
+                interview.getMarks().add(mark);
+            }
+        }
+        return interviews;
+    }
+
+    /**
+     * Метод, выбирающий записи по списку значений колонки (частями, чтобы не превысить лимит параметров SQLite)
+     * @param dao dao таблицы
+     * @param column колонка
+     * @param values значения
+     * @return List<T> найденные записи
+     * @throws SQLException
+     */
+    private <T> List<T> queryIn(Dao<T, Integer> dao, String column, Collection<Integer> values) throws SQLException {
+        List<T> result = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>();
+        for (Integer value : values) {
+            chunk.add(value);
+            if (chunk.size() == MAX_IN_ARGS) {
+                result.addAll(dao.query(dao.queryBuilder().where().in(column, chunk).prepare()));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            result.addAll(dao.query(dao.queryBuilder().where().in(column, chunk).prepare()));
+        return result;
+    }
+
     /**
      * Метод получающий из БД кандидата по id или создающий нового (если не найден)
      * @param id тот самый id
@@ -266,6 +880,10 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Category getCategoryById(int id) throws SQLException {
+        if (!isInTransaction()) {
+            checkSharedChanges();
+            return categoryCache.getById(id);
+        }
         QueryBuilder<Category, Integer> query = categoryDao.queryBuilder();
         query.where().idEq(id);
         PreparedQuery<Category> preparedQuery = query.prepare();
@@ -327,14 +945,319 @@ public class DatabaseHelper {
     }
 
     /**
-     * Метод, получающий все критерии из БД
+     * Метод, получающий все критерии (из кэша; внутри транзакции - из БД, чтобы видеть ее изменения)
      * @return List<Category>  список критериев
      * @throws SQLException
      */
     public List<Category> getCategories() throws SQLException {
+        if (!isInTransaction()) {
+            checkSharedChanges();
+            return categoryCache.getAll();
+        }
         return categoryDao.queryForAll();
     }
 
+    /**
+     * Метод, возвращающий статистику кэша критериев
+     * @return CacheStatistics количество критериев в кэше, попадания и промахи
+     */
+    public CacheStatistics getCategoryCacheStatistics() {
+        return categoryCache.getStatistics();
+    }
+
+    /**
+     * Метод, возвращающий подсказки кандидатов, ФИО которых начинается с введенного текста
+     * (с начала фамилии, имени или отчества, без учета регистра)
+     * @param text введенный текст
+     * @param limit максимальное количество подсказок
+     * @return List<Candidate> подсказки в алфавитном порядке
+     * @throws SQLException
+     */
+    public List<Candidate> getCandidateSuggestions(String text, int limit) throws SQLException {
+        checkSharedChanges();
+        if (!candidateIndex.isLoaded()) {
+            synchronized (candidateIndex) {
+                if (!candidateIndex.isLoaded())
+                    candidateIndex.load(getCandidates());
+            }
+        }
+        return candidateIndex.find(text, limit);
+    }
+
+    /**
+     * Метод, возвращающий подсказки рекрутеров, ФИО которых начинается с введенного текста
+     * @param text введенный текст
+     * @param limit максимальное количество подсказок
+     * @return List<Interviewer> подсказки в алфавитном порядке
+     * @throws SQLException
+     */
+    public List<Interviewer> getInterviewerSuggestions(String text, int limit) throws SQLException {
+        checkSharedChanges();
+        if (!interviewerIndex.isLoaded()) {
+            synchronized (interviewerIndex) {
+                if (!interviewerIndex.isLoaded())
+                    interviewerIndex.load(getInterviewers());
+            }
+        }
+        return interviewerIndex.find(text, limit);
+    }
+
+    /**
+     * Метод, выгружающий все интервью с кандидатом, рекрутером, комментарием и оценками в файл CSV или JSON Lines.
+     * Выгрузка идет одним курсором без загрузки интервью и оценок в память
+     * @param file файл выгрузки (перезаписывается)
+     * @param format формат выгрузки
+     * @param listener получатель сведений о ходе выгрузки (вызывается в потоке выгрузки) или null
+     * @return ExportStatistics количество интервью, размер файла и скорость выгрузки
+     * @throws SQLException
+     * @throws IOException
+     */
+    public ExportStatistics exportInterviews(Path file, InterviewExporter.Format format,
+                                             InterviewExporter.ProgressListener listener) throws SQLException, IOException {
+        return new InterviewExporter(connectionSource).export(file, format, AppConfig.EXPORT_PROGRESS_INTERVAL, listener);
+    }
+
+    /**
+     * Метод, загружающий интервью из файла CSV или JSON Lines в формате выгрузки (см. exportInterviews).
+     * Строки проверяются параллельно и записываются транзакциями по IMPORT_BATCH_SIZE строк,
+     * строки с ошибками записываются в файл отклоненных строк
+     * @param file файл загрузки
+     * @param format формат файла
+     * @param rejectFile файл отклоненных строк (перезаписывается) или null
+     * @param listener получатель сведений о ходе загрузки (вызывается в потоке загрузки) или null
+     * @return ImportStatistics количество прочитанных, загруженных и отклоненных строк и скорость загрузки
+     * @throws SQLException
+     * @throws IOException
+     */
+    public ImportStatistics importInterviews(Path file, InterviewExporter.Format format, Path rejectFile,
+                                             InterviewImporter.ProgressListener listener) throws SQLException, IOException {
+        try {
+            return new InterviewImporter(connectionSource, searchIndex, changeLog).importFile(file, format, rejectFile,
+                    AppConfig.IMPORT_BATCH_SIZE, listener);
+        } finally {
+            // записи добавлены в обход методов helper'а, поэтому кэши и индексы подсказок строятся заново
+            categoryCache.invalidate();
+            filterCache.invalidate();
+            candidateIndex.reset();
+            interviewerIndex.reset();
+            fireInterviewsReloaded();
+        }
+    }
+
+    /**
+     * Метод, создающий новое поколение резервной копии БД (старые поколения сверх BACKUP_GENERATIONS удаляются).
+     * Копия снимается без остановки работы с БД и проверяется на целостность
+     * @param directory каталог резервных копий
+     * @return Path файл копии
+     * @throws SQLException
+     * @throws IOException
+     */
+    public Path backup(Path directory) throws SQLException, IOException {
+        return new BackupManager(connectionSource).backup(directory, AppConfig.BACKUP_GENERATIONS);
+    }
+
+    /**
+     * Метод, проверяющий, снимает ли резервные копии БД приложение (копии серверной БД снимаются на сервере)
+     * @return boolean true, если backup и restore поддерживаются
+     */
+    public boolean isBackupSupported() {
+        return connectionSource.getDialect().isOnlineBackupSupported();
+    }
+
+    /**
+     * Метод, снимающий резервную копию БД в указанный файл
+     * @param file файл копии (перезаписывается)
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void backupTo(Path file) throws SQLException, IOException {
+        new BackupManager(connectionSource).backupTo(file);
+    }
+
+    /**
+     * Метод, восстанавливающий БД из резервной копии (копия и восстановленная БД проверяются на целостность).
+     * Копия прежней версии приложения обновляется до текущей схемы
+     * @param file файл копии
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void restore(Path file) throws SQLException, IOException {
+        try {
+            new BackupManager(connectionSource).restore(file);
+            // копия могла быть снята прежней версией приложения: схема, ключи и индексы доводятся до текущих,
+            // как при открытии БД
+            DBUtil.createDbIfNotExist(connectionSource);
+            searchIndex.initialize();
+            // журнал копии короче уже переданного другим БД, поэтому БД продолжает его под новой репликой
+            changeLog.initialize();
+            changeLog.resetReplica();
+        } finally {
+            // данные заменены целиком, поэтому кэши и индексы подсказок строятся заново
+            categoryCache.invalidate();
+            filterCache.invalidate();
+            candidateIndex.reset();
+            interviewerIndex.reset();
+            fireInterviewsReloaded();
+        }
+    }
+
+    /**
+     * Метод, синхронизирующий эту БД с другим файлом БД: изменения, внесенные в каждую из них после прошлой
+     * синхронизации, передаются в другую (см. SyncEngine). Конфликтующие изменения одной записи
+     * разрешаются в пользу более позднего по логическим часам
+     * @param databaseFile файл другой БД
+     * @return SyncStatistics количество полученных, переданных и пропущенных изменений
+     * @throws SQLException
+     */
+    public SyncStatistics syncWith(Path databaseFile) throws SQLException {
+        DatabaseHelper other = new DatabaseHelper(AppConfig.DATABASE_PREFIX + databaseFile.toAbsolutePath());
+        try {
+            return syncWith(other);
+        } finally {
+            other.close();
+        }
+    }
+
+    /**
+     * Метод, синхронизирующий эту БД с другой открытой БД
+     * @param other другая БД
+     * @return SyncStatistics количество полученных, переданных и пропущенных изменений
+     * @throws SQLException
+     */
+    public SyncStatistics syncWith(DatabaseHelper other) throws SQLException {
+        return new SyncEngine(AppConfig.SYNC_BATCH_SIZE).sync(this, other);
+    }
+
+    ChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    /**
+     * Применяет одной транзакцией изменения, полученные из журнала другой БД (см. SyncEngine).
+     * Строка записывается, если ее версия новее версии в этой БД и все строки, на которые она ссылается, есть в этой БД.
+     * Добавления и изменения применяются от главных таблиц к зависимым, удаления - в обратном порядке
+     * @param sourceReplica реплика другой БД
+     * @param seq seq последней прочитанной записи журнала другой БД
+     * @param changes текущие версии измененных строк по таблицам
+     * @return int количество примененных изменений
+     * @throws SQLException
+     */
+    int applyChanges(String sourceReplica, long seq, Map<ChangeLog.Table, List<ChangeLog.RowChange>> changes) throws SQLException {
+        try {
+            return callInTransaction(() -> {
+                long clock = 0;
+                for (List<ChangeLog.RowChange> rows : changes.values()) {
+                    for (ChangeLog.RowChange row : rows) {
+                        clock = Math.max(clock, row.clock);
+                    }
+                }
+                changeLog.receive(clock);
+                int applied = 0;
+                // интервью и кандидаты, строки полнотекстового индекса которых нужно обновить
+                Set<Integer> interviews = new HashSet<>();
+                Set<Integer> candidates = new HashSet<>();
+                Map<ChangeLog.Table, Map<String, ChangeLog.RowChange>> versions = new HashMap<>();
+                for (ChangeLog.Table table : ChangeLog.TABLES) {
+                    List<ChangeLog.RowChange> rows = changes.get(table);
+                    if (rows == null || rows.isEmpty())
+                        continue;
+                    Set<String> uids = new HashSet<>();
+                    List<Set<String>> referenceUids = new ArrayList<>();
+                    for (int i = 0; i < table.references.length; i++) {
+                        referenceUids.add(new HashSet<>());
+                    }
+                    for (ChangeLog.RowChange row : rows) {
+                        uids.add(row.uid);
+                        for (int i = 0; i < table.references.length && !row.deleted; i++) {
+                            if (row.references[i] != null)
+                                referenceUids.get(i).add(row.references[i]);
+                        }
+                    }
+                    Map<String, ChangeLog.RowChange> local = changeLog.findVersions(table.name, uids);
+                    versions.put(table, local);
+                    List<Map<String, ChangeLog.RowChange>> referenced = new ArrayList<>();
+                    for (int i = 0; i < table.references.length; i++) {
+                        referenced.add(changeLog.findVersions(table.referencedTables[i], referenceUids.get(i)));
+                    }
+                    for (ChangeLog.RowChange row : rows) {
+                        ChangeLog.RowChange current = local.get(row.uid);
+                        if (row.deleted || (current != null && !row.isNewerThan(current)))
+                            continue;
+                        int[] referenceIds = new int[table.references.length];
+                        boolean resolved = true;
+                        for (int i = 0; i < referenceIds.length && resolved; i++) {
+                            ChangeLog.RowChange reference = row.references[i] == null ? null : referenced.get(i).get(row.references[i]);
+                            resolved = reference != null && !reference.deleted && reference.localId != null;
+                            if (resolved)
+                                referenceIds[i] = reference.localId;
+                        }
+                        // строка ссылается на удаленную в этой БД строку - изменение пропускается
+                        if (!resolved)
+                            continue;
+                        int id = changeLog.writeRow(table, row, current == null || current.deleted ? null : current.localId, referenceIds);
+                        changeLog.apply(table.name, row, id);
+                        applied++;
+                        if (table.name.equals("candidate") && current != null)
+                            candidates.add(id);
+                        else if (table.name.equals("interview"))
+                            interviews.add(id);
+                        else if (table.name.equals("interviewcomment"))
+                            interviews.add(referenceIds[0]);
+                    }
+                }
+                for (int t = ChangeLog.TABLES.size() - 1; t >= 0; t--) {
+                    ChangeLog.Table table = ChangeLog.TABLES.get(t);
+                    Map<String, ChangeLog.RowChange> local = versions.get(table);
+                    if (local == null)
+                        continue;
+                    for (ChangeLog.RowChange row : changes.get(table)) {
+                        ChangeLog.RowChange current = local.get(row.uid);
+                        if (!row.deleted || (current != null && !row.isNewerThan(current)))
+                            continue;
+                        // удаление записывается с полученной версией, зависимые строки удаляются как изменения этой БД
+                        changeLog.apply(table.name, row, current == null ? null : current.localId);
+                        if (current != null && !current.deleted && current.localId != null)
+                            deleteRow(table.name, current.localId);
+                        applied++;
+                    }
+                }
+                for (int id : candidates) {
+                    searchIndex.indexCandidate(id);
+                }
+                for (int id : interviews) {
+                    searchIndex.index(id);
+                }
+                interviewsChanged(interviews, false);
+                changeLog.setWatermark(sourceReplica, seq);
+                categoriesChanged();
+                dataChanged();
+                return applied;
+            });
+        } finally {
+            // строки изменены в обход методов helper'а, поэтому индексы подсказок строятся заново
+            candidateIndex.reset();
+            interviewerIndex.reset();
+        }
+    }
+
+    /**
+     * Удаляет строку синхронизируемой таблицы вместе с зависимыми строками
+     * (как delInterviewById и delCategoryById)
+     * @param table таблица
+     * @param id id строки
+     * @throws SQLException
+     */
+    private void deleteRow(String table, int id) throws SQLException {
+        List<Integer> ids = Collections.singletonList(id);
+        if (table.equals("interview")) {
+            delInterviews(ids);
+            return;
+        }
+        if (table.equals("category"))
+            deleteIn("mark", "idCategory", ids);
+        deleteIn(table, ChangeLog.table(table).idColumn, ids);
+    }
+
     /**
      * Метод, получающий всех кандидатов из БД
      * @return List<Candidate> список кандидатов
@@ -345,12 +1268,59 @@ public class DatabaseHelper {
     }
 
     /**
-     *  Метод, получающий все интервью из БД
+     * Метод, получающий страницу интервью (от новых к старым) по курсору (dateTime, id) последней
+     * загруженной записи. Каждая страница читается по индексу dateTime, без OFFSET
+     * @param afterDateTime dateTime последнего интервью предыдущей страницы (null - первая страница)
+     * @param afterId id последнего интервью предыдущей страницы
+     * @param pageSize размер страницы
+     * @return List<Interview> интервью страницы
+     * @throws SQLException
+     */
+    public List<Interview> getInterviewPage(Long afterDateTime, int afterId, int pageSize) throws SQLException {
+        return getInterviewPage(afterDateTime, afterId, pageSize, FetchPlan.LIST);
+    }
+
+    /**
+     * Метод, получающий страницу интервью по курсору (dateTime, id) с заданными связями
+     * @param afterDateTime dateTime последнего интервью предыдущей страницы (null - первая страница)
+     * @param afterId id последнего интервью предыдущей страницы
+     * @param pageSize размер страницы
+     * @param plan загружаемые связи интервью
+     * @return List<Interview> интервью страницы
+     * @throws SQLException
+     */
+    public List<Interview> getInterviewPage(Long afterDateTime, int afterId, int pageSize, FetchPlan plan) throws SQLException {
+        QueryBuilder<Interview, Integer> interviewQueryBuilder = interviewDao.queryBuilder();
+        if (afterDateTime != null) {
+            Where<Interview, Integer> where = interviewQueryBuilder.where();
+            // (dateTime, id) < (afterDateTime, afterId); формы or(n)/and(n) берут условия из стека без varargs
+            where.lt("dateTime", afterDateTime);
+            where.eq("dateTime", afterDateTime);
+            where.lt("idInterview", afterId);
+            where.and(2);
+            where.or(2);
+        }
+        interviewQueryBuilder.orderBy("dateTime", false).orderBy("idInterview", false).limit((long) pageSize);
+        return fetch(interviewDao.query(interviewQueryBuilder.prepare()), plan);
+    }
+
+    /**
+     *  Метод, получающий все интервью из БД с кандидатами и рекрутерами
      * @return  List<Interview> список кандидатов
      * @throws SQLException
      */
     public List<Interview> getInterview() throws SQLException{
-        return interviewDao.queryForAll();
+        return getInterview(FetchPlan.LIST);
+    }
+
+    /**
+     * Метод, получающий все интервью из БД
+     * @param plan загружаемые связи интервью
+     * @return List<Interview> список интервью
+     * @throws SQLException
+     */
+    public List<Interview> getInterview(FetchPlan plan) throws SQLException{
+        return fetch(interviewDao.queryForAll(), plan);
     }
 
     /**
@@ -390,18 +1360,22 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Interview addInterview(String name,String bornDate, String interviewer, String interviewDate, String result, String post,String time)  throws SQLException{
-        Interview interview = new Interview();
-        Candidate candidate = getCandidateByFio(name);
-        candidate.setBornDate(bornDate);
-        candidateDao.createOrUpdate(candidate);
-        interview.setIdCandidate(candidate);
-        interview.setIdInterviewer(getInterviewerByFio(interviewer));
-        interview.setDate(interviewDate);
-        interview.setResult(result);
-        interview.setPost(post);
-        interview.setTime(time);
-        interviewDao.create(interview);
-       return interview;
+        return callInTransaction(() -> {
+            Interview interview = new Interview();
+            Candidate candidate = getOrAddCandidate(name, bornDate);
+            interview.setIdCandidate(candidate);
+            interview.setIdInterviewer(getInterviewerByFio(interviewer));
+            interview.setDate(interviewDate);
+            interview.setResult(result);
+            interview.setPost(post);
+            interview.setTime(time);
+            interviewDao.create(interview);
+            changeLog.recordUpsert("interview", interview.getIdInterview());
+            searchIndex.index(interview.getIdInterview());
+            dataChanged();
+            interviewsChanged(Collections.singletonList(interview.getIdInterview()), false);
+            return interview;
+        });
     }
 
     /**
@@ -411,11 +1385,16 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Interviewer addInterviewer(String fio)  throws SQLException{
-        Interviewer interviewer = new Interviewer();
-        interviewer.setFio(fio);
-        // TODO: 05.07.2016 Что делать при неудачной вставке? Исключение или возвращать false?
-        interviewerDao.create(interviewer);
-        return interviewer;
+        return callInTransaction(() -> {
+            Interviewer interviewer = new Interviewer();
+            interviewer.setFio(fio);
+            // TODO: 05.07.2016 Что делать при неудачной вставке? Исключение или возвращать false?
+            interviewerDao.create(interviewer);
+            changeLog.recordUpsert("interviewer", interviewer.getIdInterviewer());
+            interviewerIndex.add(interviewer);
+            suggestionsChanged();
+            return interviewer;
+        });
     }
 
     /**
@@ -425,10 +1404,14 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Category addCategory(String name)  throws SQLException{
-        Category category = new Category();
-        category.setName(name);
-        categoryDao.create(category);
-        return category;
+        return callInTransaction(() -> {
+            Category category = new Category();
+            category.setName(name);
+            categoryDao.create(category);
+            changeLog.recordUpsert("category", category.getIdCategory());
+            categoriesChanged();
+            return category;
+        });
     }
 
     /**
@@ -442,11 +1425,20 @@ public class DatabaseHelper {
     public Mark addMark(int idCategory, int idInterview, double value)  throws SQLException{
         //Перед добавлением оценки, убедись, что создано интервью!
         Mark mark = new Mark();
-        mark.setIdCategory(getCategoryById(idCategory));
-        mark.setIdInterview(getInterviewById(idInterview));
+        // для внешних ключей достаточно id, читать критерий и интервью не нужно
+        Category category = new Category();
+        category.setIdCategory(idCategory);
+        Interview interview = new Interview();
+        interview.setIdInterview(idInterview);
+        mark.setIdCategory(category);
+        mark.setIdInterview(interview);
         mark.setValue(value);
-        markDao.create(mark);
-        return mark;
+        return callInTransaction(() -> {
+            markDao.create(mark);
+            changeLog.recordUpsert("mark", mark.getIdMark());
+            dataChanged();
+            return mark;
+        });
     }
 
     /**
@@ -460,17 +1452,22 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public InterviewComment addOrEditInterviewComment(int idInterview, String experience, String recommendations, String lastWork, String comment)throws SQLException{
-        InterviewComment iCom = getInterviewCommentByIdInterview(idInterview);
-        if (iCom == null) {
-            iCom = new InterviewComment();
-            iCom.setIdInterview(getInterviewById(idInterview));
-        }
-        iCom.setExperience(experience);
-        iCom.setRecommendations(recommendations);
-        iCom.setLastWork(lastWork);
-        iCom.setComment(comment);
-        interviewCommentDao.createOrUpdate(iCom);
-        return iCom;
+        return callInTransaction(() -> {
+            InterviewComment iCom = getInterviewCommentByIdInterview(idInterview);
+            if (iCom == null) {
+                iCom = new InterviewComment();
+                iCom.setIdInterview(getInterviewById(idInterview, FetchPlan.NONE));
+            }
+            iCom.setExperience(experience);
+            iCom.setRecommendations(recommendations);
+            iCom.setLastWork(lastWork);
+            iCom.setComment(comment);
+            interviewCommentDao.createOrUpdate(iCom);
+            changeLog.recordUpsert("interviewcomment", iCom.getIdIC());
+            searchIndex.index(idInterview);
+            dataChanged();
+            return iCom;
+        });
     }
 
     /**
@@ -482,47 +1479,119 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Candidate addCandidate(String fio, String date, String banned)  throws SQLException{
-        Candidate candidate = new Candidate();
-        candidate.setFio(fio);
-        candidate.setBornDate(date);
-        candidate.setBanned(banned);
-        candidateDao.create(candidate);
-        return candidate;
+        return callInTransaction(() -> {
+            Candidate candidate = new Candidate();
+            candidate.setFio(fio);
+            candidate.setBornDate(date);
+            candidate.setBanned(banned);
+            candidateDao.create(candidate);
+            changeLog.recordUpsert("candidate", candidate.getIdCandidate());
+            candidateIndex.add(candidate);
+            suggestionsChanged();
+            dataChanged();
+            return candidate;
+        });
     }
 
     /**
-     * Метод, удаляющий из БД критерий и все оценки по нему
+     * Метод, удаляющий из БД критерий и все оценки по нему.
+     * Оценки удаляются одним запросом по индексу idCategory, все изменения - одной транзакцией
      * @param id id критерия
      * @throws SQLException
      */
     public void delCategoryById(int id)  throws SQLException{
-        Category category = getCategoryById(id);
-        QueryBuilder<Mark, Integer> markIntegerQueryBuilder = markDao.queryBuilder();
-        markIntegerQueryBuilder.where().eq("idCategory", category);
-        PreparedQuery<Mark> preparedQuery = markIntegerQueryBuilder.prepare();
-        List<Mark> marks = markDao.query(preparedQuery);
-        markDao.delete(marks);
-        categoryDao.delete(category);
+        callInTransaction(() -> {
+            List<Integer> ids = Collections.singletonList(id);
+            deleteIn("mark", "idCategory", ids);
+            deleteIn("category", "idCategory", ids);
+            categoriesChanged();
+            dataChanged();
+            return null;
+        });
     }
 
     /**
-     * Метод, удаляющий интервью из БД, а также связанные с ним оценки и коментарий
+     * Метод, удаляющий интервью из БД, а также связанные с ним оценки и коментарий.
+     * Оценки и комментарий удаляются запросами по idInterview, без чтения, все изменения - одной транзакцией
      * @param id id интервью
      * @throws SQLException
      */
     public void delInterviewById(int id)  throws SQLException{
-        Interview interview = getInterviewById(id);
-        QueryBuilder<InterviewComment, Integer> query = interviewCommentDao.queryBuilder();
-        query.where().eq("idInterview", id);
-        PreparedQuery<InterviewComment> preparedQuery = query.prepare();
-        List<InterviewComment> interviewComment = interviewCommentDao.query(preparedQuery);
-        if(interviewComment.size() != 0){
-            interviewCommentDao.delete(interviewComment.get(0));
-        }
-        for(Mark mark:interview.getMarks()){
-            markDao.delete(mark);
+        List<Integer> ids = new ArrayList<>();
+        ids.add(id);
+        delInterviews(ids);
+    }
+
+    /**
+     * Метод, удаляющий все интервью, подходящие под фильтры главной таблицы (см. getInterviewRows),
+     * вместе с их оценками и комментариями. Интервью выбираются одним запросом по индексам,
+     * связанные записи удаляются запросами по спискам id, все изменения - одной транзакцией
+     * @param fio слова из ФИО кандидата
+     * @param post слова из должности
+     * @param date полная или частичная дата
+     * @param text слова из ФИО, должности или комментариев
+     * @return int количество удаленных интервью (0, если ни один фильтр не задан)
+     * @throws SQLException
+     */
+    public int delInterviewsByFilter(String fio, String post, String date, String text) throws SQLException {
+        List<String> args = new ArrayList<>();
+        String condition = filterCondition(fio, post, date, text, args);
+        // без фильтров удалялись бы все интервью
+        if (condition.isEmpty())
+            return 0;
+        return callInTransaction(() -> {
+            List<Integer> ids = new ArrayList<>();
+            for (String[] row : interviewDao.queryRaw("SELECT `interview`.`idInterview` FROM `interview` WHERE " + condition,
+                    args.toArray(new String[args.size()])).getResults()) {
+                ids.add(Integer.parseInt(row[0]));
+            }
+            delInterviews(ids);
+            return ids.size();
+        });
+    }
+
+    /**
+     * Удаляет интервью, их оценки, комментарии и строки полнотекстового индекса одной транзакцией
+     * @param ids id интервью
+     * @throws SQLException
+     */
+    private void delInterviews(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty())
+            return;
+        callInTransaction(() -> {
+            deleteIn("interviewcomment", "idInterview", ids);
+            deleteIn("mark", "idInterview", ids);
+            deleteIn("reminder", "idInterview", ids);
+            deleteIn(SearchIndex.TABLE, "docid", ids);
+            deleteIn("interview", "idInterview", ids);
+            dataChanged();
+            interviewsChanged(ids, true);
+            return null;
+        });
+    }
+
+    /**
+     * Удаляет строки таблицы по списку значений колонки (запросами по MAX_IN_ARGS значений).
+     * Удаление строк синхронизируемых таблиц записывается в журнал изменений
+     * @param table таблица
+     * @param column колонка
+     * @param values значения колонки
+     * @throws SQLException
+     */
+    private void deleteIn(String table, String column, List<Integer> values) throws SQLException {
+        for (int from = 0; from < values.size(); from += MAX_IN_ARGS) {
+            List<Integer> chunk = values.subList(from, Math.min(from + MAX_IN_ARGS, values.size()));
+            String[] args = new String[chunk.size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = String.valueOf(chunk.get(i));
+            }
+            String placeholders = String.join(", ", Collections.nCopies(args.length, "?"));
+            ChangeLog.Table logged = ChangeLog.table(table);
+            if (logged != null)
+                changeLog.recordDeletes(table, "SELECT `" + logged.idColumn + "` AS id FROM `" + table + "` WHERE `"
+                        + column + "` IN (" + placeholders + ")", args);
+            interviewDao.updateRaw("DELETE FROM `" + table + "` WHERE `" + column + "` IN (" + placeholders + ")", args);
         }
-        interviewDao.delete(interview);
     }
 
     /**
@@ -531,8 +1600,13 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public void delCandidateById(int id)  throws SQLException{
-        Candidate candidate = getCandidateById(id);
-        candidateDao.delete(candidate);
+        callInTransaction(() -> {
+            deleteIn("candidate", "idCandidate", Collections.singletonList(id));
+            candidateIndex.remove(id);
+            suggestionsChanged();
+            dataChanged();
+            return null;
+        });
     }
 
     /**
@@ -551,29 +1625,227 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public Interview editOrAddInterview(int idInterview,String interviewDate, int idCandidate, String candidateFio, String bornDate, int idInterviewer, String interviewerFio, String result, String post,String time, List<CategoryRow> marks) throws SQLException    {
-        Candidate candidate = getCandidateById(idCandidate);
-        candidate.setFio(candidateFio);
-        candidate.setBornDate(bornDate);
-        candidateDao.createOrUpdate(candidate);
+        return editOrAddInterview(idInterview, interviewDate, idCandidate, candidateFio, bornDate,
+                idInterviewer, interviewerFio, result, post, time, marks, null);
+    }
+
+    /**
+     * Метод, редактирующий или добавляющий новое интервью в БД с кандидатом, рекрутером, оценками и комментарием.
+     * Все изменения записываются одной транзакцией
+     * @param idInterview id интервью (если нет создастся новое)
+     * @param interviewDate дата проведения
+     * @param idCandidate id кандидата (если нет создастся новый кандидат )
+     * @param candidateFio ФИО кандидата
+     * @param bornDate дата рождения кандидатА
+     * @param idInterviewer id рекрутера (если нет создастся новый рекрутер )
+     * @param interviewerFio ФИО рекрутера
+     * @param result резальтат
+     * @param post дожность
+     * @param marks критерии с оценками
+     * @param comment комментарий к интервью (null - не менять)
+     * @return добавленное или измененное интервью
+     * @throws SQLException
+     */
+    public Interview editOrAddInterview(int idInterview,String interviewDate, int idCandidate, String candidateFio, String bornDate, int idInterviewer, String interviewerFio, String result, String post,String time, List<CategoryRow> marks, InterviewComment comment) throws SQLException {
+        return callInTransaction(() -> {
+            // новый кандидат ищется по ключу (ФИО + дата рождения), чтобы не плодить дубликаты
+            Candidate candidate = idCandidate == 0 ? getOrAddCandidate(candidateFio, bornDate) : getCandidateById(idCandidate);
+            boolean candidateRenamed = !candidateFio.equals(candidate.getFio());
+            if (candidateRenamed || !bornDate.equals(candidate.getBornDate())) {
+                candidate.setFio(candidateFio);
+                candidate.setBornDate(bornDate);
+                candidateDao.update(candidate);
+                changeLog.recordUpsert("candidate", candidate.getIdCandidate());
+                candidateIndex.add(candidate);
+                suggestionsChanged();
+            }
 
-        Interviewer interviewer  = getInterviewerById(idInterviewer);
-        if(interviewer.getFio().compareTo(interviewerFio) != 0)
-            interviewer = addInterviewer(interviewerFio);
+            Interviewer interviewer  = idInterviewer == 0 ? getInterviewerByFio(interviewerFio) : getInterviewerById(idInterviewer);
+            if(interviewer.getFio().compareTo(interviewerFio) != 0)
+                interviewer = getInterviewerByFio(interviewerFio);
 
-        Interview interview = getInterviewById(idInterview);
-        if(interview == null)
-        {
-            interview = new Interview();
+            // все поля интервью перезаписываются, поэтому читать его перед обновлением не нужно
+            Interview interview = new Interview();
+            interview.setIdInterview(idInterview);
+            interview.setDate(interviewDate);
+            interview.setIdInterviewer(interviewer);
+            interview.setIdCandidate(candidate);
+            interview.setResult(result);
+            interview.setPost(post);
+            interview.setTime(time);
+            if (idInterview == 0 || interviewDao.update(interview) == 0) {
+                interviewDao.create(interview);
+            }
+            changeLog.recordUpsert("interview", interview.getIdInterview());
+            editInterviewMarks(interview.getIdInterview(), marks);
+            if (comment != null) {
+                if (comment.getIdIC() == 0) {
+                    InterviewComment existing = getInterviewCommentByIdInterview(interview.getIdInterview());
+                    if (existing != null)
+                        comment.setIdIC(existing.getIdIC());
+                }
+                comment.setIdInterview(interview);
+                interviewCommentDao.createOrUpdate(comment);
+                changeLog.recordUpsert("interviewcomment", comment.getIdIC());
+            }
+            // ФИО кандидата есть в индексе всех его интервью
+            if (candidateRenamed)
+                searchIndex.indexCandidate(candidate.getIdCandidate());
+            else
+                searchIndex.index(interview.getIdInterview());
+            dataChanged();
+            interviewsChanged(Collections.singletonList(interview.getIdInterview()), false);
+            return interview;
+        });
+    }
+
+    /**
+     * Выполняет действия с БД в одной транзакции (при ошибке все изменения откатываются)
+     * @param callable действия с БД
+     * @return результат callable
+     * @throws SQLException
+     */
+    public <T> T callInTransaction(Callable<T> callable) throws SQLException {
+        boolean outermost = !isInTransaction();
+        boolean committed = false;
+        try {
+            T result = TransactionManager.callInTransaction(connectionSource, callable);
+            committed = true;
+            return result;
+        } finally {
+            if (outermost) {
+                // индексы подсказок изменяются сразу, после отката они перестраиваются по БД
+                if (!committed && suggestionsChangedInTransaction.get()) {
+                    candidateIndex.reset();
+                    interviewerIndex.reset();
+                }
+                suggestionsChangedInTransaction.remove();
+                // кэши, сброшенные в транзакции, сбрасываются еще раз после фиксации или отката
+                if (changedInTransaction.get()) {
+                    changedInTransaction.remove();
+                    categoryCache.invalidate();
+                    filterCache.invalidate();
+                }
+                // об изменениях интервью сообщается только после фиксации
+                Map<Integer, Boolean> interviews = interviewsChangedInTransaction.get();
+                interviewsChangedInTransaction.remove();
+                if (committed && !interviews.isEmpty())
+                    fireInterviewsChanged(interviews);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, выполняется ли текущий поток внутри транзакции
+     * @return boolean true, если у потока есть подключение транзакции
+     */
+    private boolean isInTransaction() {
+        return connectionSource.getSpecialConnection() != null;
+    }
+
+    /**
+     * Для общей БД сбрасывает кэши критериев и фильтров и индексы подсказок, если после прошлой проверки
+     * изменились часы журнала изменений (вызывается перед чтением из кэшей: другие рабочие места меняют
+     * данные в обход кэшей этого helper'а). Проверка - чтение одной строки
+     * @throws SQLException
+     */
+    private void checkSharedChanges() throws SQLException {
+        if (!shared)
+            return;
+        long clock = changeLog.getClock();
+        if (checkedClock.getAndSet(clock) != clock) {
+            categoryCache.invalidate();
+            filterCache.invalidate();
+            candidateIndex.reset();
+            interviewerIndex.reset();
+        }
+    }
+
+    /**
+     * Сбрасывает кэш критериев после их изменения
+     */
+    private void categoriesChanged() {
+        categoryCache.invalidate();
+        if (isInTransaction())
+            changedInTransaction.set(true);
+    }
+
+    /**
+     * Сбрасывает кэш результатов фильтров после изменения интервью, кандидатов, комментариев или оценок
+     */
+    private void dataChanged() {
+        filterCache.invalidate();
+        if (isInTransaction())
+            changedInTransaction.set(true);
+    }
+
+    /**
+     * Метод, добавляющий получателя событий изменения интервью
+     * @param listener получатель
+     */
+    public void addInterviewListener(InterviewListener listener) {
+        interviewListeners.add(listener);
+    }
+
+    public void removeInterviewListener(InterviewListener listener) {
+        interviewListeners.remove(listener);
+    }
+
+    /**
+     * Отмечает добавление, изменение или удаление интервью в текущей транзакции (вне транзакции - сразу сообщает)
+     * @param ids id интервью
+     * @param deleted true, если интервью удалены
+     */
+    private void interviewsChanged(Collection<Integer> ids, boolean deleted) {
+        Map<Integer, Boolean> interviews = interviewsChangedInTransaction.get();
+        for (Integer id : ids) {
+            interviews.put(id, deleted);
+        }
+        if (!isInTransaction()) {
+            interviewsChangedInTransaction.remove();
+            fireInterviewsChanged(interviews);
+        }
+    }
+
+    /**
+     * Сообщает получателям о добавленных, измененных и удаленных интервью
+     * @param interviews id интервью -> удалено
+     */
+    private void fireInterviewsChanged(Map<Integer, Boolean> interviews) {
+        List<Integer> saved = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        for (Map.Entry<Integer, Boolean> entry : interviews.entrySet()) {
+            (entry.getValue() ? deleted : saved).add(entry.getKey());
         }
-        interview.setDate(interviewDate);
-        interview.setIdInterviewer(interviewer);
-        interview.setIdCandidate(candidate);
-        interview.setResult(result);
-        interview.setPost(post);
-        interview.setTime(time);
-        interviewDao.createOrUpdate(interview);
-        editInterviewMarks(interview.getIdInterview(), marks);
-        return interview;
+        for (InterviewListener listener : interviewListeners) {
+            try {
+                if (!saved.isEmpty())
+                    listener.interviewsSaved(saved);
+                if (!deleted.isEmpty())
+                    listener.interviewsDeleted(deleted);
+            } catch (RuntimeException e) {
+                // изменения уже зафиксированы, ошибка получателя не должна выглядеть как ошибка записи
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void fireInterviewsReloaded() {
+        for (InterviewListener listener : interviewListeners) {
+            try {
+                listener.interviewsReloaded();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Отмечает изменение индексов подсказок в текущей транзакции
+     */
+    private void suggestionsChanged() {
+        if (isInTransaction())
+            suggestionsChangedInTransaction.set(true);
     }
 
     /**
@@ -595,12 +1867,69 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public void editInterviewMarks(int idInterview, List<CategoryRow> marks) throws SQLException{
-        for(CategoryRow cat:marks)
-        {
-            if(cat.getValue() != 0)
-            {
-                editMark(idInterview, cat.getCategory().getIdCategory(),  cat.getValue());
+        callInTransaction(() -> {
+            Map<Integer, Mark> existing = new HashMap<>();
+            for (Mark mark : getInterviewMarks(idInterview)) {
+                existing.put(mark.getIdCategory().getIdCategory(), mark);
             }
+            // записываются только изменившиеся оценки, нулевая оценка означает ее отсутствие
+            List<Object[]> inserts = new ArrayList<>();
+            List<Object[]> updates = new ArrayList<>();
+            List<Integer> deletes = new ArrayList<>();
+            List<String> changedCategories = new ArrayList<>();
+            for (CategoryRow cat : marks) {
+                int idCategory = cat.getCategory().getIdCategory();
+                double value = cat.getValue() == null ? 0 : cat.getValue();
+                Mark mark = existing.get(idCategory);
+                if (mark == null) {
+                    if (value != 0) {
+                        inserts.add(new Object[]{value, idCategory, idInterview});
+                        changedCategories.add(String.valueOf(idCategory));
+                    }
+                } else if (value == 0) {
+                    deletes.add(mark.getIdMark());
+                } else if (mark.getValue() != value) {
+                    updates.add(new Object[]{value, mark.getIdMark()});
+                    changedCategories.add(String.valueOf(idCategory));
+                }
+            }
+            executeBatch("INSERT INTO `mark` (`value`, `idCategory`, `idInterview`) VALUES (?, ?, ?)", inserts);
+            executeBatch("UPDATE `mark` SET `value` = ? WHERE `idMark` = ?", updates);
+            deleteIn("mark", "idMark", deletes);
+            if (!changedCategories.isEmpty()) {
+                List<String> args = new ArrayList<>();
+                args.add(String.valueOf(idInterview));
+                args.addAll(changedCategories);
+                changeLog.recordUpserts("mark", "SELECT `idMark` AS id FROM `mark` WHERE `idInterview` = ? AND `idCategory` IN ("
+                        + String.join(", ", Collections.nCopies(changedCategories.size(), "?")) + ")",
+                        args.toArray(new String[args.size()]));
+            }
+            dataChanged();
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет пакет однотипных изменений одним подготовленным выражением
+     * (внутри транзакции используется ее подключение)
+     * @param sql выражение с параметрами
+     * @param rows значения параметров для каждой строки пакета
+     * @throws SQLException
+     */
+    private void executeBatch(String sql, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty())
+            return;
+        DatabaseConnection connection = connectionSource.getReadWriteConnection();
+        try (PreparedStatement statement = BoundedConnectionSource.getJdbcConnection(connection).prepareStatement(sql)) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setObject(i + 1, row[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } finally {
+            connectionSource.releaseConnection(connection);
         }
     }
 
@@ -612,14 +1941,21 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public void editMark(int idInterview, int idCategory, double value)throws SQLException {
-        Mark mark = getMarkByInterviewAndCategory(idInterview, getCategoryById(idCategory).getName());
+        QueryBuilder<Mark, Integer> markQueryBuilder = markDao.queryBuilder();
+        markQueryBuilder.where().eq("idInterview", idInterview).and().eq("idCategory", idCategory);
+        Mark mark = markDao.queryForFirst(markQueryBuilder.prepare());
         if(mark == null)
         {
             addMark(idCategory,idInterview, value);
             return ;
         }
         mark.setValue(value);
-        markDao.createOrUpdate(mark);
+        callInTransaction(() -> {
+            markDao.createOrUpdate(mark);
+            changeLog.recordUpsert("mark", mark.getIdMark());
+            dataChanged();
+            return null;
+        });
     }
 
     /**
@@ -629,9 +1965,15 @@ public class DatabaseHelper {
      * @throws SQLException
      */
     public void editCategory(int id, String name)throws SQLException{
-        Category cat = getCategoryById(id);
+        // критерий из кэша не изменяем: читаем копию из БД
+        Category cat = categoryDao.queryForId(id);
         cat.setName(name);
-        categoryDao.createOrUpdate(cat);
+        callInTransaction(() -> {
+            categoryDao.createOrUpdate(cat);
+            changeLog.recordUpsert("category", id);
+            categoriesChanged();
+            return null;
+        });
     }
 
 
@@ -647,7 +1989,15 @@ public class DatabaseHelper {
         candidate.setFio(fio);
         candidate.setBornDate(date);
         candidate.setBanned(ban);
-        candidateDao.createOrUpdate(candidate);
+        callInTransaction(() -> {
+            candidateDao.createOrUpdate(candidate);
+            changeLog.recordUpsert("candidate", candidate.getIdCandidate());
+            candidateIndex.add(candidate);
+            suggestionsChanged();
+            searchIndex.indexCandidate(candidate.getIdCandidate());
+            dataChanged();
+            return null;
+        });
     }
 
 }
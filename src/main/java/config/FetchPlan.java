@@ -0,0 +1,70 @@
+package config;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * План загрузки интервью: какие связанные данные загружаются вместе со списком интервью.
+ * Внешние коллекции сущностей ленивые, а ссылки интервью на кандидата и рекрутера содержат только id,
+ * поэтому без плана связанные данные не читаются. Каждая связь плана загружается одним запросом
+ * на весь список, и количество запросов зависит от плана, а не от количества интервью
+ */
+public class FetchPlan {
+    /**
+     * Связи интервью, которые может загрузить план
+     */
+    public enum Association {
+        CANDIDATE,   // кандидат
+        INTERVIEWER, // рекрутер
+        MARKS        // оценки вместе с критериями
+    }
+
+    // только строки интервью
+    public static final FetchPlan NONE = new FetchPlan(EnumSet.noneOf(Association.class));
+    // интервью для таблиц и напоминаний: кандидат и рекрутер
+    public static final FetchPlan LIST = of(Association.CANDIDATE, Association.INTERVIEWER);
+    // все связи интервью
+    public static final FetchPlan FULL = new FetchPlan(EnumSet.allOf(Association.class));
+
+    private final Set<Association> associations;
+
+    private FetchPlan(EnumSet<Association> associations) {
+        this.associations = Collections.unmodifiableSet(associations);
+    }
+
+    /**
+     * Метод, создающий план из перечисленных связей
+     * @param associations загружаемые связи
+     * @return FetchPlan план
+     */
+    public static FetchPlan of(Association... associations) {
+        EnumSet<Association> set = EnumSet.noneOf(Association.class);
+        Collections.addAll(set, associations);
+        return new FetchPlan(set);
+    }
+
+    /**
+     * Метод, создающий план с дополнительной связью
+     * @param association добавляемая связь
+     * @return FetchPlan новый план
+     */
+    public FetchPlan with(Association association) {
+        EnumSet<Association> set = EnumSet.of(association);
+        set.addAll(associations);
+        return new FetchPlan(set);
+    }
+
+    public boolean includes(Association association) {
+        return associations.contains(association);
+    }
+
+    public Set<Association> getAssociations() {
+        return associations;
+    }
+
+    @Override
+    public String toString() {
+        return "FetchPlan" + associations;
+    }
+}
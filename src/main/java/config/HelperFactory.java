@@ -1,11 +1,107 @@
 package config;
 
 import java.sql.SQLException;
+import java.util.concurrent.Executor;
 
 public class HelperFactory {
-    private static DatabaseHelper databaseHelper;
+    private static volatile DatabaseHelper databaseHelper;
+    private static volatile AsyncDatabaseHelper asyncDatabaseHelper;
+    private static volatile ReminderStore reminderStore;
+    // исполнитель, в котором асинхронный DatabaseHelper возвращает результаты (по умолчанию - поток БД)
+    private static volatile Executor callbackExecutor = Runnable::run;
 
+    static {
+        // при завершении приложения (в т.ч. через System.exit из трея) закрываем подключения
+        Runtime.getRuntime().addShutdownHook(new Thread(HelperFactory::releaseHelper));
+    }
+
+    /**
+     * Возвращает общий для всего приложения DatabaseHelper (создается при первом обращении)
+     * @return DatabaseHelper
+     * @throws SQLException
+     */
     public static DatabaseHelper getHelper() throws SQLException {
-        return databaseHelper == null ? new DatabaseHelper() : databaseHelper;
+        DatabaseHelper helper = databaseHelper;
+        if (helper == null) {
+            synchronized (HelperFactory.class) {
+                helper = databaseHelper;
+                if (helper == null) {
+                    helper = new DatabaseHelper();
+                    databaseHelper = helper;
+                }
+            }
+        }
+        return helper;
+    }
+
+    /**
+     * Возвращает общий асинхронный DatabaseHelper (создается при первом обращении)
+     * @return AsyncDatabaseHelper
+     * @throws SQLException
+     */
+    public static AsyncDatabaseHelper getAsyncHelper() throws SQLException {
+        AsyncDatabaseHelper helper = asyncDatabaseHelper;
+        if (helper == null) {
+            synchronized (HelperFactory.class) {
+                helper = asyncDatabaseHelper;
+                if (helper == null) {
+                    helper = new AsyncDatabaseHelper(getHelper(), callbackExecutor,
+                            AppConfig.DATABASE_ASYNC_THREADS, AppConfig.DATABASE_ASYNC_QUEUE_CAPACITY);
+                    asyncDatabaseHelper = helper;
+                }
+            }
+        }
+        return helper;
+    }
+
+    /**
+     * Возвращает общее хранилище состояний напоминаний (создается при первом обращении)
+     * @return ReminderStore
+     * @throws SQLException
+     */
+    public static ReminderStore getReminderStore() throws SQLException {
+        ReminderStore store = reminderStore;
+        if (store == null) {
+            synchronized (HelperFactory.class) {
+                store = reminderStore;
+                if (store == null) {
+                    store = new ReminderStore(getHelper(), AppConfig.REMINDER_BATCH_SIZE, AppConfig.REMINDER_FLUSH_DELAY_MILLIS);
+                    reminderStore = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Задает исполнитель, в котором асинхронный DatabaseHelper возвращает результаты
+     * (вызывается до первого обращения к getAsyncHelper, в приложении - Platform::runLater)
+     * @param executor исполнитель
+     */
+    public static void setCallbackExecutor(Executor executor) {
+        callbackExecutor = executor;
+    }
+
+    /**
+     * Записывает отложенные состояния напоминаний, закрывает общий DatabaseHelper и все подключения пула
+     */
+    public static synchronized void releaseHelper() {
+        if (reminderStore != null) {
+            try {
+                reminderStore.close();
+            } catch (SQLException e) {
+                // приложение завершается, незаписанные состояния напоминаний теряются
+                e.printStackTrace();
+            }
+            reminderStore = null;
+        }
+        if (asyncDatabaseHelper != null) {
+            asyncDatabaseHelper.shutdown();
+            asyncDatabaseHelper = null;
+        }
+        if (databaseHelper != null) {
+            databaseHelper.close();
+            databaseHelper = null;
+        }
     }
 }
@@ -0,0 +1,273 @@
+package config;
+
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.dao.GenericRawResults;
+import com.j256.ormlite.support.ConnectionSource;
+import entity.Category;
+import entity.Interview;
+import model.ExportStatistics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковая выгрузка интервью с кандидатом, рекрутером, комментарием и оценками по критериям
+ * в CSV (оценки - по колонке на критерий) или JSON Lines (оценки - объект "критерий: оценка").
+ * Строки читаются одним курсором, упорядоченным по id интервью, и сразу пишутся в файл,
+ * поэтому расход памяти не зависит от количества интервью и оценок
+ */
+public class InterviewExporter {
+    /**
+     * Формат выгрузки
+     */
+    public enum Format {
+        CSV, JSONL
+    }
+
+    /**
+     * Получатель сведений о ходе выгрузки
+     */
+    public interface ProgressListener {
+        void onProgress(ExportStatistics statistics);
+    }
+
+    // колонки выгрузки (кроме оценок), по ним же разбирается загрузка (см. InterviewImporter)
+    static final String[] COLUMNS = {"idInterview", "date", "time", "post", "result", "candidate", "bornDate",
+            "interviewer", "experience", "recommendations", "lastWork", "comment"};
+    // строка интервью повторяется для каждой его оценки, две последние колонки - критерий и оценка
+    private static final String QUERY = "SELECT i.`idInterview`, i.`date`, i.`time`, i.`post`, i.`result`, "
+            + "c.`fio`, c.`bornDate`, iv.`fio`, "
+            + "ic.`experience`, ic.`recommendations`, ic.`lastWork`, ic.`comment`, "
+            + "m.`idCategory`, m.`value` "
+            + "FROM `interview` i "
+            + "LEFT JOIN `candidate` c ON c.`idCandidate` = i.`idCandidate` "
+            + "LEFT JOIN `interviewer` iv ON iv.`idInterviewer` = i.`idInterviewer` "
+            + "LEFT JOIN `interviewcomment` ic ON ic.`idInterview` = i.`idInterview` "
+            + "LEFT JOIN `mark` m ON m.`idInterview` = i.`idInterview` "
+            + "ORDER BY i.`idInterview`";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private Dao<Interview, Integer> interviewDao;
+    private Dao<Category, Integer> categoryDao;
+
+    public InterviewExporter(ConnectionSource connectionSource) throws SQLException {
+        interviewDao = DaoManager.createDao(connectionSource, Interview.class);
+        categoryDao = DaoManager.createDao(connectionSource, Category.class);
+    }
+
+    /**
+     * Выгружает все интервью в файл
+     * @param file файл выгрузки (перезаписывается)
+     * @param format формат выгрузки
+     * @param progressInterval через сколько интервью сообщать о ходе выгрузки
+     * @param listener получатель сведений о ходе выгрузки или null
+     * @return ExportStatistics итог выгрузки
+     * @throws SQLException
+     * @throws IOException
+     */
+    public ExportStatistics export(Path file, Format format, int progressInterval, ProgressListener listener)
+            throws SQLException, IOException {
+        // критериев немного, они задают колонки оценок
+        List<Category> categories = categoryDao.queryForAll();
+        Map<String, Integer> categoryColumns = new HashMap<>();
+        for (int i = 0; i < categories.size(); i++) {
+            categoryColumns.put(String.valueOf(categories.get(i).getIdCategory()), i);
+        }
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        CountingChannel channel = new CountingChannel(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        GenericRawResults<String[]> results = null;
+        try (Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1),
+                WRITE_BUFFER_SIZE)) {
+            if (format == Format.CSV)
+                writeCsvHeader(writer, categories);
+            results = interviewDao.queryRaw(QUERY);
+            CloseableIterator<String[]> iterator = results.closeableIterator();
+            // оценки текущего интервью по колонкам критериев
+            String[] marks = new String[categories.size()];
+            String[] current = null;
+            while (iterator.hasNext()) {
+                String[] row = iterator.nextThrow();
+                if (current != null && !current[0].equals(row[0])) {
+                    writeRow(writer, format, current, marks, categories);
+                    rows++;
+                    Arrays.fill(marks, null);
+                    if (listener != null && progressInterval > 0 && rows % progressInterval == 0) {
+                        writer.flush();
+                        listener.onProgress(new ExportStatistics(rows, channel.written, System.currentTimeMillis() - start));
+                    }
+                }
+                current = row;
+                Integer column = row[12] == null ? null : categoryColumns.get(row[12]);
+                if (column != null)
+                    marks[column] = row[13];
+            }
+            if (current != null) {
+                writeRow(writer, format, current, marks, categories);
+                rows++;
+            }
+        } finally {
+            if (results != null)
+                results.close();
+        }
+        ExportStatistics statistics = new ExportStatistics(rows, channel.written, System.currentTimeMillis() - start);
+        if (listener != null)
+            listener.onProgress(statistics);
+        return statistics;
+    }
+
+    private static void writeCsvHeader(Writer writer, List<Category> categories) throws IOException {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0)
+                writer.write(',');
+            writer.write(COLUMNS[i]);
+        }
+        for (Category category : categories) {
+            writer.write(',');
+            writeCsvValue(writer, category.getName());
+        }
+        writer.write("\r\n");
+    }
+
+    private static void writeRow(Writer writer, Format format, String[] row, String[] marks, List<Category> categories)
+            throws IOException {
+        if (format == Format.CSV) {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0)
+                    writer.write(',');
+                writeCsvValue(writer, row[i]);
+            }
+            for (String mark : marks) {
+                writer.write(',');
+                writeCsvValue(writer, mark);
+            }
+            writer.write("\r\n");
+            return;
+        }
+        writer.write('{');
+        writer.write("\"idInterview\":");
+        writer.write(row[0]);
+        for (int i = 1; i < COLUMNS.length; i++) {
+            writer.write(',');
+            writeJsonString(writer, COLUMNS[i]);
+            writer.write(':');
+            writeJsonString(writer, row[i]);
+        }
+        writer.write(",\"marks\":{");
+        boolean first = true;
+        for (int i = 0; i < marks.length; i++) {
+            if (marks[i] == null)
+                continue;
+            if (!first)
+                writer.write(',');
+            first = false;
+            writeJsonString(writer, categories.get(i).getName());
+            writer.write(':');
+            writer.write(marks[i]);
+        }
+        writer.write("}}\n");
+    }
+
+    /**
+     * Пишет значение CSV (RFC 4180): значения с запятыми, кавычками и переводами строк берутся в кавычки
+     */
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null)
+            return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Пишет строку JSON (null - как null)
+     */
+    static void writeJsonString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Канал файла, считающий записанные байты
+     */
+    private static class CountingChannel implements WritableByteChannel {
+        private final WritableByteChannel channel;
+        private long written;
+
+        CountingChannel(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int count = channel.write(source);
+            written += count;
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
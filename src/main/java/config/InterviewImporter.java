@@ -0,0 +1,638 @@
+package config;
+
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.dao.GenericRawResults;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.support.DatabaseConnection;
+import entity.Interview;
+import model.ImportStatistics;
+import util.DateTimeUtil;
+import util.KeyUtil;
+import util.Validator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетная загрузка интервью из файлов CSV или JSON Lines в формате выгрузки (см. InterviewExporter).
+ * Файл читается потоково порциями по batchSize строк; строки порции проверяются параллельно
+ * (правила util.Validator), кандидаты, рекрутеры и критерии находятся по ключам в памяти
+ * (недостающие создаются), а каждая порция записывается одной транзакцией пакетами выражений.
+ * Строки с ошибками пропускаются и записываются в файл отклоненных строк (JSON Lines: номер строки, ошибка, запись)
+ */
+public class InterviewImporter {
+    /**
+     * Получатель сведений о ходе загрузки
+     */
+    public interface ProgressListener {
+        void onProgress(ImportStatistics statistics);
+    }
+
+    private static final String INSERT_CANDIDATE =
+            "INSERT INTO `candidate` (`fio`, `fioKey`, `bornDate`, `banned`) VALUES (?, ?, ?, '-')";
+    private static final String INSERT_INTERVIEWER = "INSERT INTO `interviewer` (`fio`, `fioKey`) VALUES (?, ?)";
+    private static final String INSERT_CATEGORY = "INSERT INTO `category` (`name`, `nameKey`) VALUES (?, ?)";
+    private static final String INSERT_INTERVIEW = "INSERT INTO `interview` "
+            + "(`idCandidate`, `idInterviewer`, `date`, `result`, `time`, `dateTime`, `post`) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MARK = "INSERT INTO `mark` (`value`, `idCategory`, `idInterview`) VALUES (?, ?, ?)";
+    private static final String INSERT_COMMENT = "INSERT INTO `interviewcomment` "
+            + "(`idInterview`, `experience`, `recommendations`, `lastWork`, `comment`) VALUES (?, ?, ?, ?, ?)";
+
+    private BoundedConnectionSource connectionSource;
+    private SearchIndex searchIndex;
+    private ChangeLog changeLog;
+    // dao используется только для raw-запросов
+    private Dao<Interview, Integer> interviewDao;
+    // id по ключам: кандидат - ФИО и дата рождения, рекрутер - ФИО, критерий - название
+    private final Map<String, Integer> candidateIds = new HashMap<>();
+    private final Map<String, Integer> interviewerIds = new HashMap<>();
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+
+    public InterviewImporter(BoundedConnectionSource connectionSource, SearchIndex searchIndex, ChangeLog changeLog)
+            throws SQLException {
+        this.connectionSource = connectionSource;
+        this.searchIndex = searchIndex;
+        this.changeLog = changeLog;
+        interviewDao = DaoManager.createDao(connectionSource, Interview.class);
+    }
+
+    /**
+     * Загружает интервью из файла
+     * @param file файл CSV (с заголовком) или JSON Lines
+     * @param format формат файла
+     * @param rejectFile файл отклоненных строк (перезаписывается) или null
+     * @param batchSize количество строк в одной порции (транзакции)
+     * @param listener получатель сведений о ходе загрузки (после каждой порции) или null
+     * @return ImportStatistics итог загрузки
+     * @throws SQLException
+     * @throws IOException
+     */
+    public ImportStatistics importFile(Path file, InterviewExporter.Format format, Path rejectFile, int batchSize,
+                                       ProgressListener listener) throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        long imported = 0;
+        long rejected = 0;
+        loadKeys();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Writer rejects = rejectFile == null ? null : Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+            RecordReader records = format == InterviewExporter.Format.CSV ? new CsvRecordReader(reader) : new JsonRecordReader(reader);
+            List<Record> batch = new ArrayList<>(batchSize);
+            Record record;
+            do {
+                record = records.next();
+                if (record != null)
+                    batch.add(record);
+                if (batch.size() >= batchSize || (record == null && !batch.isEmpty())) {
+                    // проверка и разбор строк не зависят друг от друга и выполняются параллельно
+                    List<Row> validated = batch.parallelStream().map(InterviewImporter::validate).collect(Collectors.toList());
+                    List<Row> valid = new ArrayList<>(validated.size());
+                    for (Row row : validated) {
+                        if (row.error == null) {
+                            valid.add(row);
+                        } else {
+                            rejected++;
+                            writeReject(rejects, row.record, row.error);
+                        }
+                    }
+                    insert(valid);
+                    rows += batch.size();
+                    imported += valid.size();
+                    batch.clear();
+                    if (listener != null)
+                        listener.onProgress(new ImportStatistics(rows, imported, rejected, System.currentTimeMillis() - start));
+                }
+            } while (record != null);
+        }
+        return new ImportStatistics(rows, imported, rejected, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Загружает ключи существующих кандидатов, рекрутеров и критериев
+     * @throws SQLException
+     */
+    private void loadKeys() throws SQLException {
+        loadKeys("SELECT `idCandidate`, `fioKey`, `bornDate` FROM `candidate`", candidateIds);
+        loadKeys("SELECT `idInterviewer`, `fioKey` FROM `interviewer`", interviewerIds);
+        loadKeys("SELECT `idCategory`, `nameKey` FROM `category`", categoryIds);
+    }
+
+    private void loadKeys(String query, Map<String, Integer> ids) throws SQLException {
+        GenericRawResults<String[]> results = interviewDao.queryRaw(query);
+        try {
+            CloseableIterator<String[]> iterator = results.closeableIterator();
+            while (iterator.hasNext()) {
+                String[] row = iterator.nextThrow();
+                // ключ - остальные колонки через перевод строки (как в candidateKey)
+                String key = String.join("\n", Arrays.copyOfRange(row, 1, row.length));
+                ids.putIfAbsent(key, Integer.parseInt(row[0]));
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    private static String candidateKey(String fioKey, String bornDate) {
+        return fioKey + '\n' + bornDate;
+    }
+
+    /**
+     * Проверяет и разбирает строку файла (вызывается параллельно, поэтому не использует состояние загрузчика)
+     * @param record строка файла
+     * @return Row разобранная строка или строка с текстом ошибки
+     */
+    private static Row validate(Record record) {
+        Row row = new Row(record);
+        if (record.error != null) {
+            row.error = record.error;
+            return row;
+        }
+        try {
+            Map<String, String> fields = record.fields;
+            row.candidate = required(fields, "candidate");
+            row.bornDate = required(fields, "bornDate");
+            row.interviewer = required(fields, "interviewer");
+            row.date = required(fields, "date");
+            row.post = required(fields, "post");
+            row.time = fields.get("time");
+            Validator.checkFio(row.candidate);
+            Validator.checkDate(row.bornDate);
+            Validator.checkFio(row.interviewer);
+            if (row.time == null)
+                Validator.checkDate(row.date);
+            else
+                Validator.checkDateTime(row.date + " " + row.time);
+            Long dateTime = DateTimeUtil.toEpochMillis(row.date, row.time);
+            if (dateTime == null)
+                throw new Exception("Дата '" + row.date + "' указана не верно.");
+            row.dateTime = dateTime;
+            row.candidateKey = candidateKey(KeyUtil.normalize(row.candidate), row.bornDate);
+            row.interviewerKey = KeyUtil.normalize(row.interviewer);
+            row.result = fields.get("result");
+            row.experience = fields.get("experience");
+            row.recommendations = fields.get("recommendations");
+            row.lastWork = fields.get("lastWork");
+            row.comment = fields.get("comment");
+            for (Map.Entry<String, String> mark : record.marks.entrySet()) {
+                try {
+                    double value = Double.parseDouble(mark.getValue());
+                    if (value != 0)
+                        row.marks.put(mark.getKey(), value);
+                } catch (NumberFormatException e) {
+                    throw new Exception("Оценка '" + mark.getValue() + "' по критерию '" + mark.getKey() + "' указана не верно.");
+                }
+            }
+        } catch (Exception e) {
+            row.error = e.getMessage();
+        }
+        return row;
+    }
+
+    private static String required(Map<String, String> fields, String column) throws Exception {
+        String value = fields.get(column);
+        if (value == null)
+            throw new Exception("Не заполнено поле '" + column + "'.");
+        return value;
+    }
+
+    /**
+     * Записывает порцию проверенных строк одной транзакцией: кандидаты, рекрутеры и критерии - по одному
+     * (нужны их id), интервью - по одному с получением id, оценки, комментарии и строки полнотекстового индекса - пакетами.
+     * Добавленные строки записываются в журнал изменений по диапазонам id
+     * @param rows проверенные строки
+     * @throws SQLException
+     */
+    private void insert(List<Row> rows) throws SQLException {
+        if (rows.isEmpty())
+            return;
+        // новые ключи добавляются в общие карты только после фиксации транзакции
+        Map<String, Integer> newCandidates = new HashMap<>();
+        Map<String, Integer> newInterviewers = new HashMap<>();
+        Map<String, Integer> newCategories = new HashMap<>();
+        TransactionManager.callInTransaction(connectionSource, () -> {
+            // id растут (AUTOINCREMENT, в H2 - AUTO_INCREMENT), поэтому строки порции - строки с id больше максимального до вставки
+            Map<ChangeLog.Table, String> lastIds = new LinkedHashMap<>();
+            for (ChangeLog.Table table : ChangeLog.TABLES) {
+                lastIds.put(table, String.valueOf(interviewDao.queryRawValue(
+                        "SELECT COALESCE(MAX(`" + table.idColumn + "`), 0) FROM `" + table.name + "`")));
+            }
+            DatabaseConnection connection = connectionSource.getReadWriteConnection();
+            try {
+                Connection jdbc = BoundedConnectionSource.getJdbcConnection(connection);
+                try (PreparedStatement candidates = jdbc.prepareStatement(INSERT_CANDIDATE);
+                     PreparedStatement interviewers = jdbc.prepareStatement(INSERT_INTERVIEWER);
+                     PreparedStatement categories = jdbc.prepareStatement(INSERT_CATEGORY);
+                     PreparedStatement interviews = jdbc.prepareStatement(INSERT_INTERVIEW);
+                     PreparedStatement marks = jdbc.prepareStatement(INSERT_MARK);
+                     PreparedStatement comments = jdbc.prepareStatement(INSERT_COMMENT);
+                     PreparedStatement index = jdbc.prepareStatement(SearchIndex.INSERT)) {
+                    for (Row row : rows) {
+                        int idCandidate = resolve(candidateIds, newCandidates, row.candidateKey, candidates,
+                                row.candidate, KeyUtil.normalize(row.candidate), row.bornDate);
+                        int idInterviewer = resolve(interviewerIds, newInterviewers, row.interviewerKey, interviewers,
+                                row.interviewer, row.interviewerKey);
+                        int idInterview = (int) executeInsert(interviews, idCandidate, idInterviewer, row.date,
+                                row.result, row.time, row.dateTime, row.post);
+                        for (Map.Entry<String, Double> mark : row.marks.entrySet()) {
+                            String name = mark.getKey();
+                            String nameKey = KeyUtil.normalize(name);
+                            int idCategory = resolve(categoryIds, newCategories, nameKey, categories, name, nameKey);
+                            addBatch(marks, mark.getValue(), idCategory, idInterview);
+                        }
+                        if (row.experience != null || row.recommendations != null || row.lastWork != null || row.comment != null)
+                            addBatch(comments, idInterview, row.experience, row.recommendations, row.lastWork, row.comment);
+                        addBatch(index, (Object[]) searchIndex.toInsertArguments(new String[]{String.valueOf(idInterview),
+                                row.candidate, row.post, row.experience, row.recommendations, row.lastWork, row.comment}));
+                    }
+                    marks.executeBatch();
+                    comments.executeBatch();
+                    index.executeBatch();
+                }
+            } finally {
+                connectionSource.releaseConnection(connection);
+            }
+            for (Map.Entry<ChangeLog.Table, String> lastId : lastIds.entrySet()) {
+                String idColumn = lastId.getKey().idColumn;
+                changeLog.recordUpserts(lastId.getKey().name, "SELECT `" + idColumn + "` AS id FROM `"
+                        + lastId.getKey().name + "` WHERE `" + idColumn + "` > ?", lastId.getValue());
+            }
+            return null;
+        });
+        candidateIds.putAll(newCandidates);
+        interviewerIds.putAll(newInterviewers);
+        categoryIds.putAll(newCategories);
+    }
+
+    /**
+     * Находит id по ключу среди существующих и созданных в текущей порции записей или создает запись
+     * @return int id записи
+     */
+    private static int resolve(Map<String, Integer> ids, Map<String, Integer> newIds, String key,
+                               PreparedStatement insert, Object... values) throws SQLException {
+        Integer id = ids.get(key);
+        if (id == null)
+            id = newIds.get(key);
+        if (id == null) {
+            id = (int) executeInsert(insert, values);
+            newIds.put(key, id);
+        }
+        return id;
+    }
+
+    private static long executeInsert(PreparedStatement statement, Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+        statement.executeUpdate();
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            keys.next();
+            return keys.getLong(1);
+        }
+    }
+
+    private static void addBatch(PreparedStatement statement, Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+        statement.addBatch();
+    }
+
+    private static void writeReject(Writer rejects, Record record, String error) throws IOException {
+        if (rejects == null)
+            return;
+        rejects.write("{\"line\":" + record.line + ",\"error\":");
+        InterviewExporter.writeJsonString(rejects, error);
+        rejects.write(",\"record\":");
+        InterviewExporter.writeJsonString(rejects, record.text);
+        rejects.write("}\n");
+    }
+
+    /**
+     * Строка файла: значения колонок, оценки по названиям критериев, исходный текст
+     */
+    private static class Record {
+        private long line;
+        private String text;
+        private Map<String, String> fields = new HashMap<>();
+        private Map<String, String> marks = new LinkedHashMap<>();
+        // ошибка разбора строки
+        private String error;
+    }
+
+    /**
+     * Проверенная строка, готовая к записи
+     */
+    private static class Row {
+        private final Record record;
+        private String error;
+        private String candidate;
+        private String candidateKey;
+        private String bornDate;
+        private String interviewer;
+        private String interviewerKey;
+        private String date;
+        private String time;
+        private long dateTime;
+        private String post;
+        private String result;
+        private String experience;
+        private String recommendations;
+        private String lastWork;
+        private String comment;
+        private Map<String, Double> marks = new LinkedHashMap<>();
+
+        Row(Record record) {
+            this.record = record;
+        }
+    }
+
+    private interface RecordReader {
+        /**
+         * @return следующая строка файла или null в конце файла
+         */
+        Record next() throws IOException;
+    }
+
+    /**
+     * Чтение CSV (RFC 4180) с заголовком: колонки выгрузки и колонки оценок с названиями критериев
+     */
+    private static class CsvRecordReader implements RecordReader {
+        private final BufferedReader reader;
+        private final List<String> columns;
+        private long line = 1;
+
+        CsvRecordReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            StringBuilder text = new StringBuilder();
+            List<String> header = readFields(text);
+            columns = header == null ? new ArrayList<>() : header;
+        }
+
+        @Override
+        public Record next() throws IOException {
+            List<String> values;
+            Record record = new Record();
+            StringBuilder text = new StringBuilder();
+            do {
+                record.line = line;
+                text.setLength(0);
+                values = readFields(text);
+                if (values == null)
+                    return null;
+            } while (values.size() == 1 && values.get(0).isEmpty());
+            record.text = text.toString();
+            if (values.size() != columns.size()) {
+                record.error = "Количество колонок " + values.size() + " не совпадает с заголовком (" + columns.size() + ").";
+                return record;
+            }
+            List<String> known = Arrays.asList(InterviewExporter.COLUMNS);
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i);
+                if (value.isEmpty())
+                    continue;
+                if (known.contains(columns.get(i)))
+                    record.fields.put(columns.get(i), value);
+                else
+                    record.marks.put(columns.get(i), value);
+            }
+            return record;
+        }
+
+        /**
+         * Читает одну запись (значения в кавычках могут содержать переводы строк)
+         * @param text исходный текст записи
+         * @return List<String> значения или null в конце файла
+         */
+        private List<String> readFields(StringBuilder text) throws IOException {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            int c = reader.read();
+            if (c < 0)
+                return null;
+            while (c >= 0) {
+                if (c == '\n')
+                    line++;
+                if (c == '\n' && !quoted)
+                    break;
+                text.append((char) c);
+                if (quoted) {
+                    if (c != '"') {
+                        value.append((char) c);
+                    } else {
+                        // две кавычки подряд - кавычка в значении
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            value.append('"');
+                            text.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    }
+                } else if (c == '"' && value.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else if (c != '\r') {
+                    value.append((char) c);
+                }
+                c = reader.read();
+            }
+            if (text.length() > 0 && text.charAt(text.length() - 1) == '\r')
+                text.setLength(text.length() - 1);
+            values.add(value.toString());
+            return values;
+        }
+    }
+
+    /**
+     * Чтение JSON Lines: объект на строку, оценки - объект "marks" с оценками по названиям критериев
+     */
+    private static class JsonRecordReader implements RecordReader {
+        private final BufferedReader reader;
+        private long line;
+
+        JsonRecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Record next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+                if (text == null)
+                    return null;
+            } while (text.trim().isEmpty());
+            Record record = new Record();
+            record.line = line;
+            record.text = text;
+            try {
+                JsonParser parser = new JsonParser(text);
+                Map<String, Object> object = parser.parseObject();
+                parser.expectEnd();
+                for (Map.Entry<String, Object> entry : object.entrySet()) {
+                    if (entry.getValue() instanceof Map) {
+                        if (entry.getKey().equals("marks")) {
+                            for (Map.Entry<?, ?> mark : ((Map<?, ?>) entry.getValue()).entrySet()) {
+                                if (mark.getValue() != null)
+                                    record.marks.put(mark.getKey().toString(), mark.getValue().toString());
+                            }
+                        }
+                    } else if (entry.getValue() != null && !entry.getValue().toString().isEmpty()) {
+                        record.fields.put(entry.getKey(), entry.getValue().toString());
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                record.error = e.getMessage();
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Разбор объекта JSON: значения - строки, числа (в исходном виде), true/false, null и вложенные объекты
+     */
+    private static class JsonParser {
+        private final String text;
+        private int position;
+
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> parseObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                String key = parseString();
+                expect(':');
+                object.put(key, parseValue());
+                char c = next();
+                if (c == '}')
+                    return object;
+                if (c != ',')
+                    throw error();
+            }
+        }
+
+        void expectEnd() {
+            skipSpaces();
+            if (position < text.length())
+                throw error();
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '{')
+                return parseObject();
+            if (c == '"')
+                return parseString();
+            int start = position;
+            while (position < text.length() && ",}] \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String token = text.substring(start, position);
+            if (token.equals("null"))
+                return null;
+            if (token.isEmpty())
+                throw error();
+            return token;
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"')
+                    return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length())
+                    break;
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length())
+                            throw error();
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+            throw error();
+        }
+
+        private void expect(char expected) {
+            if (next() != expected)
+                throw error();
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private char peek() {
+            skipSpaces();
+            if (position >= text.length())
+                throw error();
+            return text.charAt(position);
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException("Ошибка разбора JSON в позиции " + (position + 1) + ".");
+        }
+    }
+}
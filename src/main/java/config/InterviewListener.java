@@ -0,0 +1,28 @@
+package config;
+
+import java.util.Collection;
+
+/**
+ * Получатель событий изменения интервью DatabaseHelper.
+ * События транзакции передаются одним вызовом после ее фиксации (после отката - не передаются),
+ * в потоке, который выполнял изменение
+ */
+public interface InterviewListener {
+    /**
+     * Интервью добавлены или изменены
+     * @param ids id интервью
+     */
+    void interviewsSaved(Collection<Integer> ids);
+
+    /**
+     * Интервью удалены
+     * @param ids id интервью
+     */
+    void interviewsDeleted(Collection<Integer> ids);
+
+    /**
+     * Интервью изменены в обход событий (загрузка из файла, восстановление из копии):
+     * получатель заново читает интересующие его интервью
+     */
+    void interviewsReloaded();
+}
@@ -0,0 +1,141 @@
+package config;
+
+import util.KeyUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Индекс для подсказок "живого" поиска: отсортированная карта нормализованных имен (см. KeyUtil),
+ * поиск по префиксу - двоичный поиск начала диапазона и чтение не более limit записей.
+ * Каждое имя индексируется с начала каждого слова, поэтому ФИО находится и по имени, и по отчеству.
+ * Чтение не блокируется, изменения (добавление, переименование, удаление) выполняются по одному
+ * @param <T> тип индексируемых объектов
+ */
+public class PrefixIndex<T> {
+    // разделитель имени и id в ключе: меньше любого символа имени, поэтому одинаковые имена идут подряд
+    private static final char ID_SEPARATOR = '\u0000';
+
+    private final Function<T, Integer> idFunction;
+    private final Function<T, String> nameFunction;
+    private final ConcurrentSkipListMap<String, T> entries = new ConcurrentSkipListMap<>();
+    // ключи каждого объекта, чтобы при переименовании и удалении убрать старые
+    private final Map<Integer, List<String>> keysById = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * @param idFunction id объекта
+     * @param nameFunction индексируемое имя объекта
+     */
+    public PrefixIndex(Function<T, Integer> idFunction, Function<T, String> nameFunction) {
+        this.idFunction = idFunction;
+        this.nameFunction = nameFunction;
+    }
+
+    /**
+     * Проверяет, заполнен ли индекс (до заполнения в нем могут быть только добавленные объекты)
+     * @return boolean true после load
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Заполняет индекс всеми объектами из БД. Объекты, добавленные или измененные
+     * во время чтения из БД, не перезаписываются
+     * @param values все объекты
+     */
+    public synchronized void load(Collection<? extends T> values) {
+        for (T value : values) {
+            if (!keysById.containsKey(idFunction.apply(value)))
+                put(value);
+        }
+        loaded = true;
+    }
+
+    /**
+     * Очищает индекс (при следующем обращении он будет заполнен заново)
+     */
+    public synchronized void reset() {
+        loaded = false;
+        entries.clear();
+        keysById.clear();
+    }
+
+    /**
+     * Добавляет объект в индекс или обновляет его имя
+     * @param value объект
+     */
+    public synchronized void add(T value) {
+        remove(idFunction.apply(value));
+        put(value);
+    }
+
+    /**
+     * Удаляет объект из индекса
+     * @param id id объекта
+     */
+    public synchronized void remove(int id) {
+        List<String> keys = keysById.remove(id);
+        if (keys != null) {
+            for (String key : keys) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Метод, возвращающий объекты, имя которых с начала одного из слов начинается с введенного текста
+     * @param text введенный текст
+     * @param limit максимальное количество подсказок
+     * @return List<T> подсказки в алфавитном порядке
+     */
+    public List<T> find(String text, int limit) {
+        String prefix = KeyUtil.normalize(text);
+        List<T> result = new ArrayList<>();
+        if (prefix == null || prefix.isEmpty() || limit <= 0) {
+            return result;
+        }
+        ConcurrentNavigableMap<String, T> range = entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        // один объект может совпасть несколькими словами
+        Map<Integer, T> found = new LinkedHashMap<>();
+        for (Map.Entry<String, T> entry : range.entrySet()) {
+            found.putIfAbsent(idFunction.apply(entry.getValue()), entry.getValue());
+            if (found.size() >= limit)
+                break;
+        }
+        result.addAll(found.values());
+        return result;
+    }
+
+    public synchronized int size() {
+        return keysById.size();
+    }
+
+    private void put(T value) {
+        String name = KeyUtil.normalize(nameFunction.apply(value));
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        Integer id = idFunction.apply(value);
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        while (true) {
+            String key = name.substring(start) + ID_SEPARATOR + id;
+            keys.add(key);
+            entries.put(key, value);
+            int space = name.indexOf(' ', start);
+            if (space < 0)
+                break;
+            start = space + 1;
+        }
+        keysById.put(id, keys);
+    }
+}
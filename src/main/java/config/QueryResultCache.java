@@ -0,0 +1,96 @@
+package config;
+
+import model.CacheStatistics;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш результатов запросов с вытеснением давно не использованных (LRU) и ограниченным размером.
+ * Любое изменение данных увеличивает поколение кэша и очищает его: результат, прочитанный
+ * до изменения, в кэш уже не попадет
+ * @param <V> тип результата запроса
+ */
+public class QueryResultCache<V> {
+    private final LinkedHashMap<String, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // текущее поколение кэша (увеличивается при каждом сбросе)
+    private final AtomicLong generation = new AtomicLong();
+    private int maxSize;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Запрос, результат которого кэшируется
+     * @param <V> тип результата
+     */
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    public QueryResultCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Метод, возвращающий результат из кэша или выполняющий запрос и сохраняющий его результат
+     * @param key ключ запроса
+     * @param loader запрос
+     * @return V результат запроса
+     * @throws SQLException
+     */
+    public V get(String key, Loader<V> loader) throws SQLException {
+        long loadedGeneration;
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hitCount++;
+                return value;
+            }
+            missCount++;
+            loadedGeneration = generation.get();
+        }
+        // запрос выполняется без блокировки, параллельные промахи по одному ключу допустимы
+        V value = loader.load();
+        synchronized (this) {
+            if (value != null && maxSize > 0 && generation.get() == loadedGeneration) {
+                entries.put(key, value);
+                evict();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Сбрасывает кэш (вызывается при каждом изменении данных)
+     */
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Изменяет максимальный размер кэша, лишние записи вытесняются
+     * @param maxSize максимальное количество результатов (0 - кэш отключен)
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(entries.size(), maxSize, hitCount, missCount, evictionCount);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, V>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package config;
+
+import entity.Reminder;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись состояний напоминаний (см. Reminder).
+ * Изменения копятся в памяти, повторное изменение того же напоминания заменяет незаписанное, и записываются
+ * в отдельном потоке порциями до batchSize изменений, каждая порция - одной транзакцией.
+ * Запись начинается, когда набралась порция или через flushDelayMillis после первого незаписанного изменения,
+ * поэтому срабатывание и перенос напоминания не ждут БД. Неудавшаяся запись повторяется через flushDelayMillis.
+ * close записывает все оставшиеся изменения
+ */
+public class ReminderStore {
+    private final DatabaseHelper helper;
+    private final int batchSize;
+    private final long flushDelayMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    // незаписанные изменения по id собеседования
+    private final Map<Integer, Reminder> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    /**
+     * @param helper БД, в которую записываются изменения
+     * @param batchSize максимальное количество изменений в одной транзакции
+     * @param flushDelayMillis задержка записи после первого незаписанного изменения, мс
+     */
+    public ReminderStore(DatabaseHelper helper, int batchSize, long flushDelayMillis) {
+        this.helper = helper;
+        this.batchSize = batchSize;
+        this.flushDelayMillis = flushDelayMillis;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "reminder-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // при закрытии отложенная запись не ждет своего времени: оставшееся записывает close
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Ставит состояние напоминания в очередь на запись
+     * @param reminder состояние напоминания
+     */
+    public void save(Reminder reminder) {
+        synchronized (pending) {
+            pending.put(reminder.getIdInterview(), reminder);
+            if (pending.size() >= batchSize) {
+                executor.execute(this::flushQuietly);
+            } else if (!flushScheduled) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    /**
+     * Метод, возвращающий количество незаписанных изменений
+     * @return int количество изменений
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Записывает все незаписанные изменения порциями
+     * @throws SQLException если порцию не удалось записать (ее изменения остаются в очереди,
+     * запись повторяется через flushDelayMillis)
+     */
+    public void flush() throws SQLException {
+        while (true) {
+            List<Reminder> batch = new ArrayList<>();
+            synchronized (pending) {
+                Iterator<Reminder> iterator = pending.values().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+                if (batch.isEmpty()) {
+                    flushScheduled = false;
+                    return;
+                }
+            }
+            try {
+                helper.saveReminders(batch);
+            } catch (SQLException e) {
+                synchronized (pending) {
+                    // более новые изменения, поставленные во время записи, не затираются
+                    for (Reminder reminder : batch) {
+                        pending.putIfAbsent(reminder.getIdInterview(), reminder);
+                    }
+                    flushScheduled = false;
+                    scheduleFlush();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Останавливает поток записи и записывает оставшиеся изменения
+     * @throws SQLException
+     */
+    public void close() throws SQLException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(AppConfig.DATABASE_POOL_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Планирует запись через flushDelayMillis (вызывается под блокировкой pending).
+     * После закрытия не планирует: оставшиеся изменения записывает close
+     */
+    private void scheduleFlush() {
+        if (executor.isShutdown())
+            return;
+        try {
+            executor.schedule(this::flushQuietly, flushDelayMillis, TimeUnit.MILLISECONDS);
+            flushScheduled = true;
+        } catch (RejectedExecutionException e) {
+            // close вызван одновременно
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            // изменения остались в очереди, запись повторится через flushDelayMillis или при закрытии
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package config;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.dao.GenericRawResults;
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.support.ConnectionSource;
+import entity.Interview;
+import util.KeyUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+
+/**
+ * Полнотекстовый индекс интервью (SQLite FTS4): ФИО кандидата, должность и комментарии.
+ * Текст хранится нормализованным (см. KeyUtil), т.к. токенизатор simple не приводит кириллицу к нижнему регистру.
+ * Строка индекса имеет docid, равный id интервью.
+ * Если БД не поддерживает FTS4 (см. DatabaseDialect), индекс - обычная таблица с теми же колонками, в которой
+ * текст хранится словами через пробел с пробелом в начале: слово ищется по префиксу условием LIKE '% слово%'
+ */
+public class SearchIndex {
+    public static final String TABLE = "interview_fts";
+    public static final String FIO_COLUMN = "fio";
+    public static final String POST_COLUMN = "post";
+    public static final String COMMENT_COLUMN = "comment";
+    // веса колонок fio, post, comment при ранжировании
+    private static final double[] COLUMN_WEIGHTS = {4.0, 2.0, 1.0};
+    // худший из отобранных результатов первым: меньшая релевантность, при равной - больший id
+    private static final Comparator<Object[]> WORST_FIRST = Comparator.<Object[]>comparingDouble(row -> (Double) row[1])
+            .thenComparing(row -> (Integer) row[0], Comparator.reverseOrder());
+
+    // добавление строки индекса: docid, ФИО, должность, текст комментариев
+    static final String INSERT = "INSERT INTO `" + TABLE + "` (docid, " + FIO_COLUMN + ", " + POST_COLUMN + ", "
+            + COMMENT_COLUMN + ") VALUES (?, ?, ?, ?)";
+    private static final String SOURCE_QUERY = "SELECT i.`idInterview`, c.`fio`, i.`post`, "
+            + "ic.`experience`, ic.`recommendations`, ic.`lastWork`, ic.`comment` "
+            + "FROM `interview` i "
+            + "LEFT JOIN `candidate` c ON c.`idCandidate` = i.`idCandidate` "
+            + "LEFT JOIN `interviewcomment` ic ON ic.`idInterview` = i.`idInterview`";
+
+    // все колонки индекса одной строкой (для поиска без FTS4)
+    private static final String ALL_COLUMNS = "(" + FIO_COLUMN + " || " + POST_COLUMN + " || " + COMMENT_COLUMN + ")";
+
+    // dao используется только для raw-запросов к индексу
+    private Dao<Interview, Integer> interviewDao;
+    private DatabaseDialect dialect;
+
+    public SearchIndex(ConnectionSource connectionSource, DatabaseDialect dialect) throws SQLException {
+        interviewDao = DaoManager.createDao(connectionSource, Interview.class);
+        this.dialect = dialect;
+    }
+
+    /**
+     * Создает таблицу индекса, если ее нет, и заполняет ее по существующим интервью
+     * (SQLite 3.7.2 не поддерживает IF NOT EXISTS для виртуальных таблиц)
+     * @throws SQLException
+     */
+    public void initialize() throws SQLException {
+        long exists = interviewDao.queryRawValue(dialect.tableExistsQuery(TABLE));
+        if (exists == 0) {
+            if (dialect.isFullTextSearchSupported()) {
+                interviewDao.executeRawNoArgs("CREATE VIRTUAL TABLE `" + TABLE + "` USING fts4("
+                        + FIO_COLUMN + ", " + POST_COLUMN + ", " + COMMENT_COLUMN + ")");
+            } else {
+                interviewDao.executeRawNoArgs("CREATE TABLE `" + TABLE + "` (docid INTEGER PRIMARY KEY, "
+                        + FIO_COLUMN + " VARCHAR, " + POST_COLUMN + " VARCHAR, " + COMMENT_COLUMN + " VARCHAR)");
+            }
+            rebuild();
+        }
+    }
+
+    /**
+     * Полностью перестраивает индекс одной пакетной операцией
+     * @throws SQLException
+     */
+    public void rebuild() throws SQLException {
+        List<String[]> rows = interviewDao.queryRaw(SOURCE_QUERY).getResults();
+        callBatch(() -> {
+            interviewDao.executeRawNoArgs("DELETE FROM `" + TABLE + "`");
+            for (String[] row : rows) {
+                insert(row);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Обновляет в индексе одно интервью (вызывается после каждого изменения интервью, кандидата или комментария)
+     * @param idInterview id интервью
+     * @throws SQLException
+     */
+    public void index(int idInterview) throws SQLException {
+        String[] row = interviewDao.queryRaw(SOURCE_QUERY + " WHERE i.`idInterview` = ?",
+                String.valueOf(idInterview)).getFirstResult();
+        remove(idInterview);
+        if (row != null) {
+            insert(row);
+        }
+    }
+
+    /**
+     * Обновляет в индексе все интервью кандидата (после изменения его ФИО)
+     * @param idCandidate id кандидата
+     * @throws SQLException
+     */
+    public void indexCandidate(int idCandidate) throws SQLException {
+        List<String[]> rows = interviewDao.queryRaw(SOURCE_QUERY + " WHERE i.`idCandidate` = ?",
+                String.valueOf(idCandidate)).getResults();
+        for (String[] row : rows) {
+            remove(Integer.parseInt(row[0]));
+            insert(row);
+        }
+    }
+
+    /**
+     * Удаляет интервью из индекса
+     * @param idInterview id интервью
+     * @throws SQLException
+     */
+    public void remove(int idInterview) throws SQLException {
+        interviewDao.updateRaw("DELETE FROM `" + TABLE + "` WHERE docid = ?", String.valueOf(idInterview));
+    }
+
+    /**
+     * Ранжированный поиск по всем колонкам индекса, слова запроса ищутся по префиксу
+     * @param query поисковая строка
+     * @param limit максимальное количество результатов
+     * @return List<Integer> id интервью, лучшие совпадения первыми
+     * @throws SQLException
+     */
+    public List<Integer> search(String query, int limit) throws SQLException {
+        List<String> tokens = tokens(query);
+        List<Integer> ids = new ArrayList<>();
+        if (tokens.isEmpty() || limit <= 0) {
+            return ids;
+        }
+        // matchinfo в SQLite 3.7.2 принимает только формат по умолчанию 'pcx', число строк запрашивается отдельно
+        long total = interviewDao.countOf();
+        // совпадения оцениваются по мере чтения, в памяти остаются только limit лучших
+        PriorityQueue<Object[]> top = new PriorityQueue<>(limit, WORST_FIRST);
+        if (dialect.isFullTextSearchSupported()) {
+            GenericRawResults<Object[]> results = null;
+            try {
+                results = interviewDao.queryRaw(
+                        "SELECT docid, matchinfo(`" + TABLE + "`) FROM `" + TABLE + "` WHERE `" + TABLE + "` MATCH ?",
+                        new DataType[]{DataType.INTEGER, DataType.BYTE_ARRAY}, toMatchExpression(null, query));
+                for (Object[] row : results) {
+                    offer(top, limit, (Integer) row[0], score((byte[]) row[1], total));
+                }
+            } finally {
+                if (results != null)
+                    results.close();
+            }
+        } else {
+            searchWithoutFullText(tokens, total, top, limit);
+        }
+        Object[][] rows = top.toArray(new Object[top.size()][]);
+        Arrays.sort(rows, WORST_FIRST.reversed());
+        for (Object[] row : rows) {
+            ids.add((Integer) row[0]);
+        }
+        return ids;
+    }
+
+    /**
+     * Добавляет результат к отобранным, если он лучше худшего из них (отобранных не больше limit)
+     */
+    private static void offer(PriorityQueue<Object[]> top, int limit, int id, double score) {
+        Object[] row = {id, score};
+        if (top.size() < limit) {
+            top.add(row);
+        } else if (WORST_FIRST.compare(row, top.peek()) > 0) {
+            top.poll();
+            top.add(row);
+        }
+    }
+
+    /**
+     * Поиск по таблице индекса без FTS4: строки со всеми словами запроса и релевантность по тем же правилам,
+     * что и для matchinfo (количество строк со словом в колонке - отдельным запросом на каждое слово)
+     * @param top отобранные результаты (id интервью и релевантность), в которые добавляются найденные
+     * @param limit максимальное количество отобранных результатов
+     */
+    private void searchWithoutFullText(List<String> tokens, long total, PriorityQueue<Object[]> top, int limit)
+            throws SQLException {
+        String[] columns = {FIO_COLUMN, POST_COLUMN, COMMENT_COLUMN};
+        double[][] weights = new double[tokens.size()][columns.length];
+        StringBuilder counts = new StringBuilder("SELECT ");
+        for (int c = 0; c < columns.length; c++) {
+            counts.append(c > 0 ? ", " : "").append("SUM(CASE WHEN ").append(columns[c]).append(" LIKE ? THEN 1 ELSE 0 END)");
+        }
+        counts.append(" FROM `").append(TABLE).append('`');
+        for (int t = 0; t < tokens.size(); t++) {
+            String pattern = likePattern(tokens.get(t));
+            String[] rowsWithHits = interviewDao.queryRaw(counts.toString(), pattern, pattern, pattern).getFirstResult();
+            for (int c = 0; c < columns.length; c++) {
+                long hits = rowsWithHits[c] == null ? 0 : Long.parseLong(rowsWithHits[c]);
+                weights[t][c] = hits == 0 ? 0 : COLUMN_WEIGHTS[c] * Math.log(1.0 + (double) total / hits);
+            }
+        }
+        List<String> args = new ArrayList<>();
+        String condition = likeCondition(null, tokens, args);
+        GenericRawResults<String[]> results = null;
+        try {
+            results = interviewDao.queryRaw("SELECT docid, " + FIO_COLUMN + ", " + POST_COLUMN + ", " + COMMENT_COLUMN
+                    + " FROM `" + TABLE + "` WHERE " + condition, args.toArray(new String[args.size()]));
+            for (String[] row : results) {
+                double score = 0;
+                for (int t = 0; t < tokens.size(); t++) {
+                    for (int c = 0; c < columns.length; c++) {
+                        score += weights[t][c] * countWords(row[c + 1], tokens.get(t));
+                    }
+                }
+                offer(top, limit, Integer.parseInt(row[0]), score);
+            }
+        } finally {
+            if (results != null)
+                results.close();
+        }
+    }
+
+    /**
+     * Строит условие фильтра интервью по индексу: слова ФИО, должности и текста (в любой колонке)
+     * ищутся по префиксу, все слова должны найтись
+     * @param fio слова из ФИО кандидата
+     * @param post слова из должности
+     * @param text слова из любой колонки
+     * @param args список, в который добавляются значения параметров условия
+     * @return String условие на `interview`.`idInterview` или пустая строка, если слов нет
+     */
+    public String matchCondition(String fio, String post, String text, List<String> args) {
+        if (dialect.isFullTextSearchSupported()) {
+            String match = (toMatchExpression(FIO_COLUMN, fio) + " " + toMatchExpression(POST_COLUMN, post) + " "
+                    + toMatchExpression(null, text)).trim();
+            if (match.isEmpty()) {
+                return "";
+            }
+            args.add(match);
+            return "`interview`.`idInterview` IN (SELECT docid FROM `" + TABLE + "` WHERE `" + TABLE + "` MATCH ?)";
+        }
+        List<String> conditions = new ArrayList<>();
+        String condition = likeCondition(FIO_COLUMN, tokens(fio), args);
+        if (!condition.isEmpty())
+            conditions.add(condition);
+        condition = likeCondition(POST_COLUMN, tokens(post), args);
+        if (!condition.isEmpty())
+            conditions.add(condition);
+        condition = likeCondition(null, tokens(text), args);
+        if (!condition.isEmpty())
+            conditions.add(condition);
+        if (conditions.isEmpty()) {
+            return "";
+        }
+        return "`interview`.`idInterview` IN (SELECT docid FROM `" + TABLE + "` WHERE " + String.join(" AND ", conditions) + ")";
+    }
+
+    /**
+     * Строит условие LIKE для поиска без FTS4: каждое слово ищется по префиксу
+     * @param column колонка индекса или null для поиска по всем колонкам
+     */
+    private static String likeCondition(String column, List<String> tokens, List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        for (String token : tokens) {
+            conditions.add((column == null ? ALL_COLUMNS : column) + " LIKE ?");
+            args.add(likePattern(token));
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    private static String likePattern(String token) {
+        // слово состоит только из букв и цифр, экранировать % и _ не нужно
+        return "% " + token + "%";
+    }
+
+    /**
+     * Считает слова колонки индекса без FTS4, начинающиеся с token
+     */
+    private static int countWords(String value, String token) {
+        int count = 0;
+        if (value == null) {
+            return count;
+        }
+        String prefix = " " + token;
+        for (int i = value.indexOf(prefix); i >= 0; i = value.indexOf(prefix, i + prefix.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Разбивает введенный текст на нормализованные слова
+     */
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : KeyUtil.normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Строит выражение MATCH: каждое слово ищется по префиксу, слова объединяются через И
+     * @param column колонка индекса или null для поиска по всем колонкам
+     * @param text введенный текст
+     * @return выражение для MATCH или пустая строка, если слов нет
+     */
+    public static String toMatchExpression(String column, String text) {
+        StringBuilder match = new StringBuilder();
+        for (String token : tokens(text)) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            if (column != null) {
+                match.append(column).append(':');
+            }
+            match.append(token).append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * Вычисляет релевантность по результату matchinfo (формат 'pcx'):
+     * для каждой фразы и колонки учитываются вхождения в строку и редкость фразы (tf-idf)
+     * @param matchInfo массив 32-битных чисел в порядке байтов платформы
+     * @param rows количество строк в индексе
+     * @return double релевантность
+     */
+    private static double score(byte[] matchInfo, long rows) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int offset = 8 + 12 * (p * columns + c);
+                int hitsInRow = buffer.getInt(offset);
+                int rowsWithHits = buffer.getInt(offset + 8);
+                if (hitsInRow > 0) {
+                    double weight = c < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[c] : 1.0;
+                    score += weight * hitsInRow * Math.log(1.0 + (double) rows / rowsWithHits);
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Добавляет в индекс строку из SOURCE_QUERY
+     * @param row id интервью, ФИО, должность, опыт, рекомендации, последнее место работы, комментарий
+     * @throws SQLException
+     */
+    private void insert(String[] row) throws SQLException {
+        interviewDao.updateRaw(INSERT, toInsertArguments(row));
+    }
+
+    /**
+     * Готовит значения для INSERT по строке из SOURCE_QUERY (используется и при пакетной загрузке интервью)
+     * @param row id интервью, ФИО, должность, опыт, рекомендации, последнее место работы, комментарий
+     * @return String[] docid и нормализованные ФИО, должность и текст комментариев
+     */
+    String[] toInsertArguments(String[] row) {
+        StringBuilder comment = new StringBuilder();
+        for (int i = 3; i < row.length; i++) {
+            if (row[i] != null) {
+                comment.append(row[i]).append(' ');
+            }
+        }
+        return new String[]{row[0], normalize(row[1]), normalize(row[2]), normalize(comment.toString())};
+    }
+
+    private String normalize(String value) {
+        if (!dialect.isFullTextSearchSupported()) {
+            StringBuilder words = new StringBuilder();
+            for (String token : tokens(value)) {
+                words.append(' ').append(token);
+            }
+            return words.toString();
+        }
+        return value == null ? "" : KeyUtil.normalize(value);
+    }
+
+    private <T> T callBatch(Callable<T> callable) throws SQLException {
+        try {
+            return interviewDao.callBatchTasks(callable);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш подготовленных запросов JDBC-подключения.
+ * ORMLite готовит запрос при каждом выполнении и закрывает его после; подключение с кэшем не закрывает запрос,
+ * а сбрасывает его параметры и сохраняет, и следующий запрос с тем же текстом выполняется без повторной подготовки
+ * (в SQLite - разбора запроса, на сервере - еще и обмена по сети). Вытесняются давно не использованные запросы,
+ * при закрытии подключения закрываются все сохраненные запросы.
+ * Подключение пула используется одним потоком, поэтому запрос, уже выданный потоку, повторно не выдается
+ */
+class StatementCache implements InvocationHandler {
+    private final Connection connection;
+    private final int maxSize;
+    private final AtomicLong hitCount;
+    // свободные подготовленные запросы по тексту и параметрам prepareStatement, от давно использованных к недавним
+    private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    private StatementCache(Connection connection, int maxSize, AtomicLong hitCount) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.hitCount = hitCount;
+    }
+
+    /**
+     * Метод, добавляющий подключению кэш подготовленных запросов
+     * @param connection подключение
+     * @param maxSize количество хранимых запросов (0 - подключение возвращается без кэша)
+     * @param hitCount счетчик запросов, взятых из кэша
+     * @return Connection подключение с кэшем
+     */
+    static Connection wrap(Connection connection, int maxSize, AtomicLong hitCount) {
+        if (maxSize <= 0)
+            return connection;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new StatementCache(connection, maxSize, hitCount));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "prepareStatement":
+                return prepare(method, args);
+            case "close":
+                closeStatements();
+                break;
+        }
+        return call(connection, method, args);
+    }
+
+    /**
+     * Выдает запрос из кэша или готовит новый
+     */
+    private Object prepare(Method method, Object[] args) throws Throwable {
+        String key = Arrays.toString(args);
+        PreparedStatement statement;
+        synchronized (statements) {
+            statement = statements.remove(key);
+        }
+        if (statement != null) {
+            hitCount.incrementAndGet();
+        } else {
+            statement = (PreparedStatement) call(connection, method, args);
+        }
+        return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                new CachedStatement(key, statement));
+    }
+
+    /**
+     * Возвращает запрос в кэш после сброса, вытесняя давно не использованные запросы
+     */
+    private void release(String key, PreparedStatement statement) throws SQLException {
+        PreparedStatement evicted = null;
+        synchronized (statements) {
+            if (!connection.isClosed() && !statements.containsKey(key)) {
+                statements.put(key, statement);
+                statement = null;
+                if (statements.size() > maxSize) {
+                    Iterator<PreparedStatement> eldest = statements.values().iterator();
+                    evicted = eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        if (statement != null)
+            statement.close();
+        if (evicted != null)
+            evicted.close();
+    }
+
+    private void closeStatements() {
+        synchronized (statements) {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // подключение все равно закрывается
+                }
+            }
+            statements.clear();
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Подготовленный запрос, выданный из кэша: close сбрасывает запрос и возвращает его в кэш
+     */
+    private class CachedStatement implements InvocationHandler {
+        private final String key;
+        private final PreparedStatement statement;
+        private boolean closed;
+        // запрос изменил настройки, которые нужно сбросить перед повторным использованием
+        private boolean batched;
+        private boolean limited;
+        // последний открытый результат (закрытие запроса закрывает его результат)
+        private ResultSet resultSet;
+
+        CachedStatement(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        reset();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "addBatch":
+                    batched = true;
+                    break;
+                case "setMaxRows":
+                case "setQueryTimeout":
+                case "setFetchSize":
+                    limited = true;
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Подготовленный запрос закрыт");
+            if (method.getName().equals("getMoreResults")) {
+                // у запроса один результат; sqlite-jdbc здесь закрывает сам запрос, поэтому вызов не передается
+                if (resultSet != null)
+                    resultSet.close();
+                return false;
+            }
+            Object result = call(statement, method, args);
+            if (result instanceof ResultSet)
+                resultSet = (ResultSet) result;
+            return result;
+        }
+
+        private void reset() throws SQLException {
+            try {
+                if (resultSet != null)
+                    resultSet.close();
+                statement.clearParameters();
+                if (batched)
+                    statement.clearBatch();
+                if (limited) {
+                    statement.setMaxRows(0);
+                    statement.setQueryTimeout(0);
+                    statement.setFetchSize(0);
+                }
+            } catch (SQLException e) {
+                // запрос, который не удалось сбросить, не используется повторно
+                statement.close();
+                return;
+            }
+            release(key, statement);
+        }
+    }
+}
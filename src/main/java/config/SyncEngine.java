@@ -0,0 +1,88 @@
+package config;
+
+import model.SyncStatistics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Синхронизация двух БД по журналам изменений (см. ChangeLog).
+ * Каждая БД помнит, до какой записи прочитан журнал другой, поэтому передаются только записи журнала
+ * после прошлой синхронизации: объем работы зависит от количества изменений, а не от размера БД.
+ * Записи читаются порциями, строка, изменявшаяся в порции несколько раз, передается один раз в текущем состоянии.
+ * Порция применяется одной транзакцией вместе с отметкой о прочитанных записях.
+ * Конфликт (строка изменена в обеих БД) разрешается в пользу более новой версии: больших часов Лэмпорта,
+ * при равенстве - большей реплики, поэтому обе БД приходят к одному состоянию
+ */
+public class SyncEngine {
+    private final int batchSize;
+
+    /**
+     * @param batchSize количество записей журнала в одной порции
+     */
+    public SyncEngine(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Передает изменения другой БД в эту и изменения этой БД в другую
+     * @param local эта БД
+     * @param remote другая БД
+     * @return SyncStatistics итог синхронизации
+     * @throws SQLException
+     */
+    public SyncStatistics sync(DatabaseHelper local, DatabaseHelper remote) throws SQLException {
+        if (local.getChangeLog().getReplica().equals(remote.getChangeLog().getReplica()))
+            throw new SQLException("БД является копией синхронизируемой БД (одинаковая реплика)");
+        long start = System.currentTimeMillis();
+        long[] received = pull(remote, local);
+        long[] sent = pull(local, remote);
+        return new SyncStatistics(received[0], sent[0], received[1] + sent[1], System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Применяет в target изменения из журнала source, еще не прочитанные target
+     * @return long[] количество примененных и пропущенных изменений
+     */
+    private long[] pull(DatabaseHelper source, DatabaseHelper target) throws SQLException {
+        ChangeLog from = source.getChangeLog();
+        ChangeLog to = target.getChangeLog();
+        String sourceReplica = from.getReplica();
+        String targetReplica = to.getReplica();
+        long seq = to.getWatermark(sourceReplica);
+        long lastSeq = from.getLastSeq();
+        long applied = 0;
+        long skipped = 0;
+        while (seq < lastSeq) {
+            // изменения самой target, вернувшиеся к ней через source, не читаются
+            List<String[]> entries = from.readChanges(seq, lastSeq, targetReplica, batchSize);
+            // неполная порция - прочитаны все записи до lastSeq
+            seq = entries.size() < batchSize ? lastSeq : Long.parseLong(entries.get(entries.size() - 1)[0]);
+            Map<ChangeLog.Table, Set<String>> uids = new LinkedHashMap<>();
+            for (String[] entry : entries) {
+                uids.computeIfAbsent(ChangeLog.table(entry[1]), table -> new LinkedHashSet<>()).add(entry[2]);
+            }
+            Map<ChangeLog.Table, List<ChangeLog.RowChange>> changes = new LinkedHashMap<>();
+            int count = 0;
+            for (Map.Entry<ChangeLog.Table, Set<String>> table : uids.entrySet()) {
+                List<ChangeLog.RowChange> rows = new ArrayList<>();
+                for (ChangeLog.RowChange row : from.readRows(table.getKey(), table.getValue())) {
+                    // строки нет в таблице, хотя она не отмечена удаленной: передавать нечего
+                    if (row.deleted || row.values != null)
+                        rows.add(row);
+                }
+                changes.put(table.getKey(), rows);
+                count += rows.size();
+            }
+            int done = target.applyChanges(sourceReplica, seq, changes);
+            applied += done;
+            skipped += count - done;
+        }
+        return new long[]{applied, skipped};
+    }
+}
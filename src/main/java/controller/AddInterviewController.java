@@ -1,10 +1,10 @@
 package controller;
 
+import config.AsyncDatabaseHelper;
 import config.HelperFactory;
 import entity.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.ObservableSet;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -17,6 +17,7 @@ import model.CategoryRow;
 import org.controlsfx.control.textfield.AutoCompletionBinding;
 import org.controlsfx.control.textfield.TextFields;
 import util.DateTimeUtil;
+import util.ConstantManager;
 import util.DateUtil;
 import util.Validator;
 import view.DialogManager;
@@ -26,6 +27,8 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 public class AddInterviewController extends ControllerTemplate implements ExceptionListener {
@@ -33,6 +36,7 @@ public class AddInterviewController extends ControllerTemplate implements Except
     private int interviewId=0;
     private int candidateId=0;
     private int interviewerId=0;
+    private InterviewComment interviewComment = new InterviewComment();
 
     // Таблица оценок
     @FXML
@@ -83,9 +87,7 @@ public class AddInterviewController extends ControllerTemplate implements Except
 
     // binding для "живого" поиска
     private AutoCompletionBinding<Candidate> autoCompletionCandidateBinding;
-    private ObservableSet<Candidate> possibleCandidateSuggestions = FXCollections.observableSet();
     private AutoCompletionBinding<Interviewer> autoCompletionInterviewerBinding;
-    private ObservableSet<Interviewer> possibleInterviewerSuggestions = FXCollections.observableSet();
 
     /**
      * Метод для инициализации компонентов формы
@@ -103,12 +105,29 @@ public class AddInterviewController extends ControllerTemplate implements Except
      * @throws SQLException
      */
     private void initAutoCompletion()throws SQLException {
-        possibleCandidateSuggestions.addAll(HelperFactory.getHelper().getCandidates());
-        autoCompletionCandidateBinding = TextFields.bindAutoCompletion(
-                fioEdit, possibleCandidateSuggestions);
-        possibleInterviewerSuggestions.addAll(HelperFactory.getHelper().getInterviewers());
-        autoCompletionInterviewerBinding = TextFields.bindAutoCompletion(
-                interviewerEdit, possibleInterviewerSuggestions);
+        // подсказки берутся из общих индексов DatabaseHelper; ControlsFX запрашивает их не в потоке JavaFX.
+        // При первом открытии диалога индексы заполняются заранее в потоке работы с БД
+        HelperFactory.getAsyncHelper().submit(helper -> {
+            helper.getCandidateSuggestions("", 0);
+            helper.getInterviewerSuggestions("", 0);
+            return null;
+        }).exceptionally(this::handleAsyncException);
+        autoCompletionCandidateBinding = TextFields.bindAutoCompletion(fioEdit, request -> {
+            try {
+                return HelperFactory.getHelper().getCandidateSuggestions(request.getUserText(), ConstantManager.SUGGESTIONS_LIMIT);
+            } catch (SQLException e) {
+                // без подсказок: ошибка БД будет показана при сохранении интервью
+                return new ArrayList<>();
+            }
+        });
+        autoCompletionInterviewerBinding = TextFields.bindAutoCompletion(interviewerEdit, request -> {
+            try {
+                return HelperFactory.getHelper().getInterviewerSuggestions(request.getUserText(), ConstantManager.SUGGESTIONS_LIMIT);
+            } catch (SQLException e) {
+                // без подсказок: ошибка БД будет показана при сохранении интервью
+                return new ArrayList<>();
+            }
+        });
         autoCompletionCandidateBinding.setOnAutoCompleted(event -> {
             Candidate candidate = event.getCompletion();
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
@@ -138,7 +157,9 @@ public class AddInterviewController extends ControllerTemplate implements Except
      */
     public void addInterview() throws SQLException {
         interviewId = 0;
-        fillMarksTable();
+        HelperFactory.getAsyncHelper().getInterviewMarksAll(interviewId)
+                .thenAccept(this::fillMarksTable)
+                .exceptionally(this::handleAsyncException);
     }
 
     /**
@@ -147,12 +168,23 @@ public class AddInterviewController extends ControllerTemplate implements Except
      */
     public void editInterview(int id) throws SQLException {
         interviewId = id;
-        Interview interview = HelperFactory.getHelper().getInterviewById(id);
-        candidateId = interview.getIdCandidate().getIdCandidate();
-        interviewerId = interview.getIdInterviewer().getIdInterviewer();
-        fillRequiredFields(interview);
-        fillMarksTable();
-        fillCommentsFilds();
+        // диалог открывается сразу, поля заполняются после загрузки интервью
+        HelperFactory.getAsyncHelper().getInterviewDetail(id)
+                .thenAccept(detail -> {
+                    if (detail == null) {
+                        // интервью удалено после построения списка (фильтром, синхронизацией, другим рабочим местом)
+                        DialogManager.showInfoDialog(ConstantManager.EDIT_INTERVIEW_TITLE,
+                                "Собеседование не найдено: запись удалена");
+                        dlgAddInterviewStage.close();
+                        return;
+                    }
+                    candidateId = detail.getCandidate().getIdCandidate();
+                    interviewerId = detail.getInterviewer().getIdInterviewer();
+                    fillRequiredFields(detail.getInterview());
+                    fillMarksTable(detail.getMarks());
+                    fillCommentsFilds(detail.getComment());
+                })
+                .exceptionally(this::handleAsyncException);
     }
 
     /**
@@ -186,62 +218,59 @@ public class AddInterviewController extends ControllerTemplate implements Except
 
     /**
      * Метод для заполнения таблицы оценок интервью
+     * @param categoryRows оценки по всем критериям
      */
-    private void fillMarksTable(){
-        try {
-            // устанавливаем тип и значение которое должно хранится в колонке
-            valueCol.setCellValueFactory(new PropertyValueFactory("value"));
-            categoryCol.setCellValueFactory(new PropertyValueFactory<CategoryRow, Category>("category"));
-            // заполняем таблицу данными
-            marks.addAll(HelperFactory.getHelper().getInterviewMarksAll(interviewId));
-            categoriesTable.setItems(marks);
-            categoriesTable.setEditable(true);
-            StringConverter<Double> converter = new StringConverter<Double>() {
-                @Override
-                public String toString(Double object) {
-                    return object.toString();
-                }
+    private void fillMarksTable(List<CategoryRow> categoryRows){
+        // устанавливаем тип и значение которое должно хранится в колонке
+        valueCol.setCellValueFactory(new PropertyValueFactory("value"));
+        categoryCol.setCellValueFactory(new PropertyValueFactory<CategoryRow, Category>("category"));
+        // заполняем таблицу данными
+        marks.addAll(categoryRows);
+        categoriesTable.setItems(marks);
+        categoriesTable.setEditable(true);
+        StringConverter<Double> converter = new StringConverter<Double>() {
+            @Override
+            public String toString(Double object) {
+                return object.toString();
+            }
 
-                @Override
-                public Double fromString(String string) {
+            @Override
+            public Double fromString(String string) {
+                try{
+                    return Double.parseDouble(string);
+                } catch (NumberFormatException e) {
                     try{
-                        return Double.parseDouble(string);
-                    } catch (NumberFormatException e) {
-                        try{
-                            if(string.contains(",")){
-                                string = string.replace(',', '.');
-                            } else if(string.contains(".")){
-                                string = string.replace('.', ',');
-                            }
-                            return Double.parseDouble(string);
-                        }catch (NumberFormatException ex){
-                            handleExceptionAndShowDialog(ex);
-                            return  0.0;
+                        if(string.contains(",")){
+                            string = string.replace(',', '.');
+                        } else if(string.contains(".")){
+                            string = string.replace('.', ',');
                         }
+                        return Double.parseDouble(string);
+                    }catch (NumberFormatException ex){
+                        handleExceptionAndShowDialog(ex);
+                        return  0.0;
                     }
-//                    string = string.replace(',', '.');
                 }
-            };
-            valueCol.setCellFactory(
-                    TextFieldTableCell.<CategoryRow, Double>forTableColumn(converter));
-            valueCol.setOnEditCommit(
-                    (TableColumn.CellEditEvent<CategoryRow, Double> t) -> {
-                        ((CategoryRow) t.getTableView().getItems().get(
-                                t.getTablePosition().getRow())
-                        ).setValue(t.getNewValue());
-                    });
-        } catch (SQLException e){}
+//                    string = string.replace(',', '.');
+            }
+        };
+        valueCol.setCellFactory(
+                TextFieldTableCell.<CategoryRow, Double>forTableColumn(converter));
+        valueCol.setOnEditCommit(
+                (TableColumn.CellEditEvent<CategoryRow, Double> t) -> {
+                    ((CategoryRow) t.getTableView().getItems().get(
+                            t.getTablePosition().getRow())
+                    ).setValue(t.getNewValue());
+                });
     }
 
     /**
      * Метод для заполнения комментариев к интервью
+     * @param interviewComment комментарий к интервью
      */
-    private void fillCommentsFilds(){
+    private void fillCommentsFilds(InterviewComment interviewComment){
+        this.interviewComment = interviewComment;
         try {
-            InterviewComment interviewComment = HelperFactory.getHelper().getInterviewCommentByIdInterview(interviewId);
-            if (interviewComment == null) {
-                interviewComment = HelperFactory.getHelper().addOrEditInterviewComment(interviewId, "", "", "", "");
-            }
             expEdit.setText(interviewComment.getExperience());
             recommendationEdit.setText(interviewComment.getRecommendations());
             lastWorkEdit.setText(interviewComment.getLastWork());
@@ -263,15 +292,20 @@ public class AddInterviewController extends ControllerTemplate implements Except
             Validator.checkDate(DateUtil.format(birthDatePicker.getValue()));
             String interviewDate = interviewDateTime.split(" ")[0];
             String interviewTime = interviewDateTime.split(" ")[1];
-            Interview interview = HelperFactory.getHelper().editOrAddInterview(
+            interviewComment.setExperience(expEdit.getText());
+            interviewComment.setRecommendations(recommendationEdit.getText());
+            interviewComment.setLastWork(lastWorkEdit.getText());
+            interviewComment.setComment(commentsEdit.getText());
+            // интервью, оценки и комментарий сохраняются одной транзакцией в потоке работы с БД
+            HelperFactory.getAsyncHelper().editOrAddInterview(
                     interviewId, interviewDate,
                     candidateId, fioEdit.getText(), DateUtil.format(birthDatePicker.getValue()),
                     interviewerId, interviewerEdit.getText(),
                     resultEdit.getText(), postEdit.getText(),
                     interviewTime,
-                    marks);
-            HelperFactory.getHelper().addOrEditInterviewComment(interview.getIdInterview(), expEdit.getText(), recommendationEdit.getText(), lastWorkEdit.getText(), commentsEdit.getText());
-            dlgAddInterviewStage.close();
+                    new ArrayList<>(marks), interviewComment)
+                    .thenRun(dlgAddInterviewStage::close)
+                    .exceptionally(this::handleAsyncException);
         } catch (Exception e){
             handleExceptionAndShowDialog(e);
         }
@@ -286,6 +320,18 @@ public class AddInterviewController extends ControllerTemplate implements Except
         DialogManager.showErrorDialog("It's an error, breathe deeply", throwable.getMessage());
     }
 
+    /**
+     * Обрабатывает ошибку асинхронного запроса к БД
+     * @param throwable ошибка из CompletableFuture
+     * @return Void null для CompletableFuture.exceptionally
+     */
+    private Void handleAsyncException(Throwable throwable) {
+        if (!AsyncDatabaseHelper.isCancelled(throwable)) {
+            handleExceptionAndShowDialog(AsyncDatabaseHelper.unwrap(throwable));
+        }
+        return null;
+    }
+
     /**
      * Обрабатывает исключения и отображает в консоль
      * @param exception
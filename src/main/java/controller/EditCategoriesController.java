@@ -1,5 +1,6 @@
 package controller;
 
+import config.AsyncDatabaseHelper;
 import config.HelperFactory;
 import entity.Candidate;
 import entity.Category;
@@ -10,6 +11,8 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
+import util.ConstantManager;
+import view.DialogManager;
 
 import java.io.IOException;
 import java.sql.SQLException;
@@ -43,14 +46,22 @@ public class EditCategoriesController extends ControllerTemplate{
         return primaryStage;
     }
 
+    /**
+     * Загружает критерии при каждом открытии диалога: разметка может быть разобрана заранее
+     * (см. ViewTemplateCache), и список, загруженный при разборе, уже устарел бы
+     * @param stage окно диалога
+     * @throws SQLException
+     */
     public void init(Stage stage) throws SQLException {
         primaryStage = stage;
+        HelperFactory.getAsyncHelper().getCategories()
+                .thenAccept(categories::setAll)
+                .exceptionally(this::showError);
     }
 
     @FXML
     private void initialize() throws SQLException {
         nameColumn.setCellValueFactory(new PropertyValueFactory<Category, String>("name"));
-        categories.addAll(HelperFactory.getHelper().getCategories());
         categoryTable.setItems(categories);
     }
 
@@ -71,19 +82,33 @@ public class EditCategoriesController extends ControllerTemplate{
     private void removeCategory()throws IOException, SQLException {
         Category category = categoryTable.getSelectionModel().getSelectedItem();
         int selectedCategoryId = category.getIdCategory();
-        HelperFactory.getHelper().delCategoryById(selectedCategoryId);
-        categories.remove(category);
+        HelperFactory.getAsyncHelper().delCategoryById(selectedCategoryId)
+                .thenRun(() -> categories.remove(category))
+                .exceptionally(this::showError);
     }
 
     private void addCategory()throws IOException, SQLException {
         String newCategoryName = addEdit.getText();
-        Category category = HelperFactory.getHelper().getCategoryByName(newCategoryName);
-        if (category == null) {
-            category = HelperFactory.getHelper().addCategory(newCategoryName);
-            addEdit.clear();
-            categories.add(category);
-            categoryTable.setItems(categories);
+        HelperFactory.getAsyncHelper().addCategoryIfAbsent(newCategoryName)
+                .thenAccept(category -> {
+                    if (category != null) {
+                        addEdit.clear();
+                        categories.add(category);
+                    }
+                })
+                .exceptionally(this::showError);
+    }
+
+    /**
+     * Показывает ошибку асинхронного запроса к БД
+     * @param throwable ошибка из CompletableFuture
+     * @return Void null для CompletableFuture.exceptionally
+     */
+    private Void showError(Throwable throwable) {
+        if (!AsyncDatabaseHelper.isCancelled(throwable)) {
+            DialogManager.showErrorDialog(ConstantManager.EDIT_CATEGORY_TITLE, AsyncDatabaseHelper.unwrap(throwable).getMessage());
         }
+        return null;
     }
 }
 
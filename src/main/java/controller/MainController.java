@@ -1,16 +1,20 @@
 package controller;
 
 import config.AppConfig;
+import config.AsyncDatabaseHelper;
 import config.DatabaseHelper;
 import config.HelperFactory;
 import config.SystemConfig;
-import entity.Interview;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
@@ -21,6 +25,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import model.InterviewListRow;
 import util.ConstantManager;
 import controller.ShowDialogClass;
 import view.DialogManager;
@@ -28,12 +33,20 @@ import view.DialogManager;
 import java.io.*;
 import java.net.URL;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static util.DBUtil.*;
 
 public class MainController {
     // Связывание данных
-    private ObservableList<Interview> interviews = FXCollections.observableArrayList(); // источник данных для интервью
+    private ObservableList<InterviewListRow> interviews = FXCollections.observableArrayList(); // источник данных для интервью
+    // Постраничная загрузка (без фильтров): курсор последнего загруженного интервью
+    private boolean pagingMode;
+    private boolean hasMorePages;
+    private Long lastDateTime;
+    private int lastInterviewId;
+    private CompletableFuture<List<InterviewListRow>> pageLoad; // загрузка очередной страницы
     // Сцены
     private VBox addInterviewDlg;
     private VBox addInterviewerDlg;
@@ -43,19 +56,21 @@ public class MainController {
     private Stage dlgStage; // ?
 
     @FXML
-    TableView<Interview> mainTable;
+    TableView<InterviewListRow> mainTable;
     @FXML
-    TableColumn<Interview, String> fioColumn;
+    TableColumn<InterviewListRow, String> fioColumn;
     @FXML
-    TableColumn<Interview, String> postColumn;
+    TableColumn<InterviewListRow, String> postColumn;
     @FXML
-    TableColumn<Interview, String> dateColumn;
+    TableColumn<InterviewListRow, String> dateColumn;
     @FXML
     TextField fioFilter;
     @FXML
     TextField postFilter;
     @FXML
     TextField dateFilter;
+    @FXML
+    TextField textFilter;
 
 
     public void setPrimaryStage(Stage primaryStage) {
@@ -94,12 +109,90 @@ public class MainController {
             }
         });
         // устанавливаем тип и значение которое должно хранится в колонке
-        fioColumn.setCellValueFactory(new PropertyValueFactory<Interview, String>("idCandidate"));
-        postColumn.setCellValueFactory(new PropertyValueFactory<Interview, String>("post"));
-        dateColumn.setCellValueFactory(new PropertyValueFactory<Interview, String>("date"));
-        // заполняем таблицу данными
-        interviews.addAll(HelperFactory.getHelper().getInterview());
+        fioColumn.setCellValueFactory(new PropertyValueFactory<InterviewListRow, String>("fio"));
+        postColumn.setCellValueFactory(new PropertyValueFactory<InterviewListRow, String>("post"));
+        dateColumn.setCellValueFactory(new PropertyValueFactory<InterviewListRow, String>("date"));
+        // при прокрутке к концу таблицы подгружаем следующую страницу
+        mainTable.skinProperty().addListener((observable, oldSkin, newSkin) -> Platform.runLater(() -> {
+            for (Node node : mainTable.lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                    ScrollBar scrollBar = (ScrollBar) node;
+                    scrollBar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                        if (pagingMode && newValue.doubleValue() >= scrollBar.getMax() * 0.95) {
+                            loadNextPage();
+                        }
+                    });
+                }
+            }
+        }));
+        // заполняем таблицу первой страницей данных
         mainTable.setItems(interviews);
+        refreshTable();
+    }
+
+    /**
+     * Перезаполняет таблицу с учетом фильтров: без фильтров - постранично, с фильтрами - целиком.
+     * Запрос выполняется асинхронно, незавершенный запрос предыдущего фильтра отменяется
+     * @throws SQLException
+     */
+    private void refreshTable() throws SQLException {
+        String fio = fioFilter.getText();
+        String post = postFilter.getText();
+        String date = dateFilter.getText();
+        String text = textFilter.getText();
+        interviews.clear();
+        pagingMode = isEmpty(fio) && isEmpty(post) && isEmpty(date) && isEmpty(text);
+        if (pagingMode) {
+            lastDateTime = null;
+            lastInterviewId = 0;
+            hasMorePages = true;
+            pageLoad = null;
+            loadNextPage();
+        } else {
+            HelperFactory.getAsyncHelper().getInterviewRows(fio, post, date, text)
+                    .thenAccept(interviews::setAll)
+                    .exceptionally(this::showError);
+        }
+    }
+
+    /**
+     * Асинхронно подгружает в таблицу следующую страницу интервью (если она еще не загружается)
+     */
+    private void loadNextPage() {
+        if (!hasMorePages || pageLoad != null && !pageLoad.isDone())
+            return;
+        try {
+            pageLoad = HelperFactory.getAsyncHelper()
+                    .getInterviewRowPage(lastDateTime, lastInterviewId, ConstantManager.INTERVIEW_PAGE_SIZE);
+        } catch (SQLException e) {
+            showError(e);
+            return;
+        }
+        pageLoad.thenAccept(page -> {
+            if (!page.isEmpty()) {
+                InterviewListRow last = page.get(page.size() - 1);
+                lastDateTime = last.getDateTime();
+                lastInterviewId = last.getIdInterview();
+            }
+            hasMorePages = page.size() == ConstantManager.INTERVIEW_PAGE_SIZE;
+            interviews.addAll(page);
+        }).exceptionally(this::showError);
+    }
+
+    /**
+     * Показывает ошибку асинхронного запроса (отмененные устаревшие запросы не показываются)
+     * @param throwable ошибка
+     * @return Void null для CompletableFuture.exceptionally
+     */
+    private Void showError(Throwable throwable) {
+        if (!AsyncDatabaseHelper.isCancelled(throwable)) {
+            DialogManager.showErrorDialog(ConstantManager.MAIN_VIEW_TITLE, AsyncDatabaseHelper.unwrap(throwable).getMessage());
+        }
+        return null;
+    }
+
+    private static boolean isEmpty(String text) {
+        return text == null || text.trim().isEmpty();
     }
 
     @FXML
@@ -108,11 +201,7 @@ public class MainController {
         AddInterviewController addInterviewController = showDialogClass.showDialogWindow(primaryStage,AppConfig.FXML_ADD_INTERVIEW_DLG_URL,630,500,ConstantManager.ADD_INTERVIEW_TITLE);
         addInterviewController.addInterview();
         addInterviewController.getDlgAddInterviewStage().showAndWait();
-        String fio = fioFilter.getText();
-        String post = postFilter.getText();
-        String date = dateFilter.getText();
-        interviews.clear();
-        interviews.addAll(HelperFactory.getHelper().getInterviewsByCandidateFioAndDateAndPost(fio, post, date));
+        refreshTable();
     }
 
     @FXML
@@ -131,39 +220,43 @@ public class MainController {
 
     @FXML
     private void onFilter() throws SQLException {
-        String fio = fioFilter.getText();
-        String post = postFilter.getText();
-        String date = dateFilter.getText();
-        interviews.clear();
-        interviews.addAll(HelperFactory.getHelper().getInterviewsByCandidateFioAndDateAndPost(fio, post, date));
+        refreshTable();
     }
 
     private void onDeleteInterview() throws SQLException {
 
-        Interview selectedInterview = mainTable.getSelectionModel().getSelectedItem();
-        if(!DialogManager.showConfirmDialog("Подтверждение удаления", "Удалить: " + selectedInterview.getIdCandidate().getFio()))
+        InterviewListRow selectedInterview = mainTable.getSelectionModel().getSelectedItem();
+        if(!DialogManager.showConfirmDialog("Подтверждение удаления", "Удалить: " + selectedInterview.getFio()))
             return;
         if (selectedInterview != null) {
             int selectedInterviewId = selectedInterview.getIdInterview();
-            HelperFactory.getHelper().delInterviewById(selectedInterviewId);
-            interviews.remove(selectedInterview);
+            HelperFactory.getAsyncHelper().delInterviewById(selectedInterviewId)
+                    .thenRun(() -> interviews.remove(selectedInterview))
+                    .exceptionally(this::showError);
         }
     }
 
     private void onEditInterview() throws IOException, SQLException {
         // получаем информацию о выделенном собеседовании
-        Interview selectedInterview = mainTable.getSelectionModel().getSelectedItem();
+        InterviewListRow selectedInterview = mainTable.getSelectionModel().getSelectedItem();
         int selectedInterviewId = selectedInterview.getIdInterview();
-        int interviewPosition = mainTable.getSelectionModel().getSelectedIndex();
         // вызываем диалог редактирования
         ShowDialogClass<AddInterviewController> showDialogClass = new ShowDialogClass<AddInterviewController>();
         AddInterviewController addInterviewController = showDialogClass.showDialogWindow(primaryStage,AppConfig.FXML_ADD_INTERVIEW_DLG_URL,630,500,ConstantManager.ADD_INTERVIEW_TITLE);
         addInterviewController.editInterview(selectedInterviewId);
         addInterviewController.getDlgAddInterviewStage().showAndWait();
         // получаем из БД обновленное собеседование, удаляем старое из таблицы и вставляем новое
-        Interview refreshedInterview = HelperFactory.getHelper().getInterviewById(selectedInterviewId);
-        interviews.remove(selectedInterview);
-        interviews.add(interviewPosition, refreshedInterview);
+        HelperFactory.getAsyncHelper().getInterviewRowById(selectedInterviewId)
+                .thenAccept(refreshedInterview -> {
+                    int position = interviews.indexOf(selectedInterview);
+                    if (position < 0)
+                        return;
+                    if (refreshedInterview == null)
+                        interviews.remove(position);
+                    else
+                        interviews.set(position, refreshedInterview);
+                })
+                .exceptionally(this::showError);
     }
 
 }
@@ -1,15 +1,14 @@
 package controller;
 
 import config.AppConfig;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import view.ViewTemplateCache;
 
 import java.io.IOException;
-import java.net.URL;
 import java.sql.SQLException;
 
 /**
@@ -17,13 +16,24 @@ import java.sql.SQLException;
  */
 public class ShowDialogClass<T extends ControllerTemplate> {
 
+    /**
+     * Создает модальное окно диалога: дерево компонентов и новый контроллер берутся из ViewTemplateCache
+     * (из готовой заготовки, если диалог загружен заранее), время открытия учитывается в статистике
+     * @param primaryStage окно-владелец
+     * @param fxmlurl путь к файлу разметки в ресурсах
+     * @param width ширина
+     * @param height высота
+     * @param title заголовок
+     * @return T контроллер диалога, проинициализированный окном диалога
+     * @throws IOException
+     * @throws SQLException
+     */
     public <T extends ControllerTemplate> T showDialogWindow(Stage primaryStage, String fxmlurl,  int width, int height, String title) throws IOException, SQLException {
+        long start = System.nanoTime();
         Stage dlgStage;
-        FXMLLoader fxmlLoader = new FXMLLoader();
-        URL url = getClass().getClassLoader().getResource(fxmlurl);
-        fxmlLoader.setLocation(url);
-        VBox node = (VBox) fxmlLoader.load();
-        T controller = fxmlLoader.getController();
+        ViewTemplateCache.View view = ViewTemplateCache.take(fxmlurl);
+        VBox node = view.getRoot();
+        T controller = view.getController();
         VBox addDlg = node;
         Scene scene = new Scene(addDlg, width, height);
         dlgStage = new Stage();
@@ -36,6 +46,7 @@ public class ShowDialogClass<T extends ControllerTemplate> {
         dlgStage.setTitle(title);
         dlgStage.getIcons().add(new Image(getClass().getClassLoader().getResource(AppConfig.MAIN_VIEW_ICON).toString()));
         controller.init(dlgStage);
+        ViewTemplateCache.recordOpen(fxmlurl, view, start);
       //  dlgStage.showAndWait();
         return controller;
     }
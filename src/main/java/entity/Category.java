@@ -3,6 +3,7 @@ package entity;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.ForeignCollectionField;
 import com.j256.ormlite.table.DatabaseTable;
+import util.KeyUtil;
 import java.util.Collection;
 
 /**
@@ -16,7 +17,11 @@ public class Category {
     @DatabaseField(columnName = "name",canBeNull = false)
     private String name;
 
-    @ForeignCollectionField(foreignFieldName = "idCategory", eager = true)
+    // нормализованное название для поиска по индексу
+    @DatabaseField(columnName = "nameKey", index = true)
+    private String nameKey;
+
+    @ForeignCollectionField(foreignFieldName = "idCategory", eager = false)
     private Collection<Mark>  marks;
 
     public Category() {
@@ -32,6 +37,11 @@ public class Category {
 
     public void setName(String name) {
         this.name = name;
+        this.nameKey = KeyUtil.normalize(name);
+    }
+
+    public String getNameKey() {
+        return nameKey;
     }
 
     public Collection<Mark> getMarks() {
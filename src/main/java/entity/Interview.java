@@ -1,21 +1,22 @@
 package entity;
 
-import com.j256.ormlite.dao.ForeignCollection;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.ForeignCollectionField;
 import com.j256.ormlite.table.DatabaseTable;
+import util.DateTimeUtil;
 
-import java.util.Date;
+import java.util.Collection;
 
 @DatabaseTable
 public class Interview {
     @DatabaseField (generatedId = true)
     private int idInterview;
 
-    @DatabaseField (columnName = "idCandidate", foreignColumnName = "idCandidate", canBeNull = false, foreign = true)
+    // кандидат и рекрутер загружаются только по плану загрузки (FetchPlan), иначе содержат только id
+    @DatabaseField (columnName = "idCandidate", canBeNull = false, foreign = true, index = true)
     private Candidate idCandidate;
 
-    @DatabaseField (columnName = "idInterviewer", foreignColumnName = "idInterviewer", canBeNull = false, foreign = true)
+    @DatabaseField (columnName = "idInterviewer", canBeNull = false, foreign = true)
     private Interviewer idInterviewer;
 
     @DatabaseField (canBeNull = false)
@@ -28,11 +29,15 @@ public class Interview {
     @DatabaseField
     private String time;
 
+    // дата и время интервью в миллисекундах от начала эпохи (вычисляется из date и time, 0 - дату не удалось разобрать)
+    @DatabaseField (columnName = "dateTime", index = true)
+    private Long dateTime;
+
     @DatabaseField (canBeNull = false)
     private String post;
 
-    @ForeignCollectionField(foreignFieldName = "idInterview", eager = true)
-    private ForeignCollection<Mark> marks;
+    @ForeignCollectionField(foreignFieldName = "idInterview", eager = false)
+    private Collection<Mark> marks;
 
     public Interview() {
     }
@@ -67,6 +72,7 @@ public class Interview {
 
     public void setDate(String date) {
         this.date = date;
+        updateDateTime();
     }
 
     public String getResult() {
@@ -85,11 +91,11 @@ public class Interview {
         this.post = post;
     }
 
-    public ForeignCollection<Mark> getMarks() {
+    public Collection<Mark> getMarks() {
         return marks;
     }
 
-    public void setMarks(ForeignCollection<Mark> marks) {
+    public void setMarks(Collection<Mark> marks) {
         this.marks = marks;
     }
 
@@ -111,5 +117,15 @@ public class Interview {
 
     public void setTime(String time) {
         this.time = time;
+        updateDateTime();
+    }
+
+    private void updateDateTime() {
+        Long millis = DateTimeUtil.toEpochMillis(date, time);
+        this.dateTime = millis == null ? 0L : millis;
+    }
+
+    public Long getDateTime() {
+        return dateTime;
     }
 }
@@ -8,7 +8,7 @@ public class InterviewComment {
     @DatabaseField(generatedId = true)
     private int idIC;
 
-    @DatabaseField (columnName = "idInterview", foreignColumnName = "idInterview", canBeNull = false, foreign = true)
+    @DatabaseField (columnName = "idInterview", canBeNull = false, foreign = true, index = true)
     private Interview idInterview;
 
     @DatabaseField
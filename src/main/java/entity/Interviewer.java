@@ -2,6 +2,7 @@ package entity;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.ForeignCollectionField;
 import com.j256.ormlite.table.DatabaseTable;
+import util.KeyUtil;
 
 import java.util.Collection;
 
@@ -14,8 +15,11 @@ public class Interviewer {
     private int idInterviewer;
     @DatabaseField(canBeNull = false)
     private String fio;
+    // нормализованное ФИО для поиска по индексу
+    @DatabaseField(columnName = "fioKey", index = true)
+    private String fioKey;
 
-    @ForeignCollectionField(foreignFieldName = "idInterviewer", eager = true)
+    @ForeignCollectionField(foreignFieldName = "idInterviewer", eager = false)
     private Collection<Interview> interviews;
 
     @Override
@@ -40,6 +44,11 @@ public class Interviewer {
 
     public void setFio(String fio) {
         this.fio = fio;
+        this.fioKey = KeyUtil.normalize(fio);
+    }
+
+    public String getFioKey() {
+        return fioKey;
     }
 
     public Collection<Interview> getInterviews() {
@@ -17,10 +17,11 @@ public class Mark {
     @DatabaseField(canBeNull = false)
     private double value;
 
-    @DatabaseField (columnName = "idCategory", foreignColumnName = "idCategory", canBeNull = false, foreign = true)
+    // критерий и интервью содержат только id, критерии загружаются планом FetchPlan.Association.MARKS
+    @DatabaseField (columnName = "idCategory", canBeNull = false, foreign = true, index = true)
     private Category idCategory;
 
-    @DatabaseField (columnName = "idInterview", foreignColumnName = "idInterview", canBeNull = false, foreign = true)
+    @DatabaseField (columnName = "idInterview", canBeNull = false, foreign = true, index = true)
     private Interview idInterview;
 
     public Mark() {
@@ -0,0 +1,97 @@
+package entity;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * Состояние напоминания о собеседовании, сохраняемое между запусками приложения.
+ * Запись появляется, только когда напоминание сработало или отложено; без записи напоминание срабатывает
+ * за заданное время до собеседования. Запись относится ко времени собеседования interviewTime:
+ * после переноса собеседования она не действует
+ */
+@DatabaseTable
+public class Reminder {
+    public enum State {
+        // ожидает срабатывания в fireTime
+        PENDING,
+        // показано, повторно не показывается
+        FIRED
+    }
+
+    @DatabaseField (id = true, columnName = "idInterview")
+    private int idInterview;
+
+    // время собеседования (Interview.dateTime), для которого сохранено состояние
+    @DatabaseField (columnName = "interviewTime", canBeNull = false)
+    private long interviewTime;
+
+    @DatabaseField (columnName = "fireTime", canBeNull = false)
+    private long fireTime;
+
+    @DatabaseField (columnName = "state", canBeNull = false)
+    private State state;
+
+    @DatabaseField (columnName = "snoozeCount", canBeNull = false)
+    private int snoozeCount;
+
+    public Reminder() {
+    }
+
+    public Reminder(int idInterview, long interviewTime, long fireTime, State state, int snoozeCount) {
+        this.idInterview = idInterview;
+        this.interviewTime = interviewTime;
+        this.fireTime = fireTime;
+        this.state = state;
+        this.snoozeCount = snoozeCount;
+    }
+
+    @Override
+    public String toString() {
+        return "Reminder{" +
+                "idInterview=" + idInterview +
+                ", fireTime=" + fireTime +
+                ", state=" + state +
+                ", snoozeCount=" + snoozeCount +
+                '}';
+    }
+
+    public int getIdInterview() {
+        return idInterview;
+    }
+
+    public void setIdInterview(int idInterview) {
+        this.idInterview = idInterview;
+    }
+
+    public long getInterviewTime() {
+        return interviewTime;
+    }
+
+    public void setInterviewTime(long interviewTime) {
+        this.interviewTime = interviewTime;
+    }
+
+    public long getFireTime() {
+        return fireTime;
+    }
+
+    public void setFireTime(long fireTime) {
+        this.fireTime = fireTime;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public int getSnoozeCount() {
+        return snoozeCount;
+    }
+
+    public void setSnoozeCount(int snoozeCount) {
+        this.snoozeCount = snoozeCount;
+    }
+}
@@ -3,18 +3,34 @@ package model;
 import java.util.Date;
 
 public class Alarm {
+    private int idInterview;
     private String fio;
     private String post;
+    // время собеседования, мс от начала эпохи
+    private long interviewTime;
     private Date alarmDate;
+    // сколько раз напоминание откладывали
+    private int snoozeCount;
     private boolean isShown;
 
-    public Alarm(String fio, String post, Date alarmDate, boolean isShown) {
+    public Alarm(int idInterview, String fio, String post, long interviewTime, Date alarmDate, int snoozeCount, boolean isShown) {
+        this.idInterview = idInterview;
         this.fio = fio;
         this.post = post;
+        this.interviewTime = interviewTime;
         this.alarmDate = alarmDate;
+        this.snoozeCount = snoozeCount;
         this.isShown = isShown;
     }
 
+    public int getIdInterview() {
+        return idInterview;
+    }
+
+    public void setIdInterview(int idInterview) {
+        this.idInterview = idInterview;
+    }
+
     public String getFio() {
         return fio;
     }
@@ -31,6 +47,14 @@ public class Alarm {
         this.post = post;
     }
 
+    public long getInterviewTime() {
+        return interviewTime;
+    }
+
+    public void setInterviewTime(long interviewTime) {
+        this.interviewTime = interviewTime;
+    }
+
     public Date getAlarmDate() {
         return alarmDate;
     }
@@ -39,6 +63,14 @@ public class Alarm {
         this.alarmDate = alarmDate;
     }
 
+    public int getSnoozeCount() {
+        return snoozeCount;
+    }
+
+    public void setSnoozeCount(int snoozeCount) {
+        this.snoozeCount = snoozeCount;
+    }
+
     public boolean isShown() {
         return isShown;
     }
@@ -0,0 +1,46 @@
+package model;
+
+/**
+ * Снимок хода выгрузки: выгруженные интервью, записанные байты и затраченное время
+ */
+public class ExportStatistics {
+    private long rows;
+    private long bytes;
+    private long elapsedMillis;
+
+    public ExportStatistics(long rows, long bytes, long elapsedMillis) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedMillis == 0 ? bytes : bytes * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportStatistics{" +
+                "rows=" + rows +
+                ", bytes=" + bytes +
+                ", elapsedMillis=" + elapsedMillis +
+                ", rowsPerSecond=" + getRowsPerSecond() +
+                '}';
+    }
+}
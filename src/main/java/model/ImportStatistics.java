@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * Снимок хода загрузки интервью: прочитанные, загруженные и отклоненные строки и затраченное время
+ */
+public class ImportStatistics {
+    private long rows;
+    private long imported;
+    private long rejected;
+    private long elapsedMillis;
+
+    public ImportStatistics(long rows, long imported, long rejected, long elapsedMillis) {
+        this.rows = rows;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportStatistics{" +
+                "rows=" + rows +
+                ", imported=" + imported +
+                ", rejected=" + rejected +
+                ", elapsedMillis=" + elapsedMillis +
+                ", rowsPerSecond=" + getRowsPerSecond() +
+                '}';
+    }
+}
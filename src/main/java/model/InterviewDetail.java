@@ -0,0 +1,53 @@
+package model;
+
+import entity.Candidate;
+import entity.Interview;
+import entity.InterviewComment;
+import entity.Interviewer;
+
+import java.util.List;
+
+/**
+ * Интервью со всеми данными, нужными диалогу редактирования:
+ * кандидат, рекрутер, оценки по всем критериям и комментарий
+ */
+public class InterviewDetail {
+    private Interview interview;
+    private List<CategoryRow> marks;
+    private InterviewComment comment;
+
+    public InterviewDetail(Interview interview, List<CategoryRow> marks, InterviewComment comment) {
+        this.interview = interview;
+        this.marks = marks;
+        this.comment = comment;
+    }
+
+    public Interview getInterview() {
+        return interview;
+    }
+
+    public Candidate getCandidate() {
+        return interview.getIdCandidate();
+    }
+
+    public Interviewer getInterviewer() {
+        return interview.getIdInterviewer();
+    }
+
+    public List<CategoryRow> getMarks() {
+        return marks;
+    }
+
+    public InterviewComment getComment() {
+        return comment;
+    }
+
+    @Override
+    public String toString() {
+        return "InterviewDetail{" +
+                "interview=" + interview +
+                ", marks=" + marks +
+                ", comment=" + comment +
+                '}';
+    }
+}
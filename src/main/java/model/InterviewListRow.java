@@ -0,0 +1,58 @@
+package model;
+
+/**
+ * Строка списка интервью (только для чтения): данные, которые показывает главная таблица.
+ * Заполняется одним запросом с соединением интервью и кандидата, без загрузки сущностей
+ */
+public class InterviewListRow {
+    private final int idInterview;
+    private final String fio;
+    private final String post;
+    private final String date;
+    private final String time;
+    private final long dateTime;
+
+    public InterviewListRow(int idInterview, String fio, String post, String date, String time, long dateTime) {
+        this.idInterview = idInterview;
+        this.fio = fio;
+        this.post = post;
+        this.date = date;
+        this.time = time;
+        this.dateTime = dateTime;
+    }
+
+    public int getIdInterview() {
+        return idInterview;
+    }
+
+    public String getFio() {
+        return fio;
+    }
+
+    public String getPost() {
+        return post;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public long getDateTime() {
+        return dateTime;
+    }
+
+    @Override
+    public String toString() {
+        return "InterviewListRow{" +
+                "idInterview=" + idInterview +
+                ", fio='" + fio + '\'' +
+                ", post='" + post + '\'' +
+                ", date='" + date + '\'' +
+                ", time='" + time + '\'' +
+                '}';
+    }
+}
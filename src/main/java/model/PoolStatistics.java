@@ -0,0 +1,78 @@
+package model;
+
+/**
+ * Снимок статистики пула подключений к БД
+ */
+public class PoolStatistics {
+    private int maxConnections;
+    private int activeConnections;
+    private int createdConnections;
+    private long acquireCount;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+    private long queryCount;
+    private long statementCacheHits;
+
+    public PoolStatistics(int maxConnections, int activeConnections, int createdConnections,
+                          long acquireCount, long totalWaitMillis, long maxWaitMillis, long queryCount,
+                          long statementCacheHits) {
+        this.maxConnections = maxConnections;
+        this.activeConnections = activeConnections;
+        this.createdConnections = createdConnections;
+        this.acquireCount = acquireCount;
+        this.totalWaitMillis = totalWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.queryCount = queryCount;
+        this.statementCacheHits = statementCacheHits;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getCreatedConnections() {
+        return createdConnections;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public long getTotalWaitMillis() {
+        return totalWaitMillis;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public long getQueryCount() {
+        return queryCount;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public double getAverageWaitMillis() {
+        return acquireCount == 0 ? 0 : (double) totalWaitMillis / acquireCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStatistics{" +
+                "maxConnections=" + maxConnections +
+                ", activeConnections=" + activeConnections +
+                ", createdConnections=" + createdConnections +
+                ", acquireCount=" + acquireCount +
+                ", totalWaitMillis=" + totalWaitMillis +
+                ", maxWaitMillis=" + maxWaitMillis +
+                ", queryCount=" + queryCount +
+                ", statementCacheHits=" + statementCacheHits +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+package model;
+
+/**
+ * Итог синхронизации двух БД: полученные и переданные изменения, пропущенные изменения
+ * (более старые, чем версия другой БД, или ссылающиеся на удаленные там записи) и затраченное время
+ */
+public class SyncStatistics {
+    private long received;
+    private long sent;
+    private long skipped;
+    private long elapsedMillis;
+
+    public SyncStatistics(long received, long sent, long skipped, long elapsedMillis) {
+        this.received = received;
+        this.sent = sent;
+        this.skipped = skipped;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncStatistics{" +
+                "received=" + received +
+                ", sent=" + sent +
+                ", skipped=" + skipped +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+package model;
+
+/**
+ * Снимок статистики открытия окна (диалога или уведомления) одного файла разметки
+ */
+public class ViewStatistics {
+    private String fxmlUrl;
+    private long openCount;
+    private long prewarmedCount;
+    private long lastMillis;
+    private long totalMillis;
+    private long maxMillis;
+
+    public ViewStatistics(String fxmlUrl, long openCount, long prewarmedCount, long lastMillis, long totalMillis,
+                          long maxMillis) {
+        this.fxmlUrl = fxmlUrl;
+        this.openCount = openCount;
+        this.prewarmedCount = prewarmedCount;
+        this.lastMillis = lastMillis;
+        this.totalMillis = totalMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    public String getFxmlUrl() {
+        return fxmlUrl;
+    }
+
+    public long getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * @return long сколько раз окно открыто из заранее загруженной заготовки
+     */
+    public long getPrewarmedCount() {
+        return prewarmedCount;
+    }
+
+    public long getLastMillis() {
+        return lastMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public double getAverageMillis() {
+        return openCount == 0 ? 0 : (double) totalMillis / openCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ViewStatistics{" +
+                "fxmlUrl='" + fxmlUrl + '\'' +
+                ", openCount=" + openCount +
+                ", prewarmedCount=" + prewarmedCount +
+                ", lastMillis=" + lastMillis +
+                ", averageMillis=" + String.format("%.1f", getAverageMillis()) +
+                ", maxMillis=" + maxMillis +
+                '}';
+    }
+}
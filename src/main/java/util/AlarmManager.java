@@ -1,32 +1,68 @@
 package util;
 
 import config.HelperFactory;
-import entity.Interview;
-import javafx.application.Platform;
+import config.InterviewListener;
+import config.ReminderStore;
+import entity.Reminder;
 import javafx.stage.Stage;
 import model.Alarm;
-import view.AlarmTemplateBuilder;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.Timer;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
-public class AlarmManager{
+/**
+ * Напоминания о собеседованиях. В планировщике лежат напоминания о собеседованиях загруженного окна - до конца
+ * дня windowEnd (не включительно). Изменения интервью (события DatabaseHelper) переносят или отменяют только
+ * напоминания об измененных интервью, а за leadMinutes до конца окна к нему добавляется следующий день,
+ * поэтому список напоминаний никогда не строится заново целиком.
+ * Обработка событий и смена дня выполняются по очереди в одном потоке
+ */
+public class AlarmManager implements InterviewListener {
     private List<Alarm> alarms = new ArrayList<>();
-    private java.util.Timer timer = new Timer();
+    // напоминания ждут своего времени в колесе по id собеседования
+    private final ReminderScheduler<Integer, Alarm> scheduler;
+    // сработавшие рядом по времени напоминания показываются одним уведомлением
+    private final NotificationAggregator<Alarm> aggregator;
+    // сработавшие и отложенные напоминания сохраняются в БД, чтобы пережить перезапуск
+    private final ReminderStore store;
+    // поток обработки событий интервью и смены дня
+    private final ScheduledThreadPoolExecutor updater;
     private Stage stage;
+    private int leadMinutes = ConstantManager.REMINDER_LEAD_MINUTES;
+    // день, с которого начинаются еще не загруженные собеседования
+    private volatile LocalDate windowEnd = LocalDate.now().plusDays(1);
 
-    public AlarmManager(Stage stage) {
+    public AlarmManager(Stage stage) throws SQLException {
         this.stage = stage;
+        this.store = HelperFactory.getReminderStore();
+        this.scheduler = new ReminderScheduler<>(ConstantManager.REMINDER_TICK_MILLIS, ConstantManager.REMINDER_WHEEL_SIZE,
+                this::collect);
+        this.aggregator = new NotificationAggregator<>(
+                (long) ConstantManager.REMINDER_COALESCE_WINDOW_MINUTES * ConstantManager.MILLISECOND_IN_MINUTE,
+                ConstantManager.REMINDER_COALESCE_SETTLE_MILLIS, alarm -> alarm.getAlarmDate().getTime(),
+                scheduler::pollBefore, this::fire);
+        this.updater = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "reminder-updater");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public void start(){
+    /**
+     * Ставит напоминания из списка в планировщик на их время срабатывания, подписывается на изменения интервью
+     * и планирует загрузку следующего дня
+     * @throws SQLException
+     */
+    public void start() throws SQLException {
         for (Alarm o : alarms) {
-            AlarmTask task = new AlarmTask(o, this, stage);
-            timer.schedule(task, 0);
+            schedule(o);
         }
+        HelperFactory.getHelper().addInterviewListener(this);
+        scheduleRollover();
     }
 
     // получение строки текущей даты в формате "дд.мм.гггг"
@@ -38,21 +74,174 @@ public class AlarmManager{
         return curDate;
     }
 
-    // заполнение коллекции alarms актуальными записями
-    // TODO : добавить потом удаление старых записей
+    // заполнение коллекции alarms актуальными записями одним запросом:
+    // напоминание срабатывает за leadMinutes до собеседования (или в отложенное время),
+    // по уже начавшимся собеседованиям и уже сработавшие напоминания не повторяются
     public  void updateTodayAlarmList() throws Exception {
-        String curDate = getTodayDateString();
-        List<Interview> interviews = HelperFactory.getHelper().getInterviewsByDate(curDate);
+        windowEnd = LocalDate.now().plusDays(1);
         alarms.clear();
-        for (Interview o : interviews){
-            Alarm alarm = new Alarm(o.getIdCandidate().getFio(), o.getPost(), null, true);
-            alarms.add(alarm);
-        }
+        alarms.addAll(HelperFactory.getHelper().getAlarms(System.currentTimeMillis(), startOf(windowEnd), getLeadMillis()));
     }
 
+    /**
+     * Переносит напоминание на указанное время от текущего момента (в планировщике остается одно напоминание
+     * по собеседованию)
+     * @param alarm напоминание
+     * @param delayHours через сколько часов
+     * @param delayMinutes через сколько минут
+     */
     public void addAlarmTask(Alarm alarm, int delayHours, int delayMinutes) {
-        AlarmTask task = new AlarmTask(alarm, this, stage);
         long delay = delayHours * ConstantManager.MILLISECOND_IN_HOUR + delayMinutes * ConstantManager.MILLISECOND_IN_MINUTE;
-        timer.schedule(task, delay);
+        alarm.setAlarmDate(new Date(System.currentTimeMillis() + delay));
+        alarm.setSnoozeCount(alarm.getSnoozeCount() + 1);
+        alarm.setShown(false);
+        schedule(alarm);
+        store.save(toReminder(alarm, Reminder.State.PENDING));
+    }
+
+    public int getLeadMinutes() {
+        return leadMinutes;
+    }
+
+    /**
+     * Задает, за сколько минут до собеседования срабатывает напоминание (для напоминаний, загружаемых после вызова)
+     * @param leadMinutes минуты
+     */
+    public void setLeadMinutes(int leadMinutes) {
+        this.leadMinutes = leadMinutes;
+    }
+
+    /**
+     * Переносит напоминания о добавленных и измененных интервью загруженного окна (одним запросом),
+     * напоминания об интервью, которые ушли из окна или уже начались, отменяет
+     * @param ids id интервью
+     */
+    @Override
+    public void interviewsSaved(Collection<Integer> ids) {
+        List<Integer> saved = new ArrayList<>(ids);
+        updater.execute(() -> {
+            try {
+                // состояния, ждущие записи, должны попасть в запрос (иначе сработавшее напоминание повторится)
+                store.flush();
+                long now = System.currentTimeMillis();
+                Set<Integer> found = new HashSet<>();
+                for (Alarm alarm : HelperFactory.getHelper().getAlarms(saved, now, startOf(windowEnd), getLeadMillis())) {
+                    schedule(alarm);
+                    found.add(alarm.getIdInterview());
+                }
+                // отложенное напоминание о начавшемся собеседовании остается, как и в interviewsReloaded
+                for (Integer id : saved) {
+                    Alarm alarm = scheduler.get(id);
+                    if (alarm != null && alarm.getInterviewTime() > now && !found.contains(id))
+                        scheduler.cancel(id);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    @Override
+    public void interviewsDeleted(Collection<Integer> ids) {
+        List<Integer> deleted = new ArrayList<>(ids);
+        updater.execute(() -> {
+            for (Integer id : deleted) {
+                scheduler.cancel(id);
+            }
+        });
+    }
+
+    /**
+     * Сверяет планировщик с БД по загруженному окну: переносит напоминания о собеседованиях окна
+     * и отменяет напоминания о еще не начавшихся собеседованиях, которых больше нет
+     */
+    @Override
+    public void interviewsReloaded() {
+        updater.execute(() -> {
+            try {
+                store.flush();
+                long now = System.currentTimeMillis();
+                Set<Integer> found = new HashSet<>();
+                for (Alarm alarm : HelperFactory.getHelper().getAlarms(now, startOf(windowEnd), getLeadMillis())) {
+                    schedule(alarm);
+                    found.add(alarm.getIdInterview());
+                }
+                for (Alarm alarm : scheduler.getPending()) {
+                    if (alarm.getInterviewTime() > now && !found.contains(alarm.getIdInterview()))
+                        scheduler.cancel(alarm.getIdInterview());
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Планирует добавление следующего дня за leadMinutes до конца окна: напоминания о собеседованиях
+     * в начале дня срабатывают еще до полуночи. Задержка исполнителя не идет, пока компьютер спит,
+     * поэтому время сверяется с системными часами не реже раза в час
+     */
+    private void scheduleRollover() {
+        long delay = startOf(windowEnd) - getLeadMillis() - System.currentTimeMillis();
+        updater.schedule(this::rollOver, Math.max(Math.min(delay, ConstantManager.MILLISECOND_IN_HOUR), 0),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Загружает напоминания о собеседованиях следующего дня (только этого дня) и сдвигает конец окна
+     */
+    private void rollOver() {
+        LocalDate day = windowEnd;
+        if (System.currentTimeMillis() < startOf(day) - getLeadMillis()) {
+            scheduleRollover();
+            return;
+        }
+        try {
+            // граница периода в запросе не включается, а собеседование может начинаться ровно в полночь
+            List<Alarm> next = HelperFactory.getHelper().getAlarms(startOf(day) - 1, startOf(day.plusDays(1)), getLeadMillis());
+            windowEnd = day.plusDays(1);
+            for (Alarm alarm : next) {
+                schedule(alarm);
+            }
+            scheduleRollover();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            // окно не сдвинуто, повторяем через минуту
+            updater.schedule(this::rollOver, ConstantManager.MILLISECOND_IN_MINUTE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void schedule(Alarm alarm) {
+        scheduler.schedule(alarm.getIdInterview(), alarm, alarm.getAlarmDate().getTime());
+    }
+
+    /**
+     * Передает сработавшее напоминание (в потоке планировщика) в объединение уведомлений
+     */
+    private void collect(Alarm alarm) {
+        aggregator.add(alarm);
+    }
+
+    /**
+     * Показывает сработавшие напоминания одним уведомлением и запоминает, что они показаны
+     */
+    private void fire(List<Alarm> fired) {
+        for (Alarm alarm : fired) {
+            store.save(toReminder(alarm, Reminder.State.FIRED));
+        }
+        new AlarmTask(fired, this, stage).run();
+    }
+
+    private long getLeadMillis() {
+        return (long) leadMinutes * ConstantManager.MILLISECOND_IN_MINUTE;
+    }
+
+    private static long startOf(LocalDate day) {
+        return DateTimeUtil.toEpochMillis(day.atStartOfDay());
+    }
+
+    private static Reminder toReminder(Alarm alarm, Reminder.State state) {
+        return new Reminder(alarm.getIdInterview(), alarm.getInterviewTime(), alarm.getAlarmDate().getTime(),
+                state, alarm.getSnoozeCount());
     }
 }
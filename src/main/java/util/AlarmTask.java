@@ -1,39 +1,48 @@
 package util;
 
 import javafx.application.Platform;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import javafx.stage.Stage;
 import model.Alarm;
 import view.AlarmTemplateBuilder;
-import java.util.TimerTask;
+import view.NotificationSound;
 
-public class AlarmTask extends TimerTask {
-    private Alarm alarm;
+import java.util.List;
+
+public class AlarmTask implements Runnable {
+    // напоминания, показываемые одним уведомлением
+    private List<Alarm> alarms;
     private AlarmManager context;
     private Stage stage;
 
-    public AlarmTask(Alarm alarm, AlarmManager context, Stage stage) {
-        this.alarm = alarm;
+    public AlarmTask(List<Alarm> alarms, AlarmManager context, Stage stage) {
+        this.alarms = alarms;
         this.context = context;
         this.stage = stage;
     }
 
     @Override
     public void run() {
+        for (Alarm alarm : alarms) {
+            alarm.setShown(true);
+        }
         AlarmTemplateBuilder alarmView = new AlarmTemplateBuilder(this);
         Platform.runLater(new Runnable() {
             @Override
             public void run() {
-                alarmView.createNotification(alarm.getFio(), alarm.getPost(), 0, stage);
-                Media audio = new Media(this.getClass().getClassLoader().getResource("sounds/msg.mp3").toString());
-                final MediaPlayer playerAudio = new MediaPlayer(audio);
-                playerAudio.play();
+                alarmView.createNotification(alarms, stage);
+                NotificationSound.play();
             }
         });
     }
 
+    /**
+     * Откладывает все напоминания уведомления (переносит их в планировщике AlarmManager)
+     * @param delayHours через сколько часов
+     * @param delayMinutes через сколько минут
+     */
     public void delayTask(int delayHours, int delayMinutes){
-        context.addAlarmTask(alarm, delayHours, delayMinutes);
+        for (Alarm alarm : alarms) {
+            context.addAlarmTask(alarm, delayHours, delayMinutes);
+        }
     }
 }
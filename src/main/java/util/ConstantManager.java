@@ -8,9 +8,22 @@ public interface ConstantManager {
     String ADD_INTERVIEWER_TITLE = "Добавление собеседователя";
     String EDIT_CATEGORY_TITLE = "Редактирование критериев";
     String ABOUT_TITLE = "О программе";
+    //Количество интервью, подгружаемых в главную таблицу за раз
+    int INTERVIEW_PAGE_SIZE = 100;
+    //Количество подсказок "живого" поиска кандидатов и рекрутеров
+    int SUGGESTIONS_LIMIT = 10;
     //Константы для AlarmManager
     int MILLISECOND_IN_HOUR = 60*60*1000;
     int MILLISECOND_IN_MINUTE = 60*1000;
     int DEFAULT_DELAY_HOURS = 1;
     int DEFAULT_DELAY_MINUTES = 0;
+    //За сколько минут до начала собеседования срабатывает напоминание
+    int REMINDER_LEAD_MINUTES = 15;
+    //Колесо времени планировщика напоминаний: длина тика (точность срабатывания) и количество ячеек
+    long REMINDER_TICK_MILLIS = 1000;
+    int REMINDER_WHEEL_SIZE = 512;
+    //Напоминания, которые сработают в течение этого времени после первого, показываются с ним одним уведомлением,
+    //и сколько ждать напоминаний, сработавших одновременно с первым
+    int REMINDER_COALESCE_WINDOW_MINUTES = 5;
+    long REMINDER_COALESCE_SETTLE_MILLIS = 300;
 }
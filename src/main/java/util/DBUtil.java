@@ -1,27 +1,35 @@
 package util;
 
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.dao.GenericRawResults;
 import com.j256.ormlite.jdbc.JdbcConnectionSource;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DatabaseTableConfig;
 import com.j256.ormlite.table.TableUtils;
 import entity.*;
 import config.AppConfig;
+import config.DatabaseDialect;
+import config.DatabaseHelper;
+import config.HelperFactory;
+import model.SyncStatistics;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
 import java.nio.*;
 
 
 public class DBUtil {
     public static void createDbIfNotExist() throws SQLException{
+        ConnectionSource connectionSource = new JdbcConnectionSource(DatabaseDialect.getConfiguredUrl());
         try {
-            ConnectionSource connectionSource = new JdbcConnectionSource(AppConfig.DATABASE_PREFIX + AppConfig.DATABASE_FILENAME);
             createDbIfNotExist(connectionSource);
-            connectionSource.close();
-        } catch(Exception e){
-
+        } finally {
+            connectionSource.closeQuietly();
         }
     }
     public static void createDbIfNotExist(ConnectionSource connectionSource) throws SQLException{
@@ -29,29 +37,151 @@ public class DBUtil {
         {
             createDbIfNotExist();
         } else {
+        // колонки, появившиеся после первой версии, добавляем в уже существующие таблицы
+        addColumnIfNotExists(connectionSource, Candidate.class, "fioKey", "VARCHAR");
+        addColumnIfNotExists(connectionSource, Interviewer.class, "fioKey", "VARCHAR");
+        addColumnIfNotExists(connectionSource, Category.class, "nameKey", "VARCHAR");
+        addColumnIfNotExists(connectionSource, Interview.class, "dateTime", "BIGINT");
         TableUtils.createTableIfNotExists(connectionSource, Candidate.class);
         TableUtils.createTableIfNotExists(connectionSource, Category.class);
         TableUtils.createTableIfNotExists(connectionSource, Interview.class);
         TableUtils.createTableIfNotExists(connectionSource, InterviewComment.class);
         TableUtils.createTableIfNotExists(connectionSource, Interviewer.class);
         TableUtils.createTableIfNotExists(connectionSource, Mark.class);
+        TableUtils.createTableIfNotExists(connectionSource, Reminder.class);
+        fillEmptyColumn(connectionSource, Candidate.class, "idCandidate", "fioKey", row -> KeyUtil.normalize(row[1]), "fio");
+        fillEmptyColumn(connectionSource, Interviewer.class, "idInterviewer", "fioKey", row -> KeyUtil.normalize(row[1]), "fio");
+        fillEmptyColumn(connectionSource, Category.class, "idCategory", "nameKey", row -> KeyUtil.normalize(row[1]), "name");
+        fillEmptyColumn(connectionSource, Interview.class, "idInterview", "dateTime", row -> {
+            Long millis = DateTimeUtil.toEpochMillis(row[1], row[2]);
+            return millis == null ? 0L : millis;
+        }, "date", "time");
+        // выборки интервью рекрутера за период
+        DaoManager.createDao(connectionSource, Interview.class).executeRawNoArgs(
+                "CREATE INDEX IF NOT EXISTS `interview_interviewer_time_idx` ON `interview` (`idInterviewer`, `dateTime`)");
+        // отложенные напоминания, срабатывающие после текущего момента (см. DatabaseHelper.getAlarms)
+        DaoManager.createDao(connectionSource, Reminder.class).executeRawNoArgs(
+                "CREATE INDEX IF NOT EXISTS `reminder_state_fire_idx` ON `reminder` (`state`, `fireTime`)");
+        }
+    }
+
+    /**
+     * Добавляет колонку в существующую таблицу, если ее там еще нет
+     * @param connectionSource подключение к БД
+     * @param entityClass класс сущности таблицы
+     * @param column имя колонки
+     * @param type sql-тип колонки
+     * @throws SQLException
+     */
+    public static <T> void addColumnIfNotExists(ConnectionSource connectionSource, Class<T> entityClass, String column, String type) throws SQLException {
+        Dao<T, ?> dao = DaoManager.createDao(connectionSource, entityClass);
+        if (!dao.isTableExists()) {
+            return;
+        }
+        String table = DatabaseTableConfig.extractTableName(entityClass);
+        GenericRawResults<String[]> results = dao.queryRaw("SELECT * FROM `" + table + "` LIMIT 1");
+        String[] columns = results.getColumnNames();
+        results.close();
+        for (String existing : columns) {
+            if (existing.equalsIgnoreCase(column)) {
+                return;
+            }
+        }
+        dao.executeRawNoArgs("ALTER TABLE `" + table + "` ADD COLUMN `" + column + "` " + type);
+    }
+
+    /**
+     * Заполняет вычисляемую колонку у записей, созданных до ее появления
+     * (вычисление выполняется в java, т.к. например lower() в SQLite не работает с кириллицей)
+     * @param connectionSource подключение к БД
+     * @param entityClass класс сущности таблицы
+     * @param idColumn колонка первичного ключа
+     * @param column заполняемая колонка
+     * @param converter вычисление значения по строке (id, sourceColumns...); null - оставить пустым
+     * @param sourceColumns колонки с исходными значениями
+     * @throws SQLException
+     */
+    private static <T> void fillEmptyColumn(ConnectionSource connectionSource, Class<T> entityClass, String idColumn, String column,
+                                            Function<String[], Object> converter, String... sourceColumns) throws SQLException {
+        Dao<T, ?> dao = DaoManager.createDao(connectionSource, entityClass);
+        String table = DatabaseTableConfig.extractTableName(entityClass);
+        StringBuilder select = new StringBuilder("SELECT `").append(idColumn).append('`');
+        for (String sourceColumn : sourceColumns) {
+            select.append(", `").append(sourceColumn).append('`');
+        }
+        select.append(" FROM `").append(table).append("` WHERE `").append(column).append("` IS NULL");
+        List<String[]> rows = dao.queryRaw(select.toString()).getResults();
+        if (rows.isEmpty()) {
+            return;
+        }
+        String update = "UPDATE `" + table + "` SET `" + column + "` = ? WHERE `" + idColumn + "` = ?";
+        try {
+            dao.callBatchTasks(() -> {
+                for (String[] row : rows) {
+                    Object value = converter.apply(row);
+                    if (value != null) {
+                        dao.updateRaw(update, value.toString(), row[0]);
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e);
         }
     }
     
-    public static void importDb(String url) throws IOException{
-        File database = new File(AppConfig.DATABASE_FILENAME);
-        File newDatabase = new File(url + "\\" + AppConfig.DATABASE_FILENAME);
+    /**
+     * Сохраняет новое поколение резервной копии БД в AppConfig.BACKUP_DIRECTORY
+     * (поколения сверх AppConfig.BACKUP_GENERATIONS удаляются)
+     * @param helper БД
+     * @return Path файл копии или null, если копии этой БД снимаются на сервере
+     * @throws SQLException
+     */
+    public static Path backupDb(DatabaseHelper helper) throws SQLException {
+        if (!helper.isBackupSupported()) {
+            return null;
+        }
         try {
-            Files.copy(database.toPath(), newDatabase.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        } catch (Exception e) {}
+            return helper.backup(Paths.get(AppConfig.BACKUP_DIRECTORY));
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
     }
 
-    public static void exportDb(String url) throws IOException{
-        File newDatabase = new File(AppConfig.DATABASE_FILENAME);
-        File database = new File(url);
-        try {
-            Files.copy(database.toPath(), newDatabase.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        } catch (Exception e) {}
+    /**
+     * Сохраняет согласованную копию БД в каталог (online backup, работа с БД не останавливается)
+     * @param url каталог, в который сохраняется файл AppConfig.DATABASE_FILENAME
+     * @throws IOException
+     * @throws SQLException
+     */
+    public static void importDb(String url) throws IOException, SQLException {
+        HelperFactory.getHelper().backupTo(Paths.get(url, AppConfig.DATABASE_FILENAME));
+    }
+
+    /**
+     * Заменяет данные БД данными из файла копии (файл проверяется на целостность до восстановления).
+     * Текущие данные перед заменой сохраняются новым поколением резервной копии в AppConfig.BACKUP_DIRECTORY
+     * @param url файл копии БД
+     * @throws IOException
+     * @throws SQLException
+     */
+    public static void exportDb(String url) throws IOException, SQLException {
+        DatabaseHelper helper = HelperFactory.getHelper();
+        backupDb(helper);
+        helper.restore(Paths.get(url));
+    }
+
+    /**
+     * Обменивается с файлом БД другого офиса изменениями, внесенными после прошлой синхронизации
+     * (в отличие от exportDb, изменения обеих БД сохраняются)
+     * @param url файл другой БД
+     * @return SyncStatistics количество полученных, переданных и пропущенных изменений
+     * @throws SQLException
+     */
+    public static SyncStatistics syncDb(String url) throws SQLException {
+        return HelperFactory.getHelper().syncWith(Paths.get(url));
     }
 
 }
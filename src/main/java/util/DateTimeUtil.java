@@ -3,6 +3,7 @@ package util;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 
 public class DateTimeUtil {
     /**
@@ -38,6 +39,32 @@ public class DateTimeUtil {
         return LocalTime.of((totalSeconds / 3600) % 24, (totalSeconds / 60) % 60, seconds % 60);
     }
 
+    /**
+     * Конвертирует LocalDateTime в количество миллисекунд от начала эпохи (в часовом поясе системы)
+     * @param dateTime дата и время
+     * @return long миллисекунды
+     */
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Конвертирует строки даты и времени в количество миллисекунд от начала эпохи
+     * @param date дата (format: dd.MM.yyyy)
+     * @param time время (format: hh:mm:ss), если null - начало дня
+     * @return Long миллисекунды или null, если дату не удалось разобрать
+     */
+    public static Long toEpochMillis(String date, String time) {
+        if (date == null || DateUtil.parse(date) == null) {
+            return null;
+        }
+        try {
+            return toEpochMillis(parse(date, time == null ? "" : time));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
     /**
      * ? что оно делает
      * @param tokens
@@ -0,0 +1,24 @@
+package util;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Нормализация строковых ключей (ФИО, названия критериев) для поиска по индексу
+ */
+public class KeyUtil {
+    private static final Locale KEY_LOCALE = new Locale("ru");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    /**
+     * Приводит строку к ключу: без лишних пробелов, в нижнем регистре, "ё" заменена на "е"
+     * @param value исходная строка
+     * @return нормализованный ключ или null, если строка null
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        return SPACES.matcher(value.trim()).replaceAll(" ").toLowerCase(KEY_LOCALE).replace('ё', 'е');
+    }
+}
@@ -0,0 +1,90 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Объединение сработавших напоминаний в одно уведомление.
+ * Напоминания, пришедшие в течение settleMillis после первого (например, сработавшие на одном тике планировщика),
+ * и напоминания, которые должны сработать в течение windowMillis после первого (их отдает lookahead, обычно
+ * ReminderScheduler.pollBefore), передаются получателю одним списком - вместо стопки уведомлений одно
+ * @param <T> тип напоминания
+ */
+public class NotificationAggregator<T> {
+    private final long windowMillis;
+    private final long settleMillis;
+    private final ToLongFunction<T> dueTime;
+    private final LongFunction<List<T>> lookahead;
+    private final Consumer<List<T>> sink;
+    private final ScheduledThreadPoolExecutor executor;
+    // собираемое уведомление (null - нет)
+    private List<T> batch;
+
+    /**
+     * @param windowMillis окно объединения, мс: напоминания со временем срабатывания раньше, чем через это время
+     *                     после первого, показываются вместе с ним
+     * @param settleMillis сколько ждать напоминаний, сработавших одновременно с первым, мс
+     * @param dueTime время срабатывания напоминания, мс от начала эпохи
+     * @param lookahead забирает еще не сработавшие напоминания со временем срабатывания раньше заданного
+     * @param sink получатель объединенных напоминаний (вызывается в потоке объединения)
+     */
+    public NotificationAggregator(long windowMillis, long settleMillis, ToLongFunction<T> dueTime,
+                                  LongFunction<List<T>> lookahead, Consumer<List<T>> sink) {
+        this.windowMillis = windowMillis;
+        this.settleMillis = settleMillis;
+        this.dueTime = dueTime;
+        this.lookahead = lookahead;
+        this.sink = sink;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "notification-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Добавляет сработавшее напоминание в собираемое уведомление (первое напоминание начинает новое)
+     * @param item напоминание
+     */
+    public synchronized void add(T item) {
+        if (batch == null) {
+            batch = new ArrayList<>();
+            executor.schedule(this::deliver, settleMillis, TimeUnit.MILLISECONDS);
+        }
+        batch.add(item);
+    }
+
+    /**
+     * Останавливает поток объединения, собираемое уведомление не передается
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void deliver() {
+        List<T> items;
+        synchronized (this) {
+            items = batch;
+            batch = null;
+        }
+        long first = Long.MAX_VALUE;
+        for (T item : items) {
+            first = Math.min(first, dueTime.applyAsLong(item));
+        }
+        if (windowMillis > 0)
+            items.addAll(lookahead.apply(first + windowMillis));
+        items.sort(Comparator.comparingLong(dueTime));
+        try {
+            sink.accept(items);
+        } catch (RuntimeException e) {
+            // ошибка одного уведомления не останавливает поток объединения
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Планировщик напоминаний на хешированном колесе времени.
+ * Колесо - кольцо из wheelSize ячеек, каждая отвечает за один тик длиной tickMillis; напоминание кладется в ячейку
+ * своего тика (по модулю размера колеса) и хранит номер тика, поэтому добавление, перенос и отмена стоят O(1)
+ * независимо от количества ожидающих напоминаний, а поток планировщика на каждом тике просматривает одну ячейку.
+ * Напоминание ищется по ключу (например, id собеседования): повторное добавление с тем же ключом переносит его.
+ * Время срабатывания - по системным часам, после сна компьютера просроченные напоминания срабатывают на первом тике.
+ * Обработчик вызывается в потоке планировщика, не больше одного раза для каждого добавления
+ * @param <K> тип ключа
+ * @param <V> тип напоминания
+ */
+public class ReminderScheduler<K, V> {
+    private final long tickMillis;
+    private final Entry<K, V>[] wheel;
+    private final int mask;
+    private final Map<K, Entry<K, V>> entries = new HashMap<>();
+    private final Consumer<V> handler;
+    private final long startTime;
+    private final Thread worker;
+    // последний обработанный тик
+    private long currentTick;
+    private volatile boolean running = true;
+
+    /**
+     * @param tickMillis длина тика, мс (точность срабатывания)
+     * @param wheelSize количество ячеек колеса (округляется вверх до степени двойки)
+     * @param handler обработчик сработавшего напоминания
+     */
+    @SuppressWarnings("unchecked")
+    public ReminderScheduler(long tickMillis, int wheelSize, Consumer<V> handler) {
+        if (tickMillis <= 0 || wheelSize <= 0)
+            throw new IllegalArgumentException("Длина тика и размер колеса должны быть положительными");
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize)
+            size <<= 1;
+        this.tickMillis = tickMillis;
+        this.wheel = (Entry<K, V>[]) new Entry<?, ?>[size];
+        this.mask = size - 1;
+        this.handler = handler;
+        this.startTime = System.currentTimeMillis();
+        this.worker = new Thread(this::work, "reminder-scheduler");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Метод, добавляющий напоминание или переносящий уже добавленное с тем же ключом
+     * @param key ключ напоминания
+     * @param value напоминание, передаваемое обработчику
+     * @param fireTime время срабатывания, мс от начала эпохи (прошедшее время - сработать на ближайшем тике)
+     * @return boolean true, если напоминание с таким ключом уже было и перенесено
+     */
+    public synchronized boolean schedule(K key, V value, long fireTime) {
+        Entry<K, V> entry = entries.remove(key);
+        boolean replaced = entry != null;
+        if (replaced)
+            unlink(entry);
+        // тик с округлением вверх, чтобы напоминание не сработало раньше времени
+        long tick = Math.max(ceilDiv(fireTime - startTime, tickMillis), currentTick + 1);
+        entry = new Entry<>(key, value, fireTime, tick);
+        int index = (int) (tick & mask);
+        entry.next = wheel[index];
+        if (entry.next != null)
+            entry.next.prev = entry;
+        wheel[index] = entry;
+        entries.put(key, entry);
+        return replaced;
+    }
+
+    /**
+     * Метод, отменяющий напоминание
+     * @param key ключ напоминания
+     * @return V отмененное напоминание или null, если его нет (не добавлялось или уже сработало)
+     */
+    public synchronized V cancel(K key) {
+        Entry<K, V> entry = entries.remove(key);
+        if (entry == null)
+            return null;
+        unlink(entry);
+        return entry.value;
+    }
+
+    /**
+     * Метод, возвращающий ожидающее напоминание
+     * @param key ключ напоминания
+     * @return V напоминание или null, если его нет (не добавлялось или уже сработало)
+     */
+    public synchronized V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Метод, возвращающий время срабатывания ожидающего напоминания
+     * @param key ключ напоминания
+     * @return Long время срабатывания, мс от начала эпохи, или null, если напоминания нет
+     */
+    public synchronized Long getFireTime(K key) {
+        Entry<K, V> entry = entries.get(key);
+        return entry == null ? null : entry.fireTime;
+    }
+
+    /**
+     * Метод, забирающий из планировщика напоминания, которые должны сработать раньше указанного времени
+     * (например, чтобы показать их вместе с уже сработавшим); просматриваются только ячейки тиков до этого времени
+     * @param time время, мс от начала эпохи (не включительно)
+     * @return List<V> забранные напоминания в порядке времени срабатывания
+     */
+    public synchronized List<V> pollBefore(long time) {
+        List<Entry<K, V>> polled = new ArrayList<>();
+        long lastTick = Math.min(ceilDiv(time - startTime, tickMillis), currentTick + wheel.length);
+        for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+            Entry<K, V> entry = wheel[(int) (tick & mask)];
+            while (entry != null) {
+                Entry<K, V> next = entry.next;
+                if (entry.fireTime < time) {
+                    unlink(entry);
+                    entries.remove(entry.key);
+                    polled.add(entry);
+                }
+                entry = next;
+            }
+        }
+        polled.sort(Comparator.comparingLong(entry -> entry.fireTime));
+        List<V> values = new ArrayList<>(polled.size());
+        for (Entry<K, V> entry : polled) {
+            values.add(entry.value);
+        }
+        return values;
+    }
+
+    /**
+     * Метод, возвращающий копию списка всех ожидающих напоминаний (за время, пропорциональное их количеству)
+     * @return List<V> напоминания
+     */
+    public synchronized List<V> getPending() {
+        List<V> pending = new ArrayList<>(entries.size());
+        for (Entry<K, V> entry : entries.values()) {
+            pending.add(entry.value);
+        }
+        return pending;
+    }
+
+    /**
+     * Метод, возвращающий количество ожидающих напоминаний
+     * @return int количество напоминаний
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Останавливает поток планировщика, ожидающие напоминания не срабатывают
+     */
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void work() {
+        while (running) {
+            List<V> expired = new ArrayList<>();
+            synchronized (this) {
+                long nowTick = (System.currentTimeMillis() - startTime) / tickMillis;
+                if (nowTick > currentTick) {
+                    // после сна компьютера пройдено больше оборота: достаточно просмотреть каждую ячейку один раз
+                    long from = Math.max(currentTick + 1, nowTick - mask);
+                    for (long tick = from; tick <= nowTick; tick++) {
+                        expire((int) (tick & mask), nowTick, expired);
+                    }
+                    currentTick = nowTick;
+                }
+            }
+            for (V value : expired) {
+                try {
+                    handler.accept(value);
+                } catch (RuntimeException e) {
+                    // ошибка одного напоминания не останавливает остальные
+                    e.printStackTrace();
+                }
+            }
+            long sleep = startTime + (currentTick + 1) * tickMillis - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Забирает из ячейки напоминания, тик которых наступил (в ячейке лежат и напоминания следующих оборотов)
+     */
+    private void expire(int index, long nowTick, List<V> expired) {
+        Entry<K, V> entry = wheel[index];
+        while (entry != null) {
+            Entry<K, V> next = entry.next;
+            if (entry.tick <= nowTick) {
+                unlink(entry);
+                entries.remove(entry.key);
+                expired.add(entry.value);
+            }
+            entry = next;
+        }
+    }
+
+    private void unlink(Entry<K, V> entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            wheel[(int) (entry.tick & mask)] = entry.next;
+        }
+        if (entry.next != null)
+            entry.next.prev = entry.prev;
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * Напоминание в ячейке колеса (элемент двусвязного списка ячейки)
+     */
+    private static class Entry<K, V> {
+        final K key;
+        final V value;
+        final long fireTime;
+        final long tick;
+        Entry<K, V> prev;
+        Entry<K, V> next;
+
+        Entry(K key, V value, long fireTime, long tick) {
+            this.key = key;
+            this.value = value;
+            this.fireTime = fireTime;
+            this.tick = tick;
+        }
+    }
+}
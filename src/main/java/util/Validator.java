@@ -7,24 +7,26 @@ import java.util.regex.Pattern;
  * Created by mpmayorov on 18.07.2016.
  */
 public class Validator {
+    // шаблоны компилируются один раз: проверки вызываются для каждой строки при загрузке интервью
+    private static final Pattern FIO = Pattern.compile("^[ a-zA-Zа-яА-Я\\.]+$");
+    private static final Pattern DATE = Pattern.compile("^[0-9]{1,2}[.][0-9]{1,2}[.][0-9]{4}$");
+    private static final Pattern DATE_TIME = Pattern.compile("^[0-9]{1,2}[.][0-9]{1,2}[.][0-9]{4} [0-9]{1,2}[:][0-9]{1,2}[:][0-9]{1,2}$");
+
     public static void checkFio (String fio)throws Exception{
-        Pattern p = Pattern.compile("^[ a-zA-Zа-яА-Я\\.]+$");
-        Matcher m = p.matcher(fio);
+        Matcher m = FIO.matcher(fio);
         if(!m.matches()){
             throw new Exception("Фамилия '"+ fio + "' содержит запрещенные символы.");
         }
     }
     public static void checkDate (String date)throws Exception{
-        Pattern p = Pattern.compile("^[0-9]{1,2}[.][0-9]{1,2}[.][0-9]{4}$");
-        Matcher m = p.matcher(date);
+        Matcher m = DATE.matcher(date);
         if(!m.matches()){
             throw new Exception("Дата '" + date + "' указана не верно.");
         }
     }
 
     public static void checkDateTime (String date)throws Exception{
-        Pattern p = Pattern.compile("^[0-9]{1,2}[.][0-9]{1,2}[.][0-9]{4} [0-9]{1,2}[:][0-9]{1,2}[:][0-9]{1,2}$");
-        Matcher m = p.matcher(date);
+        Matcher m = DATE_TIME.matcher(date);
         if(!m.matches()){
             throw new Exception("Дата '" + date + "' указана не верно.");
         }
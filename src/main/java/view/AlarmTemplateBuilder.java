@@ -6,7 +6,7 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
-import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
@@ -14,14 +14,19 @@ import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.AnchorPane;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import model.Alarm;
 import org.controlsfx.control.Notifications;
 import util.AlarmTask;
 import util.ConstantManager;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,15 +45,32 @@ public class AlarmTemplateBuilder {
      * Создается и показывается уведомление
      * @param fioTitle фамилия собеседуемого
      * @param post должность
-     * @param alarmId ?? подумать
+     * @param alarmId id собеседования, о котором напоминание
      * @param stage ссылка на внешнее окно
      */
     public void createNotification(String fioTitle, String post, int alarmId, Stage stage){
+        show(createAlarmNode(fioTitle, post, alarmId), "Предстоящее собеседование", stage);
+    }
+
+    /**
+     * Создается и показывается одно уведомление о нескольких собеседованиях
+     * (одно напоминание показывается как обычно)
+     * @param alarms напоминания в порядке времени срабатывания
+     * @param stage ссылка на внешнее окно
+     */
+    public void createNotification(List<Alarm> alarms, Stage stage){
+        if (alarms.size() == 1) {
+            Alarm alarm = alarms.get(0);
+            createNotification(alarm.getFio(), alarm.getPost(), alarm.getIdInterview(), stage);
+            return;
+        }
+        show(createAlarmNode(alarms), "Предстоящие собеседования", stage);
+    }
+
+    private void show(Node graphic, String title, Stage stage){
         this.stage = stage;
-        Node graphic = null;
-        graphic = createAlarmNode(fioTitle, post, alarmId);
         Notifications notificationBuilder = Notifications.create()
-                .title("Предстоящее собеседование")
+                .title(title)
                 .text("")
                 .graphic(graphic)
                 .hideAfter(Duration.hours(6))
@@ -60,14 +82,16 @@ public class AlarmTemplateBuilder {
     /* Создается и заполняется вьюха для напоминаний
      * @param fioTitle фамилия собеседуемого
      * @param post должность
-     * @param alarmId ?? подумать
+     * @param alarmId id собеседования, о котором напоминание
      * @return Node созданный Node для напоминания
      */
     public Node createAlarmNode(String fioTitle, String post, int alarmId){
+        long start = System.nanoTime();
         VBox rootNode = null;
-        FXMLLoader loader = new FXMLLoader(getClass().getClassLoader().getResource(AppConfig.FXML_ALARM_URL));
+        ViewTemplateCache.View view = null;
         try {
-            rootNode = loader.load();
+            view = ViewTemplateCache.take(AppConfig.FXML_ALARM_URL);
+            rootNode = view.getRoot();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -90,6 +114,27 @@ public class AlarmTemplateBuilder {
         holdOverByTime.setOnMouseClicked(event -> {
             context.delayTask((Integer)hours.getValue(), (Integer)minutes.getValue());
         });
+        ViewTemplateCache.recordOpen(AppConfig.FXML_ALARM_URL, view, start);
+        return rootNode;
+    }
+
+    /* Создается вьюха для напоминания о нескольких собеседованиях: под заголовком - список
+     * "время ФИО, должность", кнопка откладывает все напоминания
+     * @param alarms напоминания
+     * @return Node созданный Node для напоминания
+     */
+    public Node createAlarmNode(List<Alarm> alarms){
+        VBox rootNode = (VBox) createAlarmNode("Собеседований: " + alarms.size(), "", 0);
+        DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HH:mm");
+        VBox list = new VBox();
+        for (Alarm alarm : alarms) {
+            String time = Instant.ofEpochMilli(alarm.getInterviewTime()).atZone(ZoneId.systemDefault()).format(timeFormat);
+            Label label = new Label(time + " " + alarm.getFio() + ", " + alarm.getPost());
+            label.setPadding(new Insets(0, 14, 0, 31));
+            list.getChildren().add(label);
+        }
+        rootNode.getChildren().add(1, list);
+        rootNode.setPrefHeight(Region.USE_COMPUTED_SIZE);
         return rootNode;
     }
 
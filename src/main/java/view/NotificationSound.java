@@ -0,0 +1,42 @@
+package view;
+
+import config.AppConfig;
+import javafx.scene.media.AudioClip;
+
+/**
+ * Звук уведомления о собеседовании. Файл читается и декодируется один раз, а AudioClip воспроизводит
+ * уже декодированные данные и сам держит набор одновременно звучащих копий, поэтому несколько
+ * уведомлений подряд не создают новых плееров
+ */
+public class NotificationSound {
+    private static volatile AudioClip clip;
+
+    /**
+     * Загружает звук заранее (вызывается при запуске приложения, чтобы первое уведомление не ждало загрузки)
+     */
+    public static void preload() {
+        getClip();
+    }
+
+    /**
+     * Проигрывает звук уведомления (можно вызывать из любого потока)
+     */
+    public static void play() {
+        getClip().play();
+    }
+
+    private static AudioClip getClip() {
+        AudioClip loaded = clip;
+        if (loaded == null) {
+            synchronized (NotificationSound.class) {
+                loaded = clip;
+                if (loaded == null) {
+                    loaded = new AudioClip(NotificationSound.class.getClassLoader()
+                            .getResource(AppConfig.NOTIFICATION_SOUND).toString());
+                    clip = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+}
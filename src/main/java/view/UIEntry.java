@@ -1,6 +1,7 @@
 package view;
 
 import config.AppConfig;
+import config.HelperFactory;
 import config.SystemConfig;
 import controller.MainController;
 import javafx.application.Application;
@@ -13,6 +14,7 @@ import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 import util.AlarmManager;
 import util.ConstantManager;
+import util.DBUtil;
 
 import java.io.IOException;
 import java.net.URL;
@@ -41,11 +43,23 @@ public class UIEntry  extends Application{
             SystemConfig.run();
         }
         Platform.setImplicitExit(false);
+        // результаты асинхронных запросов к БД обрабатываются в потоке JavaFX
+        HelperFactory.setCallbackExecutor(Platform::runLater);
         this.primaryStage = primaryStage;
         SystemTrayHandler<WindowEvent> systemTrayHandler = new SystemTrayHandler<>();
         systemTrayHandler.setPrimaryStage(primaryStage);
         this.primaryStage.setOnCloseRequest(systemTrayHandler);
         createGUI();
+        // частые диалоги загружаются в фоне заранее, чтобы открываться без разбора FXML
+        ViewTemplateCache.prewarm(AppConfig.PREWARMED_VIEWS);
+        // при каждом запуске в фоне сохраняется новое поколение резервной копии БД
+        HelperFactory.getAsyncHelper().submit(DBUtil::backupDb)
+                .exceptionally(throwable -> {
+                    throwable.printStackTrace();
+                    return null;
+                });
+        // звук уведомлений загружается один раз, до первого напоминания
+        NotificationSound.preload();
         AlarmManager alarmManager = new AlarmManager(primaryStage);
         alarmManager.updateTodayAlarmList();
         alarmManager.start();
@@ -92,9 +106,9 @@ public class UIEntry  extends Application{
      */
     private void createGUI() throws Exception {
         currentRoot = loadFXML();
-        Scene scene = new Scene(currentRoot, 590, 390);
+        Scene scene = new Scene(currentRoot, 590, 420);
         primaryStage.setScene(scene);
-        primaryStage.setMinHeight(390);
+        primaryStage.setMinHeight(420);
         primaryStage.setMinWidth(590);
         primaryStage.setResizable(false);
         primaryStage.getIcons().add(new Image(AppConfig.MAIN_VIEW_ICON));
@@ -0,0 +1,209 @@
+package view;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import model.ViewStatistics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Шаблоны окон из файлов разметки (FXML).
+ * Файл разметки читается из ресурсов один раз. Для заранее загруженных (prewarm) окон в фоновом потоке держится
+ * готовая заготовка - дерево компонентов с новым контроллером: открытие окна забирает ее без разбора FXML
+ * и сразу ставит загрузку следующей. Контроллеры окон хранят состояние одного открытия (id интервью, окно),
+ * поэтому каждое открытие получает свой контроллер, а не переиспользует закрытый.
+ * Заготовка разбирается задолго до открытия, поэтому данные из БД контроллер загружает в init (при открытии),
+ * а не в initialize (при разборе разметки).
+ * Время открытия каждого окна учитывается (см. ViewStatistics)
+ */
+public class ViewTemplateCache {
+    // содержимое файлов разметки по пути в ресурсах
+    private static final Map<String, byte[]> sources = new ConcurrentHashMap<>();
+    // заготовки окон, загружаемые или загруженные в фоне
+    private static final Map<String, Future<View>> spares = new ConcurrentHashMap<>();
+    private static final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "view-prewarm");
+        thread.setDaemon(true);
+        // заготовки не должны отнимать время у потока JavaFX
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private ViewTemplateCache() {
+    }
+
+    /**
+     * Ставит загрузку заготовок окон в фоновом потоке (для уже загружаемых окон ничего не делает)
+     * @param fxmlUrls пути к файлам разметки в ресурсах
+     */
+    public static void prewarm(String... fxmlUrls) {
+        for (String fxmlUrl : fxmlUrls) {
+            spares.computeIfAbsent(fxmlUrl, url -> loader.submit(() -> load(url)));
+        }
+    }
+
+    /**
+     * Метод, возвращающий новое окно по файлу разметки: готовую заготовку, если она уже загружена
+     * (тогда в фоне загружается следующая), иначе окно загружается в текущем потоке
+     * @param fxmlUrl путь к файлу разметки в ресурсах
+     * @return View дерево компонентов и контроллер
+     * @throws IOException
+     */
+    public static View take(String fxmlUrl) throws IOException {
+        Future<View> spare = spares.remove(fxmlUrl);
+        if (spare == null)
+            return load(fxmlUrl);
+        View view = null;
+        if (spare.isDone()) {
+            try {
+                view = spare.get();
+                view.prewarmed = true;
+            } catch (ExecutionException e) {
+                // заготовку не удалось загрузить в фоне, окно загружается в текущем потоке
+                e.getCause().printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            // ждать очереди фонового потока дольше, чем загрузить окно самим
+            spare.cancel(false);
+        }
+        prewarm(fxmlUrl);
+        return view != null ? view : load(fxmlUrl);
+    }
+
+    /**
+     * Метод, загружающий новое окно из файла разметки (файл читается из ресурсов только в первый раз)
+     * @param fxmlUrl путь к файлу разметки в ресурсах
+     * @return View дерево компонентов и контроллер
+     * @throws IOException
+     */
+    public static View load(String fxmlUrl) throws IOException {
+        URL url = ViewTemplateCache.class.getClassLoader().getResource(fxmlUrl);
+        if (url == null)
+            throw new IOException("Не найден файл разметки " + fxmlUrl);
+        byte[] source;
+        try {
+            source = sources.computeIfAbsent(fxmlUrl, key -> read(url));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        FXMLLoader fxmlLoader = new FXMLLoader();
+        // относительные ссылки разметки (стили, картинки) разрешаются от исходного файла
+        fxmlLoader.setLocation(url);
+        Parent root = fxmlLoader.load(new ByteArrayInputStream(source));
+        return new View(root, fxmlLoader.getController(), false);
+    }
+
+    /**
+     * Учитывает время открытия окна (см. getStatistics)
+     * @param fxmlUrl путь к файлу разметки в ресурсах
+     * @param view открытое окно
+     * @param startNanos System.nanoTime() в начале открытия
+     */
+    public static void recordOpen(String fxmlUrl, View view, long startNanos) {
+        long millis = (System.nanoTime() - startNanos) / 1000000;
+        latencies.computeIfAbsent(fxmlUrl, Latency::new).add(millis, view.isPrewarmed());
+    }
+
+    /**
+     * Метод, возвращающий статистику открытия окон
+     * @return List<ViewStatistics> статистика по каждому открывавшемуся окну
+     */
+    public static List<ViewStatistics> getStatistics() {
+        List<ViewStatistics> statistics = new ArrayList<>();
+        for (Latency latency : latencies.values()) {
+            statistics.add(latency.snapshot());
+        }
+        return statistics;
+    }
+
+    private static byte[] read(URL url) {
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Загруженное окно: корень дерева компонентов и его контроллер
+     */
+    public static class View {
+        private final Parent root;
+        private final Object controller;
+        private boolean prewarmed;
+
+        View(Parent root, Object controller, boolean prewarmed) {
+            this.root = root;
+            this.controller = controller;
+            this.prewarmed = prewarmed;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T extends Parent> T getRoot() {
+            return (T) root;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T getController() {
+            return (T) controller;
+        }
+
+        /**
+         * @return boolean true, если окно взято из заготовки
+         */
+        public boolean isPrewarmed() {
+            return prewarmed;
+        }
+    }
+
+    /**
+     * Накопленное время открытия одного окна
+     */
+    private static class Latency {
+        private final String fxmlUrl;
+        private long openCount;
+        private long prewarmedCount;
+        private long lastMillis;
+        private long totalMillis;
+        private long maxMillis;
+
+        Latency(String fxmlUrl) {
+            this.fxmlUrl = fxmlUrl;
+        }
+
+        synchronized void add(long millis, boolean prewarmed) {
+            openCount++;
+            if (prewarmed)
+                prewarmedCount++;
+            lastMillis = millis;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        synchronized ViewStatistics snapshot() {
+            return new ViewStatistics(fxmlUrl, openCount, prewarmedCount, lastMillis, totalMillis, maxMillis);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+import config.AppConfig;
+import config.DatabaseDialect;
+import config.DatabaseHelper;
+import config.InterviewExporter;
+import entity.Category;
+import entity.Interview;
+import model.ImportStatistics;
+import model.InterviewDetail;
+import model.PoolStatistics;
+import model.SyncStatistics;
+import org.h2.tools.Server;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Одна и та же работа с БД через DatabaseHelper для каждого диалекта:
+ * SQLite - временный файл, H2 - БД на сервере H2, запущенном на время тестов
+ */
+@RunWith(Parameterized.class)
+public class BackendTests {
+    private static Server server;
+    private static Path serverDirectory;
+    private static int databaseCount;
+
+    private final DatabaseDialect dialect;
+    private final List<File> files = new ArrayList<>();
+    private final List<DatabaseHelper> helpers = new ArrayList<>();
+    private DatabaseHelper helper;
+    private String url;
+
+    public BackendTests(DatabaseDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> dialects() {
+        return Arrays.asList(new Object[]{DatabaseDialect.SQLITE}, new Object[]{DatabaseDialect.H2});
+    }
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        serverDirectory = Files.createTempDirectory("h2server");
+        server = Server.createTcpServer("-tcpPort", "0", "-baseDir", serverDirectory.toString()).start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws IOException {
+        server.stop();
+        for (File file : serverDirectory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(serverDirectory);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        helper = open();
+    }
+
+    @After
+    public void tearDown() {
+        for (DatabaseHelper opened : helpers) {
+            opened.close();
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void interviewsAreSavedSearchedAndDeleted() throws Exception {
+        Category java = helper.addCategory("Java");
+        Category sql = helper.addCategory("SQL");
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр",
+                "18.07.2016", "принят", "Java программист", "10:00:00");
+        Interview second = helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр",
+                "19.07.2016", "", "тестировщик", "11:00:00");
+        helper.addMark(java.getIdCategory(), first.getIdInterview(), 4.5);
+        helper.addMark(sql.getIdCategory(), second.getIdInterview(), 3);
+        helper.addOrEditInterviewComment(second.getIdInterview(), "3 года", "знает java", "Рога и копыта", "");
+
+        InterviewDetail detail = helper.getInterviewDetail(first.getIdInterview());
+        Assert.assertEquals("Иванов Иван", detail.getCandidate().getFio());
+        Assert.assertEquals(4.5, detail.getMarks().get(0).getValue(), 0);
+
+        Assert.assertEquals(1, helper.getInterviewRows("ИВАН", "", "", "").size());
+        Assert.assertEquals(1, helper.getInterviewRows("", "прог", "18.07.2016", "").size());
+        Assert.assertEquals(0, helper.getInterviewRows("", "прог", "19.07.2016", "").size());
+        Assert.assertEquals(1, helper.getInterviewRows("", "", "", "копыта").size());
+        Assert.assertEquals(2, helper.getInterviewRows("", "", "07.2016", "").size());
+        // совпадение в должности весомее, чем в комментарии
+        List<Interview> found = helper.searchInterviews("java", 10);
+        Assert.assertEquals(2, found.size());
+        Assert.assertEquals(first.getIdInterview(), found.get(0).getIdInterview());
+        found = helper.searchInterviews("java", 1);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals(first.getIdInterview(), found.get(0).getIdInterview());
+
+        helper.editMark(first.getIdInterview(), java.getIdCategory(), 5);
+        Assert.assertEquals(5, helper.getMarkByInterviewAndCategory(first.getIdInterview(), "Java").getValue(), 0);
+        helper.editCandidate("Сидоров Сидор", "02.02.1992", "+");
+        Assert.assertEquals(1, helper.getCandidateSuggestions("сидор", 10).size());
+
+        helper.delCategoryById(sql.getIdCategory());
+        Assert.assertNull(helper.getMarkByInterviewAndCategory(second.getIdInterview(), "SQL"));
+        helper.delInterviewById(first.getIdInterview());
+        Assert.assertEquals(1, helper.getCountOfInterview());
+        Assert.assertEquals(1, helper.searchInterviews("java", 10).size());
+        Assert.assertEquals(0, helper.getPoolStatistics().getActiveConnections());
+    }
+
+    @Test
+    public void exportedInterviewsAreImported() throws Exception {
+        Category java = helper.addCategory("Java");
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр",
+                "18.07.2016", "принят", "программист", "10:00:00");
+        helper.addMark(java.getIdCategory(), first.getIdInterview(), 4);
+        helper.addOrEditInterviewComment(first.getIdInterview(), "3 года", "", "", "сильный кандидат");
+        helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр", "19.07.2016", "", "аналитик", "11:00:00");
+
+        File export = File.createTempFile("interviews", ".jsonl");
+        files.add(export);
+        helper.exportInterviews(export.toPath(), InterviewExporter.Format.JSONL, null);
+        DatabaseHelper imported = open();
+        ImportStatistics statistics = imported.importInterviews(export.toPath(), InterviewExporter.Format.JSONL, null, null);
+        Assert.assertEquals(2, statistics.getImported());
+        Assert.assertEquals(2, imported.getCountOfCandidate());
+        Assert.assertEquals(1, imported.getInterviewRows("", "", "", "сильный").size());
+        int id = imported.getInterviewRows("иванов", "", "", "").get(0).getIdInterview();
+        Assert.assertEquals(4, imported.getMarkByInterviewAndCategory(id, "Java").getValue(), 0);
+    }
+
+    @Test
+    public void databaseIsSynchronizedWithSqliteFile() throws Exception {
+        File officeFile = File.createTempFile("office", ".db");
+        files.add(officeFile);
+        DatabaseHelper office = new DatabaseHelper(AppConfig.DATABASE_PREFIX + officeFile.getAbsolutePath());
+        helpers.add(office);
+        Category java = helper.addCategory("Java");
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+        helper.addMark(java.getIdCategory(), first.getIdInterview(), 4);
+        office.addInterview("Сидоров Сидор", "02.02.1992", "Козлов Олег", "19.07.2016", "", "аналитик", "11:00:00");
+
+        SyncStatistics statistics = helper.syncWith(office);
+        Assert.assertEquals(3, statistics.getReceived());
+        Assert.assertEquals(5, statistics.getSent());
+        int copy = office.getInterviewRows("иванов", "", "", "").get(0).getIdInterview();
+        Assert.assertEquals(4, office.getMarkByInterviewAndCategory(copy, "Java").getValue(), 0);
+        Assert.assertEquals(1, helper.getInterviewRows("сидоров", "", "", "").size());
+
+        office.editMark(copy, office.getCategoryByName("Java").getIdCategory(), 2);
+        office.delInterviewById(office.getInterviewRows("сидоров", "", "", "").get(0).getIdInterview());
+        statistics = helper.syncWith(office);
+        Assert.assertEquals(0, statistics.getSent());
+        Assert.assertEquals(2, helper.getMarkByInterviewAndCategory(first.getIdInterview(), "Java").getValue(), 0);
+        Assert.assertEquals(1, helper.getCountOfInterview());
+        Assert.assertTrue(helper.getInterviewRows("сидоров", "", "", "").isEmpty());
+    }
+
+    @Test
+    public void preparedStatementsAreReused() throws Exception {
+        helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+        long before = helper.getPoolStatistics().getStatementCacheHits();
+        for (int i = 0; i < 20; i++) {
+            helper.getInterviewers();
+            helper.getInterviewsByDay(java.time.LocalDate.of(2016, 7, 18));
+        }
+        PoolStatistics statistics = helper.getPoolStatistics();
+        // запрос готовится один раз на каждое подключение пула, дальше берется из кэша
+        Assert.assertTrue(statistics.getStatementCacheHits() - before >= 40 - 2 * statistics.getMaxConnections());
+        Assert.assertEquals(0, statistics.getActiveConnections());
+    }
+
+    @Test
+    public void backupsAreTakenOnlyFromLocalFile() throws Exception {
+        helper.addCandidate("Иванов Иван", "01.01.1990", "-");
+        File backup = File.createTempFile("backup", ".db");
+        files.add(backup);
+        try {
+            helper.backupTo(backup.toPath());
+            Assert.assertTrue(dialect.isOnlineBackupSupported());
+        } catch (SQLException e) {
+            Assert.assertFalse(dialect.isOnlineBackupSupported());
+        }
+    }
+
+    @Test
+    public void sharedDatabaseCachesSeeOtherSeatChanges() throws Exception {
+        Assume.assumeTrue(dialect.isShared());
+        DatabaseHelper seat = openSeat();
+        Category java = helper.addCategory("Java");
+        helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+        // кэши и индексы подсказок второго рабочего места заполнены
+        Assert.assertEquals(1, seat.getCategories().size());
+        Assert.assertNotNull(seat.getCategoryByName("java"));
+        Assert.assertEquals(1, seat.getInterviewRows("", "", "", "").size());
+        Assert.assertEquals(1, seat.getCandidateSuggestions("иван", 10).size());
+
+        helper.addCategory("SQL");
+        helper.delCategoryById(java.getIdCategory());
+        helper.addInterview("Сидоров Сидор", "02.02.1992", "Козлов Олег", "19.07.2016", "", "аналитик", "11:00:00");
+        Assert.assertEquals(1, seat.getCategories().size());
+        Assert.assertNull(seat.getCategoryByName("java"));
+        Assert.assertNotNull(seat.getCategoryByName("sql"));
+        Assert.assertEquals(2, seat.getInterviewRows("", "", "", "").size());
+        Assert.assertEquals(1, seat.getCandidateSuggestions("сидор", 10).size());
+        Assert.assertEquals(1, seat.getInterviewerSuggestions("козлов", 10).size());
+
+        // изменения второго места видны первому
+        seat.delInterviewById(helper.getInterviewRows("иванов", "", "", "").get(0).getIdInterview());
+        Assert.assertEquals(1, helper.getInterviewRows("", "", "", "").size());
+    }
+
+    /**
+     * Открывает новую пустую БД проверяемого диалекта
+     */
+    private DatabaseHelper open() throws Exception {
+        if (dialect == DatabaseDialect.H2) {
+            url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/interview" + (++databaseCount);
+        } else {
+            File file = File.createTempFile("interview", ".db");
+            files.add(file);
+            url = AppConfig.DATABASE_PREFIX + file.getAbsolutePath();
+        }
+        DatabaseHelper opened = new DatabaseHelper(url, dialect);
+        helpers.add(opened);
+        return opened;
+    }
+
+    /**
+     * Открывает еще одно рабочее место на последней открытой БД
+     */
+    private DatabaseHelper openSeat() throws Exception {
+        DatabaseHelper opened = new DatabaseHelper(url, dialect);
+        helpers.add(opened);
+        return opened;
+    }
+}
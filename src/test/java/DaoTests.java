@@ -1,6 +1,989 @@
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import config.AppConfig;
+import config.AsyncDatabaseHelper;
+import config.BackupManager;
+import config.DatabaseHelper;
+import config.FetchPlan;
+import config.InterviewListener;
+import config.InterviewExporter;
+import config.PrefixIndex;
+import config.ReminderStore;
+import entity.Candidate;
+import entity.Category;
+import entity.Interview;
+import entity.InterviewComment;
+import entity.Interviewer;
+import entity.Mark;
+import entity.Reminder;
+import model.Alarm;
+import model.CacheStatistics;
+import model.CategoryRow;
+import model.ExportStatistics;
+import model.ImportStatistics;
+import model.InterviewDetail;
+import model.InterviewListRow;
+import model.PoolStatistics;
+import model.SyncStatistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import util.DateTimeUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Created by avpolyakov on 15.07.2016.
  */
 public class DaoTests {
+    private File databaseFile;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseFile = File.createTempFile("interview", ".db");
+        helper = new DatabaseHelper(AppConfig.DATABASE_PREFIX + databaseFile.getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        helper.close();
+        databaseFile.delete();
+    }
+
+    @Test
+    public void poolReusesConnections() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            helper.getInterviewers();
+        }
+        PoolStatistics statistics = helper.getPoolStatistics();
+        Assert.assertEquals(0, statistics.getActiveConnections());
+        Assert.assertTrue(statistics.getCreatedConnections() <= statistics.getMaxConnections());
+        Assert.assertTrue(statistics.getAcquireCount() >= 50);
+    }
+
+    @Test
+    public void candidateLookupByNormalizedKey() throws Exception {
+        Candidate candidate = helper.getOrAddCandidate("Иванов  Иван Иванович", "01.01.1990");
+        Assert.assertEquals(candidate.getIdCandidate(),
+                helper.getOrAddCandidate("иванов иван иванович ", "01.01.1990").getIdCandidate());
+        Assert.assertNotEquals(candidate.getIdCandidate(),
+                helper.getOrAddCandidate("Иванов Иван Иванович", "02.02.1992").getIdCandidate());
+        Assert.assertEquals(2, helper.getCountOfCandidate());
+    }
+
+    @Test
+    public void interviewerAndCategoryLookupByNormalizedKey() throws Exception {
+        Interviewer interviewer = helper.getInterviewerByFio("Петров Пётр");
+        Assert.assertEquals(interviewer.getIdInterviewer(), helper.getInterviewerByFio("ПЕТРОВ ПЕТР").getIdInterviewer());
+        Assert.assertNull(helper.getCategoryByName("Java"));
+        Category category = helper.addCategory("Java");
+        Assert.assertEquals(category.getIdCategory(), helper.getCategoryByName(" java ").getIdCategory());
+    }
+
+    @Test
+    public void interviewDetailLoadsEverythingForEditDialog() throws Exception {
+        Category java = helper.addCategory("Java");
+        Category sql = helper.addCategory("SQL");
+        Interview interview = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр",
+                "20.07.2016", "принят", "программист", "10:00:00");
+        helper.addMark(java.getIdCategory(), interview.getIdInterview(), 4.5);
+
+        InterviewDetail detail = helper.getInterviewDetail(interview.getIdInterview());
+        Assert.assertEquals("Иванов Иван", detail.getCandidate().getFio());
+        Assert.assertEquals("01.01.1990", detail.getCandidate().getBornDate());
+        Assert.assertEquals("Петров Петр", detail.getInterviewer().getFio());
+        Assert.assertEquals("программист", detail.getInterview().getPost());
+        Assert.assertEquals(2, detail.getMarks().size());
+        Assert.assertEquals(4.5, detail.getMarks().get(0).getValue(), 0);
+        Assert.assertEquals(0.0, detail.getMarks().get(1).getValue(), 0);
+        // пустой комментарий не должен записываться при открытии диалога
+        Assert.assertNotNull(detail.getComment());
+        Assert.assertNull(helper.getInterviewCommentByIdInterview(interview.getIdInterview()));
+        Assert.assertNull(helper.getInterviewDetail(interview.getIdInterview() + 1));
+        Assert.assertEquals(0, helper.getPoolStatistics().getActiveConnections());
+    }
+
+    @Test
+    public void interviewSaveWritesOnlyChangedMarks() throws Exception {
+        Category java = helper.addCategory("Java");
+        Category sql = helper.addCategory("SQL");
+        Category english = helper.addCategory("English");
+        List<CategoryRow> rows = helper.getInterviewMarksAll(0);
+        rows.get(0).setValue(4.0);
+        rows.get(1).setValue(3.0);
+        InterviewComment comment = new InterviewComment();
+        comment.setComment("хороший кандидат");
+        Interview interview = helper.editOrAddInterview(0, "20.07.2016", 0, "Иванов Иван", "01.01.1990",
+                0, "Петров Петр", "принят", "программист", "10:00:00", rows, comment);
+
+        rows = helper.getInterviewMarksAll(interview.getIdInterview());
+        rows.get(0).setValue(5.0);
+        rows.get(1).setValue(0.0);
+        rows.get(2).setValue(2.0);
+        helper.editOrAddInterview(interview.getIdInterview(), "21.07.2016", interview.getIdCandidate().getIdCandidate(),
+                "Иванов Иван", "01.01.1990", interview.getIdInterviewer().getIdInterviewer(), "Петров Петр",
+                "принят", "программист", "11:00:00", rows, null);
+
+        InterviewDetail detail = helper.getInterviewDetail(interview.getIdInterview());
+        Assert.assertEquals("21.07.2016", detail.getInterview().getDate());
+        Assert.assertEquals(5.0, detail.getMarks().get(0).getValue(), 0);
+        Assert.assertEquals(0.0, detail.getMarks().get(1).getValue(), 0);
+        Assert.assertEquals(2.0, detail.getMarks().get(2).getValue(), 0);
+        Assert.assertEquals("хороший кандидат", detail.getComment().getComment());
+        Assert.assertEquals(1, helper.getCountOfCandidate());
+        Assert.assertEquals(1, helper.getCountOfInterview());
+    }
+
+    @Test
+    public void failedSaveIsRolledBack() throws Exception {
+        Category java = helper.addCategory("Java");
+        List<CategoryRow> rows = helper.getInterviewMarksAll(0);
+        rows.get(0).setValue(4.0);
+        rows.add(new CategoryRow(null, 1.0));
+        try {
+            helper.editOrAddInterview(0, "20.07.2016", 0, "Иванов Иван", "01.01.1990",
+                    0, "Петров Петр", "принят", "программист", "10:00:00", rows, null);
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals(0, helper.getCountOfInterview());
+            Assert.assertEquals(0, helper.getCountOfCandidate());
+        }
+    }
+
+    @Test
+    public void interviewsAreSelectedByDateRanges() throws Exception {
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр",
+                "18.07.2016", "", "программист", "10:00:00");
+        helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр",
+                "18.07.2016", "", "тестировщик", "09:30:00");
+        helper.addInterview("Смирнов Олег", "03.03.1993", "Кузнецов Иван",
+                "18.07.2016", "", "аналитик", "12:00:00");
+        helper.addInterview("Козлов Антон", "04.04.1994", "Петров Петр",
+                "24.07.2016", "", "программист", "23:59:00");
+        helper.addInterview("Попов Павел", "05.05.1995", "Петров Петр",
+                "25.07.2016", "", "программист", "00:00:00");
+
+        List<Interview> day = helper.getInterviewsByDay(LocalDate.of(2016, 7, 18));
+        Assert.assertEquals(3, day.size());
+        Assert.assertEquals("09:30:00", day.get(0).getTime());
+        Assert.assertEquals(4, helper.getInterviewsByWeek(LocalDate.of(2016, 7, 20)).size());
+        Assert.assertEquals(2, helper.getInterviewsByInterviewerAndDay(
+                first.getIdInterviewer().getIdInterviewer(), LocalDate.of(2016, 7, 18)).size());
+        Assert.assertEquals(3, helper.getInterviewsByDate("18.07.2016").size());
+        Assert.assertEquals(5, helper.getInterviewsByDate("07.2016").size());
+        Assert.assertEquals(2, helper.getInterviewsByCandidateFioAndDateAndPost("", "программист", "18.07.2016").size() +
+                helper.getInterviewsByCandidateFioAndDateAndPost("Козлов", "", "24.07.2016").size());
+    }
+
+    @Test
+    public void interviewPagesFollowKeysetCursor() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            // по два интервью в одно время, чтобы порядок внутри страницы определял id
+            helper.addInterview("Кандидат " + i, "01.01.1990", "Петров Петр",
+                    "1" + (i / 2) + ".07.2016", "", "программист", "10:00:00");
+        }
+        List<Interview> all = new ArrayList<>();
+        Long lastDateTime = null;
+        int lastId = 0;
+        List<Interview> page;
+        do {
+            page = helper.getInterviewPage(lastDateTime, lastId, 3);
+            Assert.assertTrue(page.size() <= 3);
+            if (!page.isEmpty()) {
+                lastDateTime = page.get(page.size() - 1).getDateTime();
+                lastId = page.get(page.size() - 1).getIdInterview();
+            }
+            all.addAll(page);
+        } while (page.size() == 3);
+
+        Assert.assertEquals(7, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            Interview previous = all.get(i - 1);
+            Interview current = all.get(i);
+            Assert.assertTrue(previous.getDateTime() > current.getDateTime()
+                    || previous.getDateTime().equals(current.getDateTime())
+                    && previous.getIdInterview() > current.getIdInterview());
+        }
+    }
+
+    @Test
+    public void fetchPlansRunFixedNumberOfQueries() throws Exception {
+        Category first = helper.addCategory("Java");
+        Category second = helper.addCategory("SQL");
+        for (int i = 0; i < 5; i++) {
+            Interview interview = helper.addInterview("Кандидат " + i, "01.01.1990", "Рекрутер " + i,
+                    "18.07.2016", "", "программист", "10:00:00");
+            helper.addMark(first.getIdCategory(), interview.getIdInterview(), 4);
+            helper.addMark(second.getIdCategory(), interview.getIdInterview(), 5);
+        }
+
+        Assert.assertEquals(1, countQueries(() -> helper.getInterview(FetchPlan.NONE)));
+        Assert.assertEquals(2, countQueries(() -> helper.getInterview(
+                FetchPlan.of(FetchPlan.Association.CANDIDATE))));
+        Assert.assertEquals(3, countQueries(() -> helper.getInterview(FetchPlan.LIST)));
+        // оценки: запрос оценок и запрос всех критериев (при первом обращении, дальше - из кэша)
+        Assert.assertEquals(5, countQueries(() -> helper.getInterview(FetchPlan.FULL)));
+        Assert.assertEquals(4, countQueries(() -> helper.getInterview(FetchPlan.FULL)));
+        // внешние коллекции не загружаются вместе с сущностью
+        Assert.assertEquals(1, countQueries(() -> helper.getCandidates()));
+        Assert.assertEquals(1, countQueries(() -> helper.getInterviewers()));
+
+        List<Interview> interviews = helper.getInterview(FetchPlan.FULL);
+        Assert.assertEquals("Кандидат 0", interviews.get(0).getIdCandidate().getFio());
+        Assert.assertEquals("Рекрутер 0", interviews.get(0).getIdInterviewer().getFio());
+        Assert.assertEquals(2, interviews.get(0).getMarks().size());
+        for (Mark mark : interviews.get(0).getMarks()) {
+            Assert.assertNotNull(mark.getIdCategory().getName());
+        }
+        Assert.assertNull(helper.getInterview(FetchPlan.NONE).get(0).getIdCandidate().getFio());
+    }
+
+    @Test
+    public void interviewRowsAreLoadedWithOneJoinQuery() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            helper.addInterview("Кандидат " + i, "01.01.1990", "Петров Петр",
+                    "1" + i + ".07.2016", "", i % 2 == 0 ? "программист" : "аналитик", "10:00:00");
+        }
+        Assert.assertEquals(1, countQueries(() -> helper.getInterviewRows("", "", "", "")));
+        Assert.assertEquals(1, countQueries(() -> helper.getInterviewRowPage(null, 0, 2)));
+
+        List<InterviewListRow> rows = helper.getInterviewRows("", "", "", "");
+        Assert.assertEquals(5, rows.size());
+        Assert.assertEquals("Кандидат 4", rows.get(0).getFio());
+        Assert.assertEquals("14.07.2016", rows.get(0).getDate());
+        Assert.assertEquals(3, helper.getInterviewRows("", "программист", "", "").size());
+        Assert.assertEquals(1, helper.getInterviewRows("", "", "12.07.2016", "").size());
+
+        List<InterviewListRow> page = helper.getInterviewRowPage(null, 0, 2);
+        InterviewListRow last = page.get(page.size() - 1);
+        List<InterviewListRow> next = helper.getInterviewRowPage(last.getDateTime(), last.getIdInterview(), 2);
+        Assert.assertEquals("Кандидат 2", next.get(0).getFio());
+        Assert.assertEquals("Кандидат 0", helper.getInterviewRowById(rows.get(4).getIdInterview()).getFio());
+    }
+
+    @Test
+    public void asyncHelperCancelsSupersededQueries() throws Exception {
+        helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+        List<Thread> callbackThreads = new ArrayList<>();
+        AsyncDatabaseHelper async = new AsyncDatabaseHelper(helper, runnable -> {
+            callbackThreads.add(Thread.currentThread());
+            runnable.run();
+        }, 1, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Object> blocker = async.submit(h -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return null;
+            });
+            started.await();
+            CompletableFuture<List<InterviewListRow>> stale = async.getInterviewRows("", "", "", "");
+            CompletableFuture<List<InterviewListRow>> fresh = async.getInterviewRows("Иванов", "", "", "");
+            Assert.assertTrue(stale.isCancelled());
+            release.countDown();
+            Assert.assertEquals(1, fresh.get(5, TimeUnit.SECONDS).size());
+            blocker.get(5, TimeUnit.SECONDS);
+            Assert.assertFalse(callbackThreads.isEmpty());
+            Assert.assertNotEquals(Thread.currentThread(), callbackThreads.get(0));
+        } finally {
+            release.countDown();
+            async.shutdown();
+        }
+    }
+
+    @Test
+    public void readsRunConcurrentlyWithWriteTransaction() throws Exception {
+        helper.addCategory("Java");
+        CountDownLatch inTransaction = new CountDownLatch(1);
+        CountDownLatch readDone = new CountDownLatch(1);
+        List<Integer> seen = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            try {
+                inTransaction.await();
+                // читающее подключение не ждет транзакцию и видит только зафиксированные данные
+                seen.add(helper.getCategories().size());
+            } catch (Exception e) {
+                seen.add(-1);
+            } finally {
+                readDone.countDown();
+            }
+        });
+        reader.start();
+        helper.callInTransaction(() -> {
+            helper.addCategory("SQL");
+            Assert.assertEquals(2, helper.getCategories().size());
+            inTransaction.countDown();
+            Assert.assertTrue(readDone.await(5, TimeUnit.SECONDS));
+            return null;
+        });
+        reader.join();
+        Assert.assertEquals(Integer.valueOf(1), seen.get(0));
+        Assert.assertEquals(2, helper.getCategories().size());
+    }
+
+    @Test
+    public void concurrentWritesAreSerialized() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int number = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10; i++) {
+                        helper.addCategory("Критерий " + number + "-" + i);
+                        helper.getCategories();
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        Assert.assertEquals(40, helper.getCategories().size());
+    }
+
+    @Test
+    public void categoriesAreReadThroughCache() throws Exception {
+        Category java = helper.addCategory("Java");
+        helper.getCategories();
+        long misses = helper.getCategoryCacheStatistics().getMissCount();
+        Assert.assertEquals(0, countQueries(() -> {
+            helper.getCategories();
+            helper.getCategoryById(java.getIdCategory());
+            return helper.getCategoryByName(" JAVA ");
+        }));
+        Assert.assertEquals(misses, helper.getCategoryCacheStatistics().getMissCount());
+        Assert.assertTrue(helper.getCategoryCacheStatistics().getHitCount() >= 3);
+
+        helper.addCategory("SQL");
+        Assert.assertEquals(2, helper.getCategories().size());
+        helper.editCategory(java.getIdCategory(), "Kotlin");
+        Assert.assertNull(helper.getCategoryByName("Java"));
+        Assert.assertEquals("Kotlin", helper.getCategoryById(java.getIdCategory()).getName());
+        helper.delCategoryById(java.getIdCategory());
+        Assert.assertNull(helper.getCategoryById(java.getIdCategory()));
+        Assert.assertEquals(1, helper.getCategories().size());
+
+        // критерий, добавленный в откаченной транзакции, в кэш не попадает
+        try {
+            helper.callInTransaction(() -> {
+                helper.addCategory("Go");
+                Assert.assertEquals(2, helper.getCategories().size());
+                throw new SQLException("откат");
+            });
+            Assert.fail();
+        } catch (SQLException expected) {
+        }
+        Assert.assertEquals(1, helper.getCategories().size());
+    }
+
+    @Test
+    public void filterResultsAreCachedUntilDataChanges() throws Exception {
+        Interview interview = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр",
+                "18.07.2016", "", "программист", "10:00:00");
+        Assert.assertEquals(1, helper.getInterviewRows("", "программист", "", "").size());
+        // одинаковые после нормализации фильтры берутся из кэша
+        Assert.assertEquals(0, countQueries(() -> helper.getInterviewRows(" ", " ПРОГРАММИСТ ", "", "")));
+        Assert.assertEquals(1, helper.getFilterCacheStatistics().getHitCount());
+
+        helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр", "19.07.2016", "", "программист", "11:00:00");
+        Assert.assertEquals(2, helper.getInterviewRows("", "программист", "", "").size());
+        helper.addOrEditInterviewComment(interview.getIdInterview(), "", "", "", "знает sql");
+        Assert.assertEquals(1, helper.getInterviewRows("", "", "", "sql").size());
+        helper.delInterviewById(interview.getIdInterview());
+        Assert.assertEquals(0, helper.getInterviewRows("", "", "", "sql").size());
+        Assert.assertEquals(1, helper.getInterviewRows("", "программист", "", "").size());
+
+        helper.setFilterCacheMaxSize(2);
+        helper.getInterviewRows("Сидоров", "", "", "");
+        helper.getInterviewRows("", "", "19.07.2016", "");
+        CacheStatistics statistics = helper.getFilterCacheStatistics();
+        Assert.assertEquals(2, statistics.getSize());
+        Assert.assertTrue(statistics.getEvictionCount() >= 2);
+        Assert.assertEquals(1, countQueries(() -> helper.getInterviewRows("", "программист", "", "")));
+    }
+
+    @Test
+    public void suggestionsComeFromIncrementalPrefixIndex() throws Exception {
+        Candidate ivanov = helper.addCandidate("Иванов Иван Иванович", "01.01.1990", "-");
+        helper.addCandidate("Иваненко Петр", "02.02.1992", "-");
+        Assert.assertEquals(2, helper.getCandidateSuggestions("ИВАН", 10).size());
+        Assert.assertEquals(1, helper.getCandidateSuggestions("иванович", 10).size());
+        Assert.assertEquals(1, helper.getCandidateSuggestions("ива", 1).size());
+
+        // новые и переименованные записи попадают в индекс без повторного чтения из БД
+        helper.addInterview("Петров Петр", "03.03.1993", "Сидоров Сидор", "18.07.2016", "", "программист", "10:00:00");
+        Assert.assertEquals(0, countQueries(() -> helper.getCandidateSuggestions("петр", 10)));
+        Assert.assertEquals(2, helper.getCandidateSuggestions("петр", 10).size());
+        Assert.assertEquals("Сидоров Сидор", helper.getInterviewerSuggestions("сид", 10).get(0).getFio());
+        helper.delCandidateById(ivanov.getIdCandidate());
+        Assert.assertEquals(1, helper.getCandidateSuggestions("иван", 10).size());
+
+        // кандидат из откаченной транзакции в подсказках не остается
+        try {
+            helper.callInTransaction(() -> {
+                helper.addCandidate("Смирнов Олег", "04.04.1994", "-");
+                throw new SQLException("откат");
+            });
+            Assert.fail();
+        } catch (SQLException expected) {
+        }
+        Assert.assertTrue(helper.getCandidateSuggestions("смир", 10).isEmpty());
+    }
+
+    @Test
+    public void prefixIndexFindsSuggestionsAmongManyNames() {
+        PrefixIndex<Interviewer> index = new PrefixIndex<>(Interviewer::getIdInterviewer, Interviewer::getFio);
+        List<Interviewer> interviewers = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            Interviewer interviewer = new Interviewer();
+            interviewer.setIdInterviewer(i);
+            interviewer.setFio("Фамилия" + i + " Имя" + (i % 100));
+            interviewers.add(interviewer);
+        }
+        index.load(interviewers);
+        Assert.assertEquals(100000, index.size());
+        long start = System.nanoTime();
+        for (int i = 1; i <= 1000; i++) {
+            Assert.assertEquals(10, index.find("фамилия" + i, 10).size());
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        Assert.assertEquals(1, index.find("фамилия99999", 10).size());
+        Assert.assertEquals(10, index.find("имя7", 10).size());
+    }
+
+    @Test
+    public void cascadeDeletesRunSetBasedStatements() throws Exception {
+        Category java = helper.addCategory("Java");
+        Category sql = helper.addCategory("SQL");
+        List<Interview> interviews = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Interview interview = helper.addInterview("Кандидат " + i, "01.01.1990", "Петров Петр",
+                    "1" + i + ".07.2016", "", i < 4 ? "программист" : "аналитик", "10:00:00");
+            helper.addMark(java.getIdCategory(), interview.getIdInterview(), 4);
+            helper.addMark(sql.getIdCategory(), interview.getIdInterview(), 5);
+            helper.addOrEditInterviewComment(interview.getIdInterview(), "", "", "", "комментарий " + i);
+            interviews.add(interview);
+        }
+
+        // удаление критерия не читает его оценки: только удаление оценок и критерия
+        Assert.assertEquals(0, countQueries(() -> {
+            helper.delCategoryById(java.getIdCategory());
+            return null;
+        }));
+        Assert.assertEquals(6, countMarks());
+
+        helper.delInterviewById(interviews.get(0).getIdInterview());
+        Assert.assertEquals(5, helper.getCountOfInterview());
+        Assert.assertEquals(5, countMarks());
+        Assert.assertNull(helper.getInterviewCommentByIdInterview(interviews.get(0).getIdInterview()));
+
+        Assert.assertEquals(0, helper.delInterviewsByFilter("", "", "", ""));
+        Assert.assertEquals(3, helper.delInterviewsByFilter("", "программист", "", ""));
+        Assert.assertEquals(2, helper.getCountOfInterview());
+        Assert.assertEquals(2, countMarks());
+        Assert.assertTrue(helper.searchInterviews("программист", 10).isEmpty());
+        Assert.assertEquals(2, helper.getInterviewRows("", "", "", "комментарий").size());
+    }
+
+    @Test
+    public void interviewsAreExportedAsCsvAndJsonLines() throws Exception {
+        Category java = helper.addCategory("Java");
+        helper.addCategory("SQL, базы");
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр",
+                "18.07.2016", "принят", "программист", "10:00:00");
+        helper.addMark(java.getIdCategory(), first.getIdInterview(), 4);
+        helper.addOrEditInterviewComment(first.getIdInterview(), "3 года", "", "", "сказал \"да\",\nно");
+        helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр", "19.07.2016", "", "аналитик", "11:00:00");
+
+        File csv = File.createTempFile("interviews", ".csv");
+        File jsonl = File.createTempFile("interviews", ".jsonl");
+        try {
+            List<ExportStatistics> progress = new ArrayList<>();
+            ExportStatistics statistics = helper.exportInterviews(csv.toPath(), InterviewExporter.Format.CSV, progress::add);
+            Assert.assertEquals(2, statistics.getRows());
+            Assert.assertEquals(csv.length(), statistics.getBytes());
+            Assert.assertFalse(progress.isEmpty());
+            List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+            Assert.assertEquals(4, lines.size());
+            Assert.assertTrue(lines.get(0).endsWith(",comment,Java,\"SQL, базы\""));
+            Assert.assertTrue(lines.get(1).startsWith(first.getIdInterview() + ",18.07.2016,10:00:00,программист,принят,Иванов Иван"));
+            Assert.assertTrue(lines.get(1).endsWith(",\"сказал \"\"да\"\","));
+            Assert.assertEquals("но\",4.0,", lines.get(2));
+            Assert.assertTrue(lines.get(3).endsWith(",,"));
+
+            helper.exportInterviews(jsonl.toPath(), InterviewExporter.Format.JSONL, null);
+            lines = Files.readAllLines(jsonl.toPath(), StandardCharsets.UTF_8);
+            Assert.assertEquals(2, lines.size());
+            Assert.assertTrue(lines.get(0).contains("\"comment\":\"сказал \\\"да\\\",\\nно\""));
+            Assert.assertTrue(lines.get(0).endsWith("\"marks\":{\"Java\":4.0}}"));
+            Assert.assertTrue(lines.get(1).contains("\"result\":\"\""));
+            Assert.assertTrue(lines.get(1).endsWith("\"comment\":null,\"marks\":{}}"));
+        } finally {
+            csv.delete();
+            jsonl.delete();
+        }
+    }
+
+    @Test
+    public void exportedInterviewsAreImportedWithRejects() throws Exception {
+        Category java = helper.addCategory("Java");
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр",
+                "18.07.2016", "принят", "программист", "10:00:00");
+        helper.addMark(java.getIdCategory(), first.getIdInterview(), 4);
+        helper.addOrEditInterviewComment(first.getIdInterview(), "3 года", "", "", "сказал \"да\",\nно");
+        helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр", "19.07.2016", "", "аналитик", "11:00:00");
+
+        File export = File.createTempFile("interviews", ".csv");
+        File rejects = File.createTempFile("rejects", ".jsonl");
+        File target = File.createTempFile("import", ".db");
+        DatabaseHelper imported = new DatabaseHelper(AppConfig.DATABASE_PREFIX + target.getAbsolutePath());
+        try {
+            for (InterviewExporter.Format format : InterviewExporter.Format.values()) {
+                helper.exportInterviews(export.toPath(), format, null);
+                // строка с неверной датой рождения и нечисловой оценкой отклоняются
+                String bad = format == InterviewExporter.Format.CSV
+                        ? "0,20.07.2016,12:00:00,тестировщик,,Козлов Олег,1990,Петров Петр,,,,,\r\n"
+                        + "0,21.07.2016,12:00:00,тестировщик,,Козлов Олег,03.03.1993,Петров Петр,,,,,пять\r\n"
+                        : "{\"date\":\"20.07.2016\",\"post\":\"тестировщик\",\"candidate\":\"Козлов Олег\",\"bornDate\":\"1990\",\"interviewer\":\"Петров Петр\"}\n"
+                        + "{\"date\":\"21.07.2016\",\"post\":\"тестировщик\",\"candidate\":\"Козлов Олег\",\"bornDate\":\"03.03.1993\",\"interviewer\":\"Петров Петр\",\"marks\":{\"Java\":\"пять\"}}\n";
+                Files.write(export.toPath(), bad.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+                List<ImportStatistics> progress = new ArrayList<>();
+                ImportStatistics statistics = imported.importInterviews(export.toPath(), format, rejects.toPath(), progress::add);
+                Assert.assertEquals(4, statistics.getRows());
+                Assert.assertEquals(2, statistics.getImported());
+                Assert.assertEquals(2, statistics.getRejected());
+                Assert.assertFalse(progress.isEmpty());
+                Assert.assertEquals(2, Files.readAllLines(rejects.toPath(), StandardCharsets.UTF_8).size());
+            }
+            // кандидаты, рекрутеры и критерии второй загрузки найдены по ключам, интервью добавлены повторно
+            Assert.assertEquals(4, imported.getCountOfInterview());
+            Assert.assertEquals(2, imported.getCountOfCandidate());
+            Assert.assertEquals(1, imported.getInterviewers().size());
+            Assert.assertEquals(1, imported.getCategories().size());
+            Assert.assertEquals(2, imported.getInterviewRows("", "", "", "сказал").size());
+            InterviewListRow row = imported.getInterviewRows("Иванов", "", "", "").get(0);
+            InterviewDetail detail = imported.getInterviewDetail(row.getIdInterview());
+            Assert.assertEquals("сказал \"да\",\nно", detail.getComment().getComment());
+            Assert.assertEquals(4.0, detail.getMarks().get(0).getValue(), 0);
+            Assert.assertEquals(1, imported.getCandidateSuggestions("сидор", 10).size());
+        } finally {
+            imported.close();
+            export.delete();
+            rejects.delete();
+            target.delete();
+        }
+    }
+
+    @Test
+    public void backupsAreRotatedAndRestored() throws Exception {
+        helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+        Path directory = Files.createTempDirectory("backup");
+        try {
+            Path first = helper.backup(directory);
+            Assert.assertEquals("ok", BackupManager.checkIntegrity(first));
+            for (int i = 0; i < AppConfig.BACKUP_GENERATIONS + 1; i++) {
+                helper.backup(directory);
+            }
+            List<Path> backups = BackupManager.listBackups(directory);
+            Assert.assertEquals(AppConfig.BACKUP_GENERATIONS, backups.size());
+            Assert.assertFalse(backups.contains(first));
+
+            // копия, снятая во время открытой пишущей транзакции, содержит только зафиксированные данные
+            CountDownLatch written = new CountDownLatch(1);
+            CountDownLatch backedUp = new CountDownLatch(1);
+            Thread writer = new Thread(() -> {
+                try {
+                    helper.callInTransaction(() -> {
+                        helper.addCandidate("Сидоров Сидор", "02.02.1992", "-");
+                        written.countDown();
+                        backedUp.await(5, TimeUnit.SECONDS);
+                        return null;
+                    });
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+            written.await(5, TimeUnit.SECONDS);
+            Path snapshot = helper.backup(directory);
+            backedUp.countDown();
+            writer.join();
+
+            helper.delInterviewById(helper.getInterview().get(0).getIdInterview());
+            helper.addCandidate("Козлов Олег", "03.03.1993", "-");
+            Assert.assertEquals(0, helper.getCountOfInterview());
+            Assert.assertEquals(1, helper.getCandidateSuggestions("козлов", 10).size());
+            helper.restore(snapshot);
+            Assert.assertEquals(1, helper.getCountOfInterview());
+            Assert.assertEquals(1, helper.getCountOfCandidate());
+            Assert.assertEquals(1, helper.getInterviewRows("иванов", "", "", "").size());
+            Assert.assertTrue(helper.getCandidateSuggestions("козлов", 10).isEmpty());
+
+            Path broken = directory.resolve("broken.db");
+            Files.write(broken, "not a database".getBytes(StandardCharsets.UTF_8));
+            try {
+                helper.restore(broken);
+                Assert.fail();
+            } catch (SQLException expected) {
+            }
+            Assert.assertEquals(1, helper.getCountOfInterview());
+        } finally {
+            for (Path file : Files.newDirectoryStream(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void databasesExchangeOnlyChangesSinceLastSync() throws Exception {
+        File otherFile = File.createTempFile("office", ".db");
+        DatabaseHelper other = new DatabaseHelper(AppConfig.DATABASE_PREFIX + otherFile.getAbsolutePath());
+        try {
+            Category java = helper.addCategory("Java");
+            Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+            helper.addMark(java.getIdCategory(), first.getIdInterview(), 4);
+            helper.addOrEditInterviewComment(first.getIdInterview(), "3 года", "", "", "сильный кандидат");
+            other.addInterview("Сидоров Сидор", "02.02.1992", "Козлов Олег", "19.07.2016", "", "аналитик", "11:00:00");
+
+            // получены кандидат, рекрутер и интервью; переданы еще критерий, оценка и комментарий
+            SyncStatistics statistics = helper.syncWith(other);
+            Assert.assertEquals(3, statistics.getReceived());
+            Assert.assertEquals(6, statistics.getSent());
+            Assert.assertEquals(2, helper.getCountOfInterview());
+            Assert.assertEquals(2, other.getCountOfInterview());
+            int copy = other.getInterviewRows("иванов", "", "", "").get(0).getIdInterview();
+            Assert.assertEquals(4, other.getMarkByInterviewAndCategory(copy, "Java").getValue(), 0);
+            Assert.assertEquals("сильный кандидат", other.getInterviewCommentByIdInterview(copy).getComment());
+            Assert.assertEquals(1, other.searchInterviews("сильный", 10).size());
+            Assert.assertEquals(1, helper.getInterviewRows("сидоров", "", "", "").size());
+
+            // без новых изменений передавать нечего
+            statistics = helper.syncWith(other);
+            Assert.assertEquals(0, statistics.getReceived() + statistics.getSent() + statistics.getSkipped());
+
+            // оценка изменена в обеих БД: остается более позднее по логическим часам изменение
+            helper.editMark(first.getIdInterview(), java.getIdCategory(), 5);
+            int otherJava = other.getCategoryByName("Java").getIdCategory();
+            other.editMark(copy, otherJava, 3);
+            other.editMark(copy, otherJava, 2);
+            statistics = helper.syncWith(other);
+            Assert.assertEquals(1, statistics.getReceived());
+            Assert.assertEquals(0, statistics.getSent());
+            Assert.assertEquals(1, statistics.getSkipped());
+            Assert.assertEquals(2, helper.getMarkByInterviewAndCategory(first.getIdInterview(), "Java").getValue(), 0);
+            Assert.assertEquals(2, other.getMarkByInterviewAndCategory(copy, "Java").getValue(), 0);
+
+            // удаление интервью передается вместе с удалением его оценок и комментария
+            other.delInterviewById(copy);
+            statistics = helper.syncWith(other);
+            Assert.assertEquals(3, statistics.getReceived());
+            Assert.assertEquals(1, helper.getCountOfInterview());
+            Assert.assertNull(helper.getMarkByInterviewAndCategory(first.getIdInterview(), "Java"));
+            Assert.assertNull(helper.getInterviewCommentByIdInterview(first.getIdInterview()));
+            Assert.assertTrue(helper.searchInterviews("сильный", 10).isEmpty());
+
+            try {
+                helper.syncWith(helper);
+                Assert.fail();
+            } catch (SQLException expected) {
+            }
+        } finally {
+            other.close();
+            otherFile.delete();
+        }
+    }
+
+    private long countMarks() throws Exception {
+        JdbcConnectionSource connectionSource = new JdbcConnectionSource(AppConfig.DATABASE_PREFIX + databaseFile.getAbsolutePath());
+        try {
+            return DaoManager.createDao(connectionSource, Mark.class).countOf();
+        } finally {
+            connectionSource.close();
+        }
+    }
+
+    private long countQueries(Callable<?> callable) throws Exception {
+        long before = helper.getPoolStatistics().getQueryCount();
+        callable.call();
+        return helper.getPoolStatistics().getQueryCount() - before;
+    }
+
+    @Test
+    public void fullTextSearchFindsCandidatesPostsAndComments() throws Exception {
+        Interview java = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр",
+                "18.07.2016", "", "Java программист", "10:00:00");
+        Interview tester = helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр",
+                "19.07.2016", "", "тестировщик", "10:00:00");
+        helper.addOrEditInterviewComment(tester.getIdInterview(), "3 года", "знает java", "Рога и копыта", "");
+
+        Assert.assertEquals(1, helper.getInterviewsByCandidateFioAndDateAndPost("ИВАН", "", "").size());
+        Assert.assertEquals(1, helper.getInterviewsByCandidateFioAndDateAndPost("", "прог", "18.07.2016").size());
+        Assert.assertEquals(0, helper.getInterviewsByCandidateFioAndDateAndPost("", "прог", "19.07.2016").size());
+        Assert.assertEquals(1, helper.getInterviewsByCandidateFioAndDateAndPost("", "", "", "копыта").size());
+        Assert.assertEquals(2, helper.getInterviewsByCandidateFioAndDateAndPost("", "", "07.2016").size());
+
+        // совпадение в должности весомее, чем в комментарии
+        List<Interview> found = helper.searchInterviews("java", 10);
+        Assert.assertEquals(2, found.size());
+        Assert.assertEquals(java.getIdInterview(), found.get(0).getIdInterview());
+        found = helper.searchInterviews("java", 1);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals(java.getIdInterview(), found.get(0).getIdInterview());
+
+        helper.editCandidate("Сидоров Сидор", "02.02.1992", "-");
+        helper.delInterviewById(java.getIdInterview());
+        Assert.assertEquals(1, helper.searchInterviews("java", 10).size());
+    }
+
+    @Test
+    public void reminderStateSurvivesRestart() throws Exception {
+        long lead = 15 * 60 * 1000;
+        long dayStart = DateTimeUtil.toEpochMillis(LocalDate.of(2016, 7, 18).atStartOfDay());
+        long dayEnd = DateTimeUtil.toEpochMillis(LocalDate.of(2016, 7, 19).atStartOfDay());
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+        Interview second = helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр", "18.07.2016", "", "аналитик", "11:00:00");
+        helper.addInterview("Козлов Олег", "03.03.1993", "Петров Петр", "19.07.2016", "", "тестировщик", "10:00:00");
+        List<Alarm> alarms = helper.getAlarms(dayStart, dayEnd, lead);
+        Assert.assertEquals(2, alarms.size());
+        Assert.assertEquals("Иванов Иван", alarms.get(0).getFio());
+        Assert.assertEquals(first.getDateTime() - lead, alarms.get(0).getAlarmDate().getTime());
+        // уже начавшиеся собеседования не напоминаются
+        Assert.assertEquals(1, helper.getAlarms(first.getDateTime(), dayEnd, lead).size());
+
+        ReminderStore store = new ReminderStore(helper, 10, 60000);
+        store.save(new Reminder(first.getIdInterview(), first.getDateTime(), first.getDateTime() - lead, Reminder.State.FIRED, 0));
+        store.save(new Reminder(second.getIdInterview(), second.getDateTime(), second.getDateTime() - lead, Reminder.State.FIRED, 0));
+        // повторное изменение заменяет незаписанное: напоминание отложено после срабатывания
+        store.save(new Reminder(second.getIdInterview(), second.getDateTime(), second.getDateTime() + 1000, Reminder.State.PENDING, 1));
+        Assert.assertEquals(2, store.getPendingCount());
+        Assert.assertNull(helper.getReminder(first.getIdInterview()));
+        store.close();
+
+        helper.close();
+        helper = new DatabaseHelper(AppConfig.DATABASE_PREFIX + databaseFile.getAbsolutePath());
+        long[] loaded = new long[1];
+        Assert.assertEquals(1, countQueries(() -> loaded[0] = helper.getAlarms(dayStart, dayEnd, lead).size()));
+        Assert.assertEquals(1, loaded[0]);
+        Alarm snoozed = helper.getAlarms(dayStart, dayEnd, lead).get(0);
+        Assert.assertEquals(second.getIdInterview(), snoozed.getIdInterview());
+        Assert.assertEquals(second.getDateTime() + 1000, snoozed.getAlarmDate().getTime());
+        Assert.assertEquals(1, snoozed.getSnoozeCount());
+
+        // после переноса собеседования напоминание о нем срабатывает снова
+        helper.editOrAddInterview(first.getIdInterview(), "18.07.2016", first.getIdCandidate().getIdCandidate(),
+                "Иванов Иван", "01.01.1990", first.getIdInterviewer().getIdInterviewer(), "Петров Петр",
+                "", "программист", "12:00:00", new ArrayList<>(), null);
+        Assert.assertEquals(2, helper.getAlarms(dayStart, dayEnd, lead).size());
+        helper.delInterviewById(second.getIdInterview());
+        Assert.assertNull(helper.getReminder(second.getIdInterview()));
+    }
+
+    @Test
+    public void snoozePastInterviewStartSurvivesRestart() throws Exception {
+        long lead = 15 * 60 * 1000;
+        long minute = 60 * 1000;
+        long dayEnd = DateTimeUtil.toEpochMillis(LocalDate.of(2016, 7, 19).atStartOfDay());
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+        Interview second = helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр", "18.07.2016", "", "аналитик", "09:00:00");
+        ReminderStore store = new ReminderStore(helper, 10, 60000);
+        // в 09:45 напоминание отложено на час - за начало собеседования в 10:00
+        store.save(new Reminder(first.getIdInterview(), first.getDateTime(), first.getDateTime() + 45 * minute, Reminder.State.PENDING, 1));
+        // отложенное напоминание, срок которого уже прошел, не восстанавливается
+        store.save(new Reminder(second.getIdInterview(), second.getDateTime(), second.getDateTime() + 30 * minute, Reminder.State.PENDING, 1));
+        store.close();
+
+        helper.close();
+        helper = new DatabaseHelper(AppConfig.DATABASE_PREFIX + databaseFile.getAbsolutePath());
+        // приложение перезапущено в 10:10
+        long now = first.getDateTime() + 10 * minute;
+        long[] loaded = new long[1];
+        Assert.assertEquals(1, countQueries(() -> loaded[0] = helper.getAlarms(now, dayEnd, lead).size()));
+        Assert.assertEquals(1, loaded[0]);
+        Alarm snoozed = helper.getAlarms(now, dayEnd, lead).get(0);
+        Assert.assertEquals(first.getIdInterview(), snoozed.getIdInterview());
+        Assert.assertEquals(first.getDateTime() + 45 * minute, snoozed.getAlarmDate().getTime());
+        Assert.assertEquals(1, snoozed.getSnoozeCount());
+        Assert.assertEquals(1, helper.getAlarms(Collections.singletonList(first.getIdInterview()), now, dayEnd, lead).size());
+
+        // сработавшее отложенное напоминание больше не возвращается
+        helper.saveReminders(Collections.singletonList(new Reminder(first.getIdInterview(), first.getDateTime(),
+                first.getDateTime() + 45 * minute, Reminder.State.FIRED, 1)));
+        Assert.assertTrue(helper.getAlarms(now, dayEnd, lead).isEmpty());
+    }
+
+    @Test
+    public void interviewEventsAreSentAfterCommit() throws Exception {
+        List<String> events = new ArrayList<>();
+        helper.addInterviewListener(new InterviewListener() {
+            @Override
+            public void interviewsSaved(Collection<Integer> ids) {
+                events.add("saved " + ids);
+            }
+
+            @Override
+            public void interviewsDeleted(Collection<Integer> ids) {
+                events.add("deleted " + ids);
+            }
+
+            @Override
+            public void interviewsReloaded() {
+                events.add("reloaded");
+            }
+        });
+        Interview first = helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "программист", "10:00:00");
+        Interview second = helper.addInterview("Сидоров Сидор", "02.02.1992", "Петров Петр", "18.07.2016", "", "аналитик", "11:00:00");
+        // изменения транзакции сообщаются одним событием после фиксации, после отката - не сообщаются
+        helper.callInTransaction(() -> {
+            helper.editOrAddInterview(first.getIdInterview(), "18.07.2016", first.getIdCandidate().getIdCandidate(),
+                    "Иванов Иван", "01.01.1990", first.getIdInterviewer().getIdInterviewer(), "Петров Петр",
+                    "", "программист", "12:00:00", new ArrayList<>(), null);
+            Assert.assertEquals(2, events.size());
+            helper.delInterviewById(second.getIdInterview());
+            return null;
+        });
+        try {
+            helper.callInTransaction(() -> {
+                helper.delInterviewById(first.getIdInterview());
+                throw new SQLException("откат");
+            });
+        } catch (SQLException e) {
+            // ожидаемо
+        }
+        Assert.assertEquals("[saved [" + first.getIdInterview() + "], saved [" + second.getIdInterview() + "], saved ["
+                + first.getIdInterview() + "], deleted [" + second.getIdInterview() + "]]", events.toString());
+
+        long dayStart = DateTimeUtil.toEpochMillis(LocalDate.of(2016, 7, 18).atStartOfDay());
+        long dayEnd = DateTimeUtil.toEpochMillis(LocalDate.of(2016, 7, 19).atStartOfDay());
+        List<Integer> ids = new ArrayList<>();
+        ids.add(first.getIdInterview());
+        ids.add(second.getIdInterview());
+        List<Alarm> alarms = helper.getAlarms(ids, dayStart, dayEnd, 0);
+        Assert.assertEquals(1, alarms.size());
+        Assert.assertEquals(DateTimeUtil.toEpochMillis("18.07.2016", "12:00:00").longValue(), alarms.get(0).getAlarmDate().getTime());
+    }
+
+    @Test
+    public void reminderStoreWritesBehindInBatches() throws Exception {
+        ReminderStore store = new ReminderStore(helper, 2, 60000);
+        store.save(new Reminder(1, 0, 0, Reminder.State.FIRED, 0));
+        Thread.sleep(100);
+        Assert.assertNull(helper.getReminder(1));
+        // набралась порция - записывается сразу, не дожидаясь задержки
+        store.save(new Reminder(2, 0, 0, Reminder.State.FIRED, 0));
+        for (int i = 0; i < 100 && store.getPendingCount() > 0; i++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        Assert.assertEquals(Reminder.State.FIRED, helper.getReminder(1).getState());
+        Assert.assertNotNull(helper.getReminder(2));
+        store.close();
+    }
+
+    @Test
+    public void reminderStoreRetriesFailedWrite() throws Exception {
+        JdbcConnectionSource other = new JdbcConnectionSource(AppConfig.DATABASE_PREFIX + databaseFile.getAbsolutePath());
+        Dao<Reminder, Integer> dao = DaoManager.createDao(other, Reminder.class);
+        dao.executeRawNoArgs("ALTER TABLE `reminder` RENAME TO `reminder_moved`");
+        ReminderStore store = new ReminderStore(helper, 10, 50);
+        store.save(new Reminder(1, 0, 0, Reminder.State.FIRED, 0));
+        Thread.sleep(200);
+        Assert.assertEquals(1, store.getPendingCount());
+        // после неудачной записи изменения записываются повторно без новых вызовов save
+        dao.executeRawNoArgs("ALTER TABLE `reminder_moved` RENAME TO `reminder`");
+        other.close();
+        for (int i = 0; i < 100 && store.getPendingCount() > 0; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(0, store.getPendingCount());
+        Assert.assertEquals(Reminder.State.FIRED, helper.getReminder(1).getState());
+        store.close();
+    }
+
+    @Test
+    public void keysAreFilledForLegacyDatabase() throws Exception {
+        helper.close();
+        databaseFile.delete();
+        String url = AppConfig.DATABASE_PREFIX + databaseFile.getAbsolutePath();
+        JdbcConnectionSource legacy = new JdbcConnectionSource(url);
+        Dao<Candidate, Integer> dao = DaoManager.createDao(legacy, Candidate.class);
+        dao.executeRawNoArgs("CREATE TABLE `candidate` (`idCandidate` INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "`fio` VARCHAR NOT NULL, `bornDate` VARCHAR NOT NULL, `banned` VARCHAR NOT NULL)");
+        dao.executeRawNoArgs("INSERT INTO `candidate` (`fio`, `bornDate`, `banned`) VALUES ('Сидоров Сидор', '03.03.1993', '-')");
+        Dao<Interview, Integer> interviewDao = DaoManager.createDao(legacy, Interview.class);
+        interviewDao.executeRawNoArgs("CREATE TABLE `interview` (`idInterview` INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "`idCandidate` INTEGER NOT NULL, `idInterviewer` INTEGER NOT NULL, `date` VARCHAR NOT NULL, "
+                + "`result` VARCHAR, `time` VARCHAR, `post` VARCHAR NOT NULL)");
+        interviewDao.executeRawNoArgs("INSERT INTO `interview` (`idCandidate`, `idInterviewer`, `date`, `time`, `post`) "
+                + "VALUES (1, 1, '18.07.2016', '10:00:00', 'программист')");
+        legacy.close();
+        helper = new DatabaseHelper(url);
+        Assert.assertEquals(1, helper.getInterviewsByDay(LocalDate.of(2016, 7, 18)).size());
+        Candidate candidate = helper.getCandidateByFioAndBornDate("сидоров сидор", "03.03.1993");
+        Assert.assertNotNull(candidate);
+        Assert.assertEquals("Сидоров Сидор", candidate.getFio());
+    }
 
+    @Test
+    public void restoreUpgradesLegacyBackup() throws Exception {
+        File backup = File.createTempFile("legacy", ".db");
+        backup.delete();
+        JdbcConnectionSource legacy = new JdbcConnectionSource(AppConfig.DATABASE_PREFIX + backup.getAbsolutePath());
+        Dao<Candidate, Integer> dao = DaoManager.createDao(legacy, Candidate.class);
+        dao.executeRawNoArgs("CREATE TABLE `candidate` (`idCandidate` INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "`fio` VARCHAR NOT NULL, `bornDate` VARCHAR NOT NULL, `banned` VARCHAR NOT NULL)");
+        dao.executeRawNoArgs("INSERT INTO `candidate` (`fio`, `bornDate`, `banned`) VALUES ('Сидоров Сидор', '03.03.1993', '-')");
+        Dao<Interview, Integer> interviewDao = DaoManager.createDao(legacy, Interview.class);
+        interviewDao.executeRawNoArgs("CREATE TABLE `interview` (`idInterview` INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "`idCandidate` INTEGER NOT NULL, `idInterviewer` INTEGER NOT NULL, `date` VARCHAR NOT NULL, "
+                + "`result` VARCHAR, `time` VARCHAR, `post` VARCHAR NOT NULL)");
+        interviewDao.executeRawNoArgs("INSERT INTO `interview` (`idCandidate`, `idInterviewer`, `date`, `time`, `post`) "
+                + "VALUES (1, 1, '18.07.2016', '10:00:00', 'программист')");
+        legacy.close();
+        try {
+            helper.addCandidate("Козлов Олег", "03.03.1993", "-");
+            helper.restore(backup.toPath());
+            // колонки ключей и времени, таблица напоминаний и полнотекстовый индекс созданы и заполнены
+            Assert.assertEquals(1, helper.getInterviewsByDay(LocalDate.of(2016, 7, 18)).size());
+            Assert.assertNotNull(helper.getCandidateByFioAndBornDate("сидоров сидор", "03.03.1993"));
+            Assert.assertEquals(1, helper.getInterviewRows("", "", "", "программист").size());
+            long from = DateTimeUtil.toEpochMillis(LocalDate.of(2016, 7, 18).atStartOfDay());
+            Assert.assertEquals(1, helper.getAlarms(from, from + TimeUnit.DAYS.toMillis(1), 0).size());
+            helper.addInterview("Иванов Иван", "01.01.1990", "Петров Петр", "18.07.2016", "", "аналитик", "11:00:00");
+            Assert.assertEquals(2, helper.getCountOfInterview());
+        } finally {
+            backup.delete();
+        }
+    }
 }
@@ -0,0 +1,119 @@
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import util.NotificationAggregator;
+import util.ReminderScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Планировщик напоминаний: время срабатывания, перенос и отмена по ключу
+ */
+public class ReminderSchedulerTest {
+    private final List<String> fired = new CopyOnWriteArrayList<>();
+    private final ReminderScheduler<Integer, String> scheduler = new ReminderScheduler<>(10, 8, fired::add);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void remindersFireInTimeOrderAndNotEarly() throws Exception {
+        long now = System.currentTimeMillis();
+        // 300 мс - несколько оборотов колеса из 8 ячеек по 10 мс
+        scheduler.schedule(1, "позже", now + 300);
+        scheduler.schedule(2, "раньше", now + 100);
+        scheduler.schedule(3, "просрочено", now - 1000);
+        Thread.sleep(60);
+        Assert.assertEquals("[просрочено]", fired.toString());
+        waitFor(3, now + 2000);
+        Assert.assertTrue(System.currentTimeMillis() >= now + 300);
+        Assert.assertEquals("[просрочено, раньше, позже]", fired.toString());
+        Assert.assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void snoozeReschedulesInPlace() throws Exception {
+        long now = System.currentTimeMillis();
+        scheduler.schedule(1, "напоминание", now + 50);
+        Assert.assertTrue(scheduler.schedule(1, "отложенное", now + 150));
+        Assert.assertEquals(1, scheduler.size());
+        Assert.assertEquals(now + 150, (long) scheduler.getFireTime(1));
+        Assert.assertEquals("отложенное", scheduler.get(1));
+        Thread.sleep(100);
+        Assert.assertTrue(fired.isEmpty());
+        waitFor(1, now + 2000);
+        Thread.sleep(50);
+        Assert.assertEquals("[отложенное]", fired.toString());
+        Assert.assertNull(scheduler.get(1));
+    }
+
+    @Test
+    public void cancelledRemindersDoNotFire() throws Exception {
+        long now = System.currentTimeMillis();
+        for (int i = 1; i < 50000; i++) {
+            scheduler.schedule(i, "напоминание " + i, now + 1000 + i);
+        }
+        for (int i = 1; i < 50000; i++) {
+            Assert.assertEquals("напоминание " + i, scheduler.cancel(i));
+        }
+        Assert.assertNull(scheduler.cancel(1));
+        Assert.assertEquals(0, scheduler.size());
+        now = System.currentTimeMillis();
+        scheduler.schedule(0, "напоминание 0", now + 50);
+        waitFor(1, now + 2000);
+        Thread.sleep(100);
+        Assert.assertEquals("[напоминание 0]", fired.toString());
+    }
+
+    @Test
+    public void remindersDueWithinWindowArePolledEarly() throws Exception {
+        long now = System.currentTimeMillis();
+        scheduler.schedule(1, "через 2 с", now + 2000);
+        scheduler.schedule(2, "через 1 с", now + 1000);
+        scheduler.schedule(3, "через 5 с", now + 5000);
+        Assert.assertEquals("[через 1 с, через 2 с]", scheduler.pollBefore(now + 3000).toString());
+        Assert.assertEquals(1, scheduler.size());
+        Assert.assertNull(scheduler.cancel(1));
+    }
+
+    @Test
+    public void simultaneousAndNearRemindersShareOneNotification() throws Exception {
+        List<List<Long>> notifications = new CopyOnWriteArrayList<>();
+        List<ReminderScheduler<Integer, Long>> wheel = new ArrayList<>();
+        // напоминание - его время срабатывания; окно объединения - 1 с
+        NotificationAggregator<Long> aggregator = new NotificationAggregator<>(1000, 50, Long::longValue,
+                time -> wheel.get(0).pollBefore(time), notifications::add);
+        wheel.add(new ReminderScheduler<>(10, 8, aggregator::add));
+        try {
+            long now = System.currentTimeMillis();
+            // дюжина собеседований в одно время, еще одно - в пределах окна, последнее - за окном
+            for (int i = 1; i <= 12; i++) {
+                wheel.get(0).schedule(i, now + 100, now + 100);
+            }
+            wheel.get(0).schedule(13, now + 600, now + 600);
+            wheel.get(0).schedule(14, now + 1500, now + 1500);
+            long deadline = now + 3000;
+            while (notifications.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertEquals(2, notifications.size());
+            Assert.assertEquals(13, notifications.get(0).size());
+            Assert.assertEquals(now + 600, (long) notifications.get(0).get(12));
+            Assert.assertEquals("[" + (now + 1500) + "]", notifications.get(1).toString());
+            Assert.assertEquals(0, wheel.get(0).size());
+        } finally {
+            wheel.get(0).shutdown();
+            aggregator.shutdown();
+        }
+    }
+
+    private void waitFor(int count, long deadline) throws InterruptedException {
+        while (fired.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}